@@ -1,21 +1,61 @@
 package tkom.project;
 
+import tkom.project.closure.ClosureInterpreter;
+import tkom.project.jvm.JvmEngine;
 import tkom.project.nodes.Program;
+import tkom.project.optimizer.OptimizerPolicy;
+import tkom.project.tiered.TierPolicy;
+import tkom.project.vm.RegisterMachine;
+import tkom.project.vm.VirtualMachine;
 
 import java.io.*;
 
 public class App {
+    private static final String ENGINE_FLAG = "--engine=";
+    private static final String CALL_THRESHOLD_FLAG = "--tier-calls=";
+    private static final String LOOP_THRESHOLD_FLAG = "--tier-loops=";
+    private static final String COMPILER_THREADS_FLAG = "--compiler-threads=";
+    private static final String MAX_CALL_DEPTH_FLAG = "--max-call-depth=";
+    private static final String INLINE_SIZE_FLAG = "--inline-size=";
+    private static final String INLINE_REPORT_FLAG = "--inline-report";
+
     public static void main( String[] args ) throws IOException {
         Program program = null;
 
-        if (args.length == 0) {
+        // optional --engine=<name> flag selects how the program is executed, the other argument is the source file
+        // tiered engine compiles functions after --tier-calls calls or --tier-loops loop iterations on --compiler-threads threads
+        // tracing engine does the same, but traces hot loops instead of compiling them whole
+        // vm engine keeps calls on its own stack, which --max-call-depth limits instead of the Java stack size
+        // functions returning an expression of at most --inline-size nodes are inlined, --inline-report prints every call site
+        String engineName = "interpreter";
+        String source = null;
+        int callThreshold = TierPolicy.DEFAULT.getCallThreshold();
+        int loopThreshold = TierPolicy.DEFAULT.getLoopThreshold();
+        int compilerThreads = TierPolicy.DEFAULT.getCompilerThreads();
+        int maxCallDepth = VirtualMachine.DEFAULT_MAX_CALL_DEPTH;
+        int inlineSize = OptimizerPolicy.DEFAULT.getInlineSize();
+        boolean inlineReport = false;
+        for (String arg : args) {
+            if (arg.startsWith(ENGINE_FLAG)) engineName = arg.substring(ENGINE_FLAG.length());
+            else if (arg.startsWith(CALL_THRESHOLD_FLAG)) callThreshold = Integer.parseInt(arg.substring(CALL_THRESHOLD_FLAG.length()));
+            else if (arg.startsWith(LOOP_THRESHOLD_FLAG)) loopThreshold = Integer.parseInt(arg.substring(LOOP_THRESHOLD_FLAG.length()));
+            else if (arg.startsWith(COMPILER_THREADS_FLAG)) compilerThreads = Integer.parseInt(arg.substring(COMPILER_THREADS_FLAG.length()));
+            else if (arg.startsWith(MAX_CALL_DEPTH_FLAG)) maxCallDepth = Integer.parseInt(arg.substring(MAX_CALL_DEPTH_FLAG.length()));
+            else if (arg.startsWith(INLINE_SIZE_FLAG)) inlineSize = Integer.parseInt(arg.substring(INLINE_SIZE_FLAG.length()));
+            else if (arg.equals(INLINE_REPORT_FLAG)) inlineReport = true;
+            else source = arg;
+        }
+        TierPolicy tierPolicy = new TierPolicy(callThreshold, loopThreshold, compilerThreads);
+        OptimizerPolicy optimizerPolicy = new OptimizerPolicy(inlineSize, inlineReport ? System.out::println : null);
+
+        if (source == null) {
             String code = "int test = 5;";
             Lexer lexer = new Lexer(new StringReader(code));
             Parser parser = new Parser(lexer);
 
             program = parser.parse();
         } else {
-            File file = new File(args[0]);
+            File file = new File(source);
             try (FileReader fr = new FileReader(file)) {
                 Lexer lexer = new Lexer(fr);
                 Parser parser = new Parser(lexer);
@@ -27,10 +67,38 @@ public class App {
         }
 
         if (program != null) {
-            Interpreter interpreter = new Interpreter(program);
-            String msg = interpreter.execute();
+            Engine engine = createEngine(engineName, program, tierPolicy, maxCallDepth);
+            engine.setOptimizerPolicy(optimizerPolicy);
+            String msg = engine.execute();
 
             System.out.println(msg);
         }
     }
+
+    private static Engine createEngine(String name, Program program, TierPolicy tierPolicy, int maxCallDepth) {
+        switch (name) {
+            case "interpreter" -> {
+                return new Interpreter(program);
+            }
+            case "vm" -> {
+                return new VirtualMachine(program, null, maxCallDepth);
+            }
+            case "register" -> {
+                return new RegisterMachine(program);
+            }
+            case "closure" -> {
+                return new ClosureInterpreter(program);
+            }
+            case "jvm" -> {
+                return new JvmEngine(program);
+            }
+            case "tiered" -> {
+                return new Interpreter(program, null, tierPolicy);
+            }
+            case "tracing" -> {
+                return new Interpreter(program, null, new TierPolicy(tierPolicy.getCallThreshold(), tierPolicy.getLoopThreshold(), tierPolicy.getCompilerThreads(), true));
+            }
+            default -> throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package tkom.project;
+
+import tkom.project.optimizer.OptimizerPolicy;
+
+// Executes a parsed program, implemented by the tree-walking interpreter and the compiled backends
+public interface Engine {
+    String execute();
+
+    // program is optimized before execution with OptimizerPolicy.DEFAULT, unless another policy is set
+    void setOptimizerPolicy(OptimizerPolicy optimizerPolicy);
+}
@@ -1,835 +1,535 @@
 package tkom.project;
 
+import tkom.project.closure.ValueCode;
 import tkom.project.exceptions.*;
+import tkom.project.jvm.CompiledLoop;
 import tkom.project.nodes.*;
 import tkom.project.nodes.expressions.Expression;
 import tkom.project.nodes.expressions.OperatorExpression;
 import tkom.project.nodes.statements.*;
-import tkom.project.scope.Context;
+import tkom.project.optimizer.Optimizer;
+import tkom.project.optimizer.OptimizerPolicy;
+import tkom.project.runtime.Builtin;
+import tkom.project.runtime.Operations;
+import tkom.project.runtime.Specialization;
+import tkom.project.runtime.Specializations;
+import tkom.project.scope.FrameStack;
 import tkom.project.scope.Reader;
+import tkom.project.tiered.TierPolicy;
+import tkom.project.tiered.TieredCompiler;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.Scanner;
 
-public class Interpreter {
+public class Interpreter implements Engine, StatementVisitor<JumpStatement>, ExpressionVisitor<Void> {
+    private static final JumpStatement COMPILED_RETURN = new JumpStatement(JumpType.RETURN);
+
+    private final Program program;
+    private OptimizerPolicy optimizerPolicy = OptimizerPolicy.DEFAULT;
     private final List<VariableDefinition> globalVariables;
-    private final List<FunctionDefinition> functions;
 
-    private Context currentFunctionContext;
-    private final ArrayList<Context> previousFunctionContexts;
+    // every evaluated expression leaves exactly one tagged value on top of the frame stack
+    private final FrameStack frames;
 
     private final Reader debug;
 
+    // hot functions get compiled when tiering is enabled, loop iterations are counted for the executed function
+    private final TierPolicy tierPolicy;
+    private TieredCompiler tiers;
+    private FunctionDefinition executedFunction;
+
+    // function called by return in tail position, its arguments are kept aside by the frame stack until the caller's frame is reused
+    private FunctionDefinition tailCall;
+    private int callDepth;
+
     public Interpreter(Program program) {
-        this.previousFunctionContexts = new ArrayList<>();
+        this.program = program;
+        this.frames = new FrameStack();
         this.globalVariables = program.getVariables();
-        this.functions = program.getFunctions();
 
         this.debug = null;
+        this.tierPolicy = null;
     }
 
     public Interpreter(Program program, Reader reader) {
-        this.previousFunctionContexts = new ArrayList<>();
+        this(program, reader, null);
+    }
+
+    public Interpreter(Program program, Reader reader, TierPolicy tierPolicy) {
+        this.program = program;
+        this.frames = new FrameStack();
         this.globalVariables = program.getVariables();
-        this.functions = program.getFunctions();
 
         this.debug = reader;
+        this.tierPolicy = tierPolicy;
     }
 
-    public String execute() {
-        validate();
-        FunctionDefinition main = findFunction("main");
-
-        // Check if main structure is correct
-        if (main.getType() != TypeSpecifier.VOID) throw new IncorrectReturnTypeException(main.getName(), main.getType(), TypeSpecifier.VOID);
-        if (!main.getParameters().isEmpty()) throw new IncorrectParameterAmountException(main.getName(), main.getParameters().size(), 0);
-
-        // Execute main function body
-        List<Statement> statements = main.getStatements();
-        currentFunctionContext = new Context();
+    @Override
+    public void setOptimizerPolicy(OptimizerPolicy optimizerPolicy) {
+        this.optimizerPolicy = optimizerPolicy;
+    }
 
-        for (Statement statement : statements) {
-            JumpStatement executionResult = executeStatement(statement);
-            if (executionResult != null && executionResult.getType() != JumpType.RETURN) throw new InvalidJumpStatement("main");
+    @Override
+    public String execute() {
+        Resolver resolver = new Resolver(program);
+        resolver.resolve();
+        FunctionDefinition main = resolver.findMain();
+        new Optimizer(program, optimizerPolicy).optimize();
+        new TypeChecker(program).check();
+
+        if (tierPolicy != null) tiers = new TieredCompiler(program, main, frames, debug, tierPolicy);
+        try {
+            // Initialize global variables in order of their definition
+            frames.reserveGlobals(globalVariables.size());
+            for (VariableDefinition globalVariable : globalVariables) {
+                visitVariableDefinition(globalVariable);
+            }
+
+            // Execute main function body
+            List<Statement> statements = main.getStatements();
+            frames.enterFrame(0, main.getFrameSize());
+            executedFunction = main;
+
+            for (Statement statement : statements) {
+                JumpStatement executionResult = executeStatement(statement);
+                if (executionResult != null && executionResult.getType() != JumpType.RETURN) throw new InvalidJumpStatement("main");
+            }
+        } finally {
+            if (tiers != null) tiers.shutdown();
         }
 
         return ("Program executed CORRECTLY!");
     }
 
     private JumpStatement executeStatement(Statement statement) {
-        if (statement.getClass() == VariableDefinition.class) executeVariableDefinition((VariableDefinition) statement);
-        if (statement.getClass() == FuncCallStatement.class || statement.getClass() == OperatorExpression.class) evaluateExpression((Expression) statement);
-        if (statement.getClass() == IfElseStatement.class) return executeIfElseStatement((IfElseStatement) statement);
-        if (statement.getClass() == WhileStatement.class) return executeWhileStatement((WhileStatement) statement);
-        if (statement.getClass() == ExistStatement.class) return executeExistStatement((ExistStatement) statement);
-        if (statement.getClass() == PatternMatchingStatement.class) return executePatternMatchingStatement((PatternMatchingStatement) statement);
-        if (statement.getClass() == JumpStatement.class) return (JumpStatement) statement;
+        // every statement dispatches itself to the matching visit method
+        return statement.accept(this);
+    }
+
+    @Override
+    public JumpStatement visitExpressionStatement(Expression statement) {
+        // value of expression used as a statement is dropped
+        evaluateExpression(statement);
+        frames.pop();
         return null;
     }
 
-    // VARIABLE DEFINITION
-    private void executeVariableDefinition(VariableDefinition varDef) {
-        Expression resolved = evaluateExpression(varDef.getValue());
+    @Override
+    public JumpStatement visitJumpStatement(JumpStatement statement) {
+        // returned value has to be evaluated before leaving the scopes of variables it uses
+        if (statement.getType() == JumpType.RETURN) {
+            if (statement.getRetExpr() instanceof FuncCallStatement call && isTailCall(call)) {
+                prepareTailCall(call);
+                return statement;
+            }
 
-        // evaluate assigned value
-        if ((resolved != null) && (resolved.getType() != varDef.getType())) {
-            throw new MismatchedTypesException(varDef.getIdentifier(), varDef.getType(), resolved.getType());
-        }
-        // check if not already defined (or restricted)
-        String identifier = varDef.getIdentifier();
-        if ((findGlobalVar(identifier) != null) ||
-                (currentFunctionContext.getVariable(identifier) != null) ||
-                (Objects.equals(identifier, "var"))) {
-            throw new VariableAlreadyDefinedException(varDef.getIdentifier());
+            evaluateExpression(statement.getRetExpr());
+            frames.saveReturnedValue();
         }
+        return statement;
+    }
 
-        currentFunctionContext.addVariable(
-                new VariableDefinition(
-                        varDef.getMutable(),
-                        varDef.getOptional(),
-                        varDef.getIdentifier(),
-                        varDef.getType(),
-                        resolved
-                )
-        );
+    // Call whose value is returned as it is continues in the frame of the returning function, instead of nesting in it
+    // returned value is then checked only once, so the called function has to return the same type
+    // main body isn't a called function, as return only ends its statement
+    private boolean isTailCall(FuncCallStatement call) {
+        FunctionDefinition function = call.getFunction();
+        return callDepth > 0 && function != null && call.getNotFlag() == null && function.getType() == executedFunction.getType();
     }
 
-    // EVALUATING EXPRESSIONS
-    private Expression evaluateExpression(Expression toResolve) {
-        if (toResolve == null) return null;
+    private void prepareTailCall(FuncCallStatement call) {
+        FunctionDefinition function = call.getFunction();
+        evaluateArguments(call, function);
 
-        // Operator Expression
-        if (toResolve.getClass() == OperatorExpression.class) {
-            return tryEvaluateOperatorExpression(toResolve);
+        if (tiers != null) {
+            ValueCode compiled = tiers.enter(function);
+            if (compiled != null) {
+                compiled.run(frames);
+                evaluateReturnValue(function, null);
+                frames.saveReturnedValue();
+                return;
+            }
         }
 
-        // Function Call
-        if (toResolve.getClass() == FuncCallStatement.class) {
-            return executeFuncCall((FuncCallStatement) toResolve);
+        frames.saveArguments(call.getArguments().size());
+        tailCall = function;
+    }
+
+    // VARIABLE DEFINITION
+    @Override
+    public JumpStatement visitVariableDefinition(VariableDefinition varDef) {
+        // evaluate assigned value
+        evaluateExpression(varDef.getValue());
+
+        if (!hasStaticType(varDef.getValue(), varDef.getType())) {
+            TypeSpecifier resolvedType = frames.peekType();
+            if ((resolvedType != null) && (resolvedType != varDef.getType())) {
+                throw new MismatchedTypesException(varDef.getIdentifier(), varDef.getType(), resolvedType);
+            }
         }
+        // redefinitions were already rejected by the resolver, so the slot can be written directly
+        // globals are defined before main frame is entered, so their index is also their slot
+        Binding binding = varDef.getBinding();
+        if (binding.isGlobal()) frames.defineGlobal(binding.getIndex());
+        else frames.define(binding.getIndex());
+        return null;
+    }
+
+    // value of the type proven by TypeChecker passes the check, as empty values pass it too
+    private static boolean hasStaticType(Expression expression, TypeSpecifier type) {
+        return expression != null && expression.getStaticType() == type;
+    }
+
+    private TypeSpecifier variableType(Binding binding) {
+        if (binding.isGlobal()) return frames.getGlobalType(binding.getIndex());
+        return frames.getType(binding.getIndex());
+    }
+
+    private void assignVariable(Expression target) {
+        Binding binding = target.getBinding();
+        if (binding == null) throw new VariableNotDeclaredException(target.getIdentifier());
 
-        // Variable Reference
-        else if ((toResolve.getClass() == Expression.class) && (toResolve.getIdentifier() != null)) {
-            return tryEvaluateVariableReference(toResolve);
+        // non mutable variable can only get its first value
+        if (!binding.isMutable() && variableType(binding) != null) throw new ReassignNonMutableVariableException(binding.getIdentifier());
+
+        // assigned value stays on the stack as the result of assignment
+        if (binding.isGlobal()) frames.storeGlobal(binding.getIndex());
+        else frames.store(binding.getIndex());
+    }
+
+    // EVALUATING EXPRESSIONS
+    private void evaluateExpression(Expression toResolve) {
+        // missing expression evaluates to an empty value
+        if (toResolve == null) {
+            frames.pushEmpty();
+            return;
         }
-        // Literal
-        return tryEvaluateLiteral(toResolve);
+
+        toResolve.acceptExpression(this);
     }
 
-    private Expression tryEvaluateOperatorExpression(Expression toResolve) {
+    @Override
+    public Void visitOperatorExpression(OperatorExpression toResolve) {
         // get the operator of expression
-        Operator op = ((OperatorExpression) toResolve).getOperator();
+        Operator op = toResolve.getOperator();
+
+        if (op == Operator.AND || op == Operator.OR) {
+            evaluateLogicalExpression(toResolve);
+            return null;
+        }
 
         // evaluate the right side of operation
-        Expression rightResolved = evaluateExpression(((OperatorExpression) toResolve).getRightExpr());
+        evaluateExpression(toResolve.getRightExpr());
 
         // if it's assignment operation no need to evaluate the left side, we just assign
         if (op == Operator.ASSIGN) {
             if (toResolve.getNotFlag() != null) throw new NegateAssignOperationException();
 
-            Expression reAssignment = currentFunctionContext.setVariableValue(((OperatorExpression) toResolve).getLeftExpr().getIdentifier(), rightResolved);
-
-            if (reAssignment == null) {
-                return setGlobalVariableValue(((OperatorExpression) toResolve).getLeftExpr().getIdentifier(), rightResolved);
-            } else return reAssignment;
+            assignVariable(toResolve.getLeftExpr());
+            return null;
         }
 
-        // otherwise evaluate the left side of operation and evaluate the operation
-        Expression leftResolved = evaluateExpression(((OperatorExpression) toResolve).getLeftExpr());
+        // otherwise evaluate the left side of operation, it lands on top of the right one
+        evaluateExpression(toResolve.getLeftExpr());
 
-        switch (op) {
-            case ADD -> {
-                return tryAddExpression(leftResolved, rightResolved, toResolve.getNotFlag());
-            }
-            case SUB, MULTI, DIV, MODULO -> {
-                return tryNumericExpression(op, leftResolved, rightResolved, toResolve.getNotFlag());
-            }
-            case LESS, LESS_EQ, MORE, MORE_EQ -> {
-                return tryNumComparisonExpression(op, leftResolved, rightResolved, toResolve.getNotFlag());
-            }
-            case EQUAL, NOT_EQUAL -> {
-                return tryComparisonExpression(op, leftResolved, rightResolved, toResolve.getNotFlag());
-            }
-            case OR, AND -> {
-                return tryLogicalExpression(op, leftResolved, rightResolved, toResolve.getNotFlag());
-            }
-            default -> throw new ExpressionResolvingException();
+        // node evaluated before runs the version specialized to its operand types, until they change
+        Specialization specialization = toResolve.getSpecialization();
+        if (specialization == null) {
+            toResolve.setSpecialization(Specializations.operator(op, frames.peekType(), frames.peekType(1), toResolve.getNotFlag()));
+        } else if (specialization != Specializations.GENERIC) {
+            if (specialization.evaluate(frames)) return null;
+            toResolve.setSpecialization(Specializations.GENERIC);
         }
+
+        Operations.evaluateOperator(frames, op, toResolve.getNotFlag());
+        return null;
     }
 
-    private Expression tryEvaluateVariableReference(Expression toResolve) {
-        VariableDefinition variable;
+    // left side is evaluated first, the right one only when the left one doesn't decide the result
+    private void evaluateLogicalExpression(OperatorExpression toResolve) {
+        evaluateExpression(toResolve.getLeftExpr());
+        if (Operations.shortCircuit(frames, toResolve.getOperator(), toResolve.getNotFlag())) return;
 
-        variable = currentFunctionContext.getVariable(toResolve.getIdentifier());
-        if (variable == null) variable = findGlobalVar(toResolve.getIdentifier());
-        if (variable == null) throw new VariableNotDeclaredException(toResolve.getIdentifier());
+        // left operand is moved on top of the right one, as operations expect it
+        evaluateExpression(toResolve.getRightExpr());
+        frames.swap();
+        Operations.evaluateOperator(frames, toResolve.getOperator(), toResolve.getNotFlag());
+    }
 
-        Expression value = variable.getValue();
+    @Override
+    public Void visitVariableReference(Expression toResolve) {
+        Binding binding = toResolve.getBinding();
+        if (binding == null) throw new VariableNotDeclaredException(toResolve.getIdentifier());
 
-        if (value == null) {
-            if (Boolean.TRUE.equals(variable.getOptional())) return null;
-            else throw new NonOptionalVariableMissingValueException(variable.getIdentifier());
-        }
+        if (binding.isGlobal()) frames.loadGlobal(binding.getIndex());
+        else frames.load(binding.getIndex());
 
-        switch (value.getType()) {
-            case INT -> {
-                return retrieveIntValue(toResolve, value);
-            }
-            case FLOAT -> {
-                return retrieveFloatValue(toResolve, value);
-            }
-            case STRING -> {
-                return new Expression(null, value.getType(), (String) value.value().getValue());
-            }
-            case BOOL -> {
-                return  retrieveBooleanValue(toResolve, value);
-            }
-            default -> {
-                return null;
-            }
-        }
-    }
-
-    private Expression retrieveIntValue(Expression toResolve, Expression value) {
-        if (toResolve.getNotFlag() == null) return new Expression(null, value.getType(), (Integer) value.value().getValue());
-        else {
-            if (toResolve.getNotFlag() != NotValue.ARITHMETIC) throw new ArithmeticNotException(toResolve.getType(), toResolve.getIdentifier());
-            return new Expression(null, value.getType(), -(Integer) value.value().getValue());
+        Specialization specialization = toResolve.getSpecialization();
+        if (specialization == null) {
+            toResolve.setSpecialization(Specializations.variable(frames.peekType(), toResolve.getNotFlag()));
+        } else if (specialization != Specializations.GENERIC) {
+            if (specialization.evaluate(frames)) return null;
+            toResolve.setSpecialization(Specializations.GENERIC);
         }
-    }
 
-    private Expression retrieveFloatValue(Expression toResolve, Expression value) {
-        if (toResolve.getNotFlag() == null) return new Expression(null, value.getType(), (Float) value.value().getValue());
-        else {
-            if (toResolve.getNotFlag() != NotValue.ARITHMETIC) throw new ArithmeticNotException(toResolve.getType(), toResolve.getIdentifier());
-            return new Expression(null, value.getType(), -(Float) value.value().getValue());
+        TypeSpecifier type = frames.peekType();
+        if (type == null) {
+            if (binding.isOptional()) return null;
+            else throw new NonOptionalVariableMissingValueException(binding.getIdentifier());
         }
-    }
+        if (toResolve.getNotFlag() == null) return null;
 
-    private Expression retrieveBooleanValue(Expression toResolve, Expression value) {
-        if (toResolve.getNotFlag() == null) return new Expression(null, value.getType(), (Boolean) value.value().getValue());
-        else {
-            if (toResolve.getNotFlag() != NotValue.LOGICAL) throw new LogicalNotException(toResolve.getType(), toResolve.getIdentifier());
-            return new Expression(null, value.getType(), !(Boolean) value.value().getValue());
-        }
+        Operations.negateVariable(frames, toResolve, type);
+        return null;
     }
 
-    private Expression tryEvaluateLiteral(Expression toResolve) {
+    @Override
+    public Void visitLiteral(Expression toResolve) {
         switch (toResolve.getType()) {
             case INT -> {
-                if (toResolve.getNotFlag() == null) return new Expression(null, TypeSpecifier.INT, ((Integer) toResolve.value().getValue()));
-                else return new Expression(null, TypeSpecifier.INT, -((Integer) toResolve.value().getValue()));
+                if (toResolve.getNotFlag() == null) frames.pushInt(toResolve.getIntValue());
+                else frames.pushInt(-toResolve.getIntValue());
             }
             case FLOAT -> {
-                if (toResolve.getNotFlag() == null) return new Expression(null, TypeSpecifier.FLOAT, ((Float) toResolve.value().getValue()));
-                else return new Expression(null, TypeSpecifier.FLOAT, -((Float) toResolve.value().getValue()));
-            }
-            case STRING -> {
-                return toResolve;
+                if (toResolve.getNotFlag() == null) frames.pushFloat(toResolve.getFloatValue());
+                else frames.pushFloat(-toResolve.getFloatValue());
             }
+            case STRING -> frames.pushString(toResolve.getStringValue());
             case BOOL -> {
-                if (toResolve.getNotFlag() == null) return new Expression(null, TypeSpecifier.BOOL, ((Boolean) toResolve.value().getValue()));
-                else return new Expression(null, TypeSpecifier.BOOL, !((Boolean) toResolve.value().getValue()));
+                if (toResolve.getNotFlag() == null) frames.pushBool(toResolve.getBoolValue());
+                else frames.pushBool(!toResolve.getBoolValue());
             }
             default -> throw new TypeException(new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.FLOAT, TypeSpecifier.STRING, TypeSpecifier.BOOL}, toResolve.getType(), "expression");
         }
+        return null;
     }
 
-    private Expression tryAddExpression(Expression left, Expression right, NotValue notFlag) {
-        if (left.getType() != right.getType()) throw new MismatchedSidesOfOperationException("additive", left.getType(), right.getType());
-        if (notFlag == NotValue.LOGICAL) throw new LogicalNotException(left.getType(), "additive-expression");
-        else {
-            switch (left.getType()) {
-                case INT -> {
-                    Integer result = (Integer) left.value().getValue() + (Integer) right.value().getValue();
-                    return checkArithmeticNot(result, left.getType(), notFlag);
-                }
-                case FLOAT -> {
-                    Float result = (Float) left.value().getValue() + (Float) right.value().getValue();
-                    return checkArithmeticNot(result, left.getType(), notFlag);
-                }
-                case STRING -> {
-                    if (notFlag != null) throw new ArithmeticNotException(TypeSpecifier.STRING, "additive-expression");
-                    else return new Expression(null, left.getType(), (String) left.value().getValue() + right.value().getValue());
-                }
-                default -> throw new IncorrectTypeInOperationException("addition", left.getType());
-            }
+    // EXECUTING FUNCTION CALLS
+    @Override
+    public Void visitFuncCall(FuncCallStatement toExecute) {
+        List<Expression> arguments = toExecute.getArguments();
+
+        Builtin builtin = toExecute.getBuiltin();
+        if (builtin != null) {
+            executePredefinedFunction(builtin, arguments);
+            return null;
         }
-    }
 
-    private Expression tryNumericExpression(Operator op, Expression left, Expression right, NotValue notFlag) {
-        String location = "sub/multi/div/mod";
+        FunctionDefinition currentFun = toExecute.getFunction();
+        if (currentFun == null) throw new FunctionNotDeclaredException(toExecute.getIdentifier());
 
-        if (left.getType() != right.getType()) throw new MismatchedSidesOfOperationException(location, left.getType(), right.getType());
-        if (notFlag == NotValue.LOGICAL) throw new LogicalNotException(left.getType(), location);
-        else {
-            switch (left.getType()) {
-                case INT -> {
-                    return integerNumericExpression(op, left, right, notFlag);
-                }
-                case FLOAT -> {
-                    return floatNumericExpression(op, left, right, notFlag);
-                }
-                default -> throw new IncorrectTypeInOperationException(location, left.getType());
-            }
-        }
-    }
+        evaluateArguments(toExecute, currentFun);
 
-    private Expression integerNumericExpression(Operator op, Expression left, Expression right, NotValue notFlag) {
-        switch (op) {
-            case SUB -> {
-                Integer result = (Integer) left.value().getValue() - (Integer) right.value().getValue();
-                return checkArithmeticNot(result, left.getType(), notFlag);
-            }
-            case MULTI -> {
-                Integer result = (Integer) left.value().getValue() * (Integer) right.value().getValue();
-                return checkArithmeticNot(result, left.getType(), notFlag);
-            }
-            case DIV -> {
-                if ((Integer) right.value().getValue() == 0) throw new DivisionByZeroException();
-                return checkArithmeticNot(((Integer) left.value().getValue() / (Integer) right.value().getValue()), TypeSpecifier.FLOAT, notFlag);
-            }
-            case MODULO -> {
-                if ((Integer) right.value().getValue() == 0) throw new DivisionByZeroException();
-                Integer result = (Integer) left.value().getValue() % (Integer) right.value().getValue();
-                return checkArithmeticNot(result, left.getType(), notFlag);
-            }
-            default -> {
+        // compiled function takes its arguments from the stack and leaves its result there
+        if (tiers != null) {
+            ValueCode compiled = tiers.enter(currentFun);
+            if (compiled != null) {
+                compiled.run(frames);
+                evaluateReturnValue(currentFun, toExecute.getNotFlag());
                 return null;
             }
         }
-    }
 
-    private Expression floatNumericExpression(Operator op, Expression left, Expression right, NotValue notFlag) {
-        switch (op) {
-            case SUB -> {
-                Float result = (Float) left.value().getValue() - (Float) right.value().getValue();
-                return checkArithmeticNot(result, left.getType(), notFlag);
-            }
-            case MULTI -> {
-                Float result = (Float) left.value().getValue() * (Float) right.value().getValue();
-                return checkArithmeticNot(result, left.getType(), notFlag);
-            }
-            case DIV -> {
-                if ((Float) right.value().getValue() == 0) throw new DivisionByZeroException();
-                Float result = (Float) left.value().getValue() / (Float) right.value().getValue();
-                return checkArithmeticNot(result, TypeSpecifier.FLOAT, notFlag);
-            }
-            case MODULO -> {
-                if ((Float) right.value().getValue() == 0) throw new DivisionByZeroException();
-                return checkArithmeticNot((Float) left.value().getValue() % (Float) right.value().getValue(), TypeSpecifier.INT, notFlag);
-            }
-            default -> {
-                return null;
-            }
-        }
-    }
+        // start execution of new function
+        int previousFramePointer = frames.enterFrame(arguments.size(), currentFun.getFrameSize());
+        FunctionDefinition callingFunction = executedFunction;
+        executedFunction = currentFun;
 
-    private Expression tryNumComparisonExpression(Operator op, Expression left, Expression right, NotValue notFlag) {
-        String location = "comparison";
-
-        if (left.getType() != right.getType()) throw new MismatchedSidesOfOperationException(location, left.getType(), right.getType());
-        if (notFlag == NotValue.ARITHMETIC) throw new ArithmeticNotException(TypeSpecifier.BOOL, location);
-        else {
-            switch (left.getType()) {
-                case INT -> {
-                    switch (op) {
-                        case LESS -> {
-                            return checkLogicalNot((Integer) left.value().getValue() < (Integer) right.value().getValue(), notFlag);
-                        }
-                        case LESS_EQ -> {
-                            return checkLogicalNot((Integer) left.value().getValue() <= (Integer) right.value().getValue(), notFlag);
-                        }
-                        case MORE -> {
-                            return checkLogicalNot((Integer) left.value().getValue() > (Integer) right.value().getValue(), notFlag);
-                        }
-                        case MORE_EQ -> {
-                            return checkLogicalNot((Integer) left.value().getValue() >= (Integer) right.value().getValue(), notFlag);
-                        }
-                        default -> {
-                            return null;
-                        }
-                    }
-                }
-                case FLOAT -> {
-                    switch (op) {
-                        case LESS -> {
-                            return checkLogicalNot((Float) left.value().getValue() < (Float) right.value().getValue(), notFlag);
-                        }
-                        case LESS_EQ -> {
-                            return checkLogicalNot((Float) left.value().getValue() <= (Float) right.value().getValue(), notFlag);
-                        }
-                        case MORE -> {
-                            return checkLogicalNot((Float) left.value().getValue() > (Float) right.value().getValue(), notFlag);
-                        }
-                        case MORE_EQ -> {
-                            return checkLogicalNot((Float) left.value().getValue() >= (Float) right.value().getValue(), notFlag);
-                        }
-                        default -> {
-                            return null;
-                        }
-                    }
-                }
-                default -> throw new IncorrectTypeInOperationException(location, left.getType());
-            }
-        }
-    }
+        // execute the function statements
+        callDepth++;
+        boolean returned = executeFunctionStatements(currentFun);
 
-    private Expression tryComparisonExpression(Operator op, Expression left, Expression right, NotValue notFlag) {
-        String location = "comparison";
-
-        if (left.getType() != right.getType()) throw new MismatchedSidesOfOperationException(location, left.getType(), right.getType());
-        if (notFlag == NotValue.ARITHMETIC) throw new ArithmeticNotException(TypeSpecifier.BOOL, location);
-        else {
-            if (left.getType() == TypeSpecifier.INT || left.getType() == TypeSpecifier.FLOAT || left.getType() == TypeSpecifier.STRING) {
-                switch (op) {
-                    case EQUAL -> {
-                        return checkLogicalNot(Objects.equals(left.value().getValue(), right.value().getValue()), notFlag);
-                    }
-                    case NOT_EQUAL -> {
-                        return checkLogicalNot(!Objects.equals(left.value().getValue(), right.value().getValue()), notFlag);
-                    }
-                    default -> {
-                        return null;
-                    }
-                }
-            } else throw new IncorrectTypeInOperationException(location, left.getType());
-        }
-    }
+        // tail calls replace the frame of the function which made them, so recursion doesn't grow the Java stack
+        while (tailCall != null) {
+            executedFunction = tailCall;
+            tailCall = null;
 
-    private Expression tryLogicalExpression(Operator op, Expression left, Expression right, NotValue notFlag) {
-        String location = "logical";
-
-        if (left.getType() != right.getType()) throw new MismatchedSidesOfOperationException(location, left.getType(), right.getType());
-        if (notFlag == NotValue.ARITHMETIC) throw new ArithmeticNotException(TypeSpecifier.BOOL, location);
-        else {
-            if (left.getType() == TypeSpecifier.BOOL) {
-                switch (op) {
-                    case AND -> {
-                        return checkLogicalNot((Boolean) left.value().getValue() && (Boolean) right.value().getValue(), notFlag);
-                    }
-                    case OR -> {
-                        return checkLogicalNot((Boolean) left.value().getValue() || (Boolean) right.value().getValue(), notFlag);
-                    }
-                    default -> {
-                        return null;
-                    }
-                }
-            } else throw new IncorrectTypeInOperationException(location, left.getType());
+            frames.reuseFrame(executedFunction.getFrameSize());
+            returned = executeFunctionStatements(executedFunction);
         }
-    }
+        FunctionDefinition returningFunction = executedFunction;
+        callDepth--;
 
-    private Expression checkArithmeticNot(Integer result, TypeSpecifier type, NotValue notFlag) {
-        if (notFlag == NotValue.ARITHMETIC) return new Expression(null, type, -result);
-        return new Expression(null, type, result);
-    }
-
-    private Expression checkArithmeticNot(Float result, TypeSpecifier type, NotValue notFlag) {
-        if (notFlag == NotValue.ARITHMETIC) return new Expression(null, type, -result);
-        return new Expression(null, type, result);
-    }
+        executedFunction = callingFunction;
+        frames.leaveFrame(previousFramePointer);
 
-    private Expression checkLogicalNot(Boolean result, NotValue notFlag) {
-        if (notFlag == NotValue.LOGICAL) return new Expression(null, TypeSpecifier.BOOL, !result);
-        return new Expression(null, TypeSpecifier.BOOL, result);
+        // every function of the tail call chain returns the same type, the last one reports the mismatch like it would when nested
+        if (returned) {
+            frames.pushReturnedValue();
+            evaluateReturnValue(returningFunction, toExecute.getNotFlag());
+        } else frames.pushEmpty();
+        return null;
     }
 
-    // EXECUTING FUNCTION CALLS
-    private Expression executeFuncCall(FuncCallStatement toExecute) {
-        String identifier = toExecute.getIdentifier();
+    private void evaluateArguments(FuncCallStatement toExecute, FunctionDefinition currentFun) {
         List<Expression> arguments = toExecute.getArguments();
 
-        Expression predefined;
-        if ((predefined = tryExecutePredefinedFunction(identifier, arguments)) != null) return predefined;
-
-        FunctionDefinition currentFun = findFunction(identifier);
-
-        // prepare parameters
-        ArrayList<VariableDefinition> preparedParams = new ArrayList<>();
-
+        // call that passed the checks once passes them every time, as neither the call nor the function change
         List<Parameter> parameters = currentFun.getParameters();
-        checkParameters(parameters, currentFun.getName());
-        if (parameters.size() != arguments.size()) throw new IncorrectParameterAmountException(currentFun.getName(), arguments.size(), parameters.size());
+        if (!toExecute.areParametersChecked()) {
+            Resolver.checkParameters(parameters, currentFun.getName());
+            if (parameters.size() != arguments.size()) throw new IncorrectParameterAmountException(currentFun.getName(), arguments.size(), parameters.size());
+            toExecute.setParametersChecked();
+        }
 
+        // evaluated arguments stay on the stack and become the first slots of called function frame
         for (int i = 0; i < parameters.size(); i++) {
             // get currently resolved parameter
             Parameter currentParam = parameters.get(i);
 
             // resolve the given expression
-            Expression resolvedExp = evaluateExpression(arguments.get(i));
-            TypeSpecifier resolvedType;
-
-            if (resolvedExp != null) {
-                resolvedType = resolvedExp.getType();
-                if (currentParam.getType() != resolvedType)
-                    throw new MismatchedTypesException(currentParam.getIdentifier(), currentParam.getType(), resolvedExp.getType());
-                if (findGlobalVar(currentParam.getIdentifier()) != null)
-                    throw new VariableAlreadyDefinedException(currentParam.getIdentifier());
-            } else {
-                resolvedType = TypeSpecifier.UNKNOWN;
-            }
-
-            VariableDefinition addedParam = new VariableDefinition(
-                    currentParam.isMutable(),
-                    currentParam.isOptional(),
-                    currentParam.getIdentifier(),
-                    resolvedType,
-                    resolvedExp
-            );
-            preparedParams.add(addedParam);
-        }
-
-        // stash previous context
-        previousFunctionContexts.add(currentFunctionContext);
+            evaluateExpression(arguments.get(i));
+            if (hasStaticType(arguments.get(i), currentParam.getType())) continue;
 
-        // start execution of new function
-        currentFunctionContext = new Context();
-        for (VariableDefinition param : preparedParams) {
-            currentFunctionContext.addVariable(param);
-        }
-
-        // execute the function statements
-        return executeFunctionStatements(currentFun, toExecute.getNotFlag());
-    }
-
-    private void checkParameters(List<Parameter> parameters, String funName) {
-        for (int i = 0; i < parameters.size()-1; i++) {
-            for (int j = i+1; j < parameters.size()-1; j++) {
-                if (Objects.equals(parameters.get(i).getIdentifier(), parameters.get(j).getIdentifier())) {
-                    throw new ParameterAlreadyDeclaredException(parameters.get(i).getIdentifier(), funName);
-                }
+            TypeSpecifier resolvedType = frames.peekType();
+            if ((resolvedType != null) && (currentParam.getType() != resolvedType)) {
+                throw new MismatchedTypesException(currentParam.getIdentifier(), currentParam.getType(), resolvedType);
             }
         }
     }
 
-    private Expression executeFunctionStatements(FunctionDefinition currentFun, NotValue notFlag) {
+    private boolean executeFunctionStatements(FunctionDefinition currentFun) {
         for (Statement statement : currentFun.getStatements()) {
             JumpStatement executionResult = executeStatement(statement);
 
             if (executionResult != null) {
                 if (executionResult.getType() != JumpType.RETURN) throw new InvalidJumpStatement(currentFun.getName());
-                else {
-                    Expression toReturn = evaluateReturnValue(executionResult.getRetExpr(), currentFun, notFlag);
-
-                    currentFunctionContext = revertPreviousContext();
-                    return toReturn;
-                }
-            }
-        }
-        currentFunctionContext = revertPreviousContext();
-        return null;
-    }
-
-    private Expression evaluateReturnValue(Expression toReturn, FunctionDefinition currentFun, NotValue notFlag) {
-        if (toReturn != null) {
-            toReturn.setNotFlag(notFlag);
-            toReturn = evaluateExpression(toReturn);
-            if (toReturn.getType() != currentFun.getType())
-                throw new IncorrectReturnTypeException(currentFun.getName(), toReturn.getType(), currentFun.getType());
-        }
-        return toReturn;
-    }
-
-    private Expression tryExecutePredefinedFunction(String identifier, List<Expression> arguments) {
-        switch (identifier) {
-            case "to_int" -> {
-                return executeToInt(identifier, arguments);
-            }
-            case "to_float" -> {
-                return executeToFloat(identifier, arguments);
-            }
-            case "to_string" -> {
-                return executeToString(identifier, arguments);
-            }
-            case "to_bool" -> {
-                return executeToBool(identifier, arguments);
-            }
-            case "print" -> {
-                if (arguments.size() != 1) throw new IncorrectParameterAmountException(identifier, arguments.size(), 1);
-
-                Expression toPrint = evaluateExpression(arguments.get(0));
-                if (toPrint.getType() != TypeSpecifier.STRING) throw new MismatchedTypesException(identifier, TypeSpecifier.STRING, toPrint.getType());
-
-                System.out.println(toPrint.value().getValue());
-                if (debug != null) debug.write((String) toPrint.value().getValue());
-
-                return new Expression(null, TypeSpecifier.STRING, (String) toPrint.value().getValue());
-            }
-            case "input" -> {
-                if (!arguments.isEmpty()) throw new IncorrectParameterAmountException(identifier, arguments.size(), 0);
-                Scanner scanner = new Scanner(System.in);
-
-                return new Expression(null, TypeSpecifier.STRING, scanner.nextLine());
-            }
-            default -> {
-                return null;
+                else return true;
             }
         }
+        return false;
     }
 
-    private Expression executeToInt(String identifier, List<Expression> arguments) {
-        if (arguments.size() != 1) throw new IncorrectParameterAmountException(identifier, arguments.size(), 1);
+    private void evaluateReturnValue(FunctionDefinition currentFun, NotValue notFlag) {
+        TypeSpecifier returnedType = frames.peekType();
 
-        Expression evaluatedValue = evaluateExpression(arguments.get(0));
-        switch (evaluatedValue.getType()) {
-            case INT -> {
-                return evaluatedValue;
-            }
-            case FLOAT -> {
-                Float value = (Float) evaluatedValue.value().getValue();
-                return new Expression(null, TypeSpecifier.INT, Math.round(value));
-            }
-            case BOOL -> {
-                Boolean value = (Boolean) evaluatedValue.value().getValue();
-                if (Boolean.TRUE.equals(value)) return new Expression(null, TypeSpecifier.INT, 1);
-                else return new Expression(null, TypeSpecifier.INT, 0);
-            }
-            case STRING -> {
-                String toParse = (String) evaluatedValue.value().getValue();
-                int parsedInt;
-
-                try {
-                    parsedInt = Integer.parseInt(toParse);
-                } catch (NumberFormatException e) {
-                    throw new NumberFormatException();
-                }
-
-                return new Expression(null, TypeSpecifier.INT, parsedInt);
-            }
-            default -> throw new TypeException(new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.FLOAT, TypeSpecifier.BOOL, TypeSpecifier.STRING}, evaluatedValue.getType(), identifier);
+        if (returnedType != null) {
+            if (!currentFun.isReturnTypeChecked() && returnedType != currentFun.getType())
+                throw new IncorrectReturnTypeException(currentFun.getName(), returnedType, currentFun.getType());
+            Operations.negateReturnedValue(frames, returnedType, notFlag);
         }
     }
 
-    private Expression executeToFloat(String identifier, List<Expression> arguments) {
-        if (arguments.size() != 1) throw new IncorrectParameterAmountException(identifier, arguments.size(), 1);
-
-        Expression evaluatedValue = evaluateExpression(arguments.get(0));
-        switch (evaluatedValue.getType()) {
-            case INT -> {
-                Integer value = (Integer) evaluatedValue.value().getValue();
-                return new Expression(null, TypeSpecifier.FLOAT, value.floatValue());
-            }
-            case FLOAT -> {
-                return evaluatedValue;
-            }
-            default -> throw new TypeException(new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.FLOAT}, evaluatedValue.getType(), identifier);
+    private void executePredefinedFunction(Builtin builtin, List<Expression> arguments) {
+        if (arguments.size() != builtin.getParameterCount()) throw new IncorrectParameterAmountException(builtin.getName(), arguments.size(), builtin.getParameterCount());
+        for (Expression argument : arguments) {
+            evaluateExpression(argument);
         }
-    }
-
-    private Expression executeToString(String identifier, List<Expression> arguments) {
-        if (arguments.size() != 1) throw new IncorrectParameterAmountException(identifier, arguments.size(), 1);
 
-        Expression evaluatedValue = evaluateExpression(arguments.get(0));
-        switch (evaluatedValue.getType()) {
-            case INT -> {
-                Integer value = (Integer) evaluatedValue.value().getValue();
-                return new Expression(null, TypeSpecifier.STRING, value.toString());
-            }
-            case FLOAT -> {
-                Float value = (Float) evaluatedValue.value().getValue();
-                return new Expression(null, TypeSpecifier.STRING, value.toString());
-            }
-            case BOOL -> {
-                Boolean value = (Boolean) evaluatedValue.value().getValue();
-                return new Expression(null, TypeSpecifier.STRING, value.toString());
-            }
-            case STRING -> {
-                return evaluatedValue;
-            }
-            default -> throw new TypeException(new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.FLOAT, TypeSpecifier.BOOL, TypeSpecifier.STRING}, evaluatedValue.getType(), identifier);
-        }
+        builtin.execute(frames, debug);
     }
 
-    private Expression executeToBool(String identifier, List<Expression> arguments) {
-        if (arguments.size() != 1) throw new IncorrectParameterAmountException(identifier, arguments.size(), 1);
-
-        Expression evaluatedValue = evaluateExpression(arguments.get(0));
-        switch (evaluatedValue.getType()) {
-            case INT -> {
-                Integer value = (Integer) evaluatedValue.value().getValue();
-                if (value == 0) return new Expression(null, TypeSpecifier.BOOL, false);
-                else return new Expression(null, TypeSpecifier.BOOL, true);
-            }
-            case BOOL -> {
-                return evaluatedValue;
-            }
-            case STRING -> {
-                String value = (String) evaluatedValue.value().getValue();
-                return new Expression(null, TypeSpecifier.BOOL, Boolean.valueOf(value));
-            }
-            default -> throw new TypeException(new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.BOOL, TypeSpecifier.STRING}, evaluatedValue.getType(), identifier);
-        }
-    }
-
-    private JumpStatement executeIfElseStatement(IfElseStatement ifElseStatement) {
-        currentFunctionContext = createInnerContext();
-
+    @Override
+    public JumpStatement visitIfElseStatement(IfElseStatement ifElseStatement) {
         // IF
         IfBlock ifBlock = ifElseStatement.getIfStatements();
-        if (Boolean.TRUE.equals(testCondition(ifBlock.getCondition()))) return executeInstructionBlock(ifBlock.getStatements());
+        if (testCondition(ifBlock.getCondition())) {
+            branchTaken(ifElseStatement, 0);
+            return executeInstructionBlock(ifBlock.getStatements());
+        }
 
         // ELSE-IF
+        int branch = 1;
         for (IfBlock elifBlock : ifElseStatement.getElifStatements()) {
-            if (Boolean.TRUE.equals(testCondition(elifBlock.getCondition()))) return executeInstructionBlock(elifBlock.getStatements());
+            if (testCondition(elifBlock.getCondition())) {
+                branchTaken(ifElseStatement, branch);
+                return executeInstructionBlock(elifBlock.getStatements());
+            }
+            branch++;
         }
 
         // ELSE
+        branchTaken(ifElseStatement, branch);
         IfBlock elseBlock = ifElseStatement.getElseStatements();
+        if (elseBlock == null) return null;
         return executeInstructionBlock(elseBlock.getStatements());
     }
 
+    // branches are recorded for tracing hot loops
+    private void branchTaken(IfElseStatement ifElseStatement, int branch) {
+        if (tiers != null) tiers.branchTaken(ifElseStatement, branch);
+    }
+
     private JumpStatement executeInstructionBlock(List<Statement> instructions) {
+        // variables defined in the block are dropped when leaving it
+        int scopeMarker = frames.enterScope();
+
         for (Statement statement : instructions) {
             JumpStatement executionResult = executeStatement(statement);
             if (executionResult != null) {
-                currentFunctionContext = revertFromInnerContext();
+                frames.leaveScope(scopeMarker);
                 return executionResult;
             }
         }
-        currentFunctionContext = revertFromInnerContext();
+        frames.leaveScope(scopeMarker);
         return null;
     }
 
-    private JumpStatement executeWhileStatement(WhileStatement whileStatement) {
-        currentFunctionContext = createInnerContext();
+    @Override
+    public JumpStatement visitWhileStatement(WhileStatement whileStatement) {
+        JumpStatement executionResult = executeLoop(whileStatement);
+        if (tiers != null) tiers.loopExited(whileStatement);
+        return executionResult;
+    }
 
-        while (Boolean.TRUE.equals(testCondition(whileStatement.getCondition()))) {
-            for (Statement statement : whileStatement.getStatements()) {
-                JumpStatement executionResult = executeStatement(statement);
-                if (executionResult != null) {
-                     if (executionResult.getType() == JumpType.RETURN) {
-                        currentFunctionContext = revertFromInnerContext();
-                        return executionResult;
-                    } else if (executionResult.getType() == JumpType.BREAK) {
-                        currentFunctionContext = revertFromInnerContext();
-                        return null;
-                    } else break;
-                }
+    private JumpStatement executeLoop(WhileStatement whileStatement) {
+        while (testCondition(whileStatement.getCondition())) {
+            JumpStatement executionResult = executeInstructionBlock(whileStatement.getStatements());
+            if (executionResult != null) {
+                if (executionResult.getType() == JumpType.RETURN) return executionResult;
+                else if (executionResult.getType() == JumpType.BREAK) return null;
+            }
+
+            // hot loop continues in compiled code, which takes over the frame as this iteration left it
+            if (tiers != null) {
+                CompiledLoop compiledLoop = tiers.loopIteration(executedFunction, whileStatement);
+                if (compiledLoop != null) return (compiledLoop.run(frames) == JumpType.RETURN) ? COMPILED_RETURN : null;
             }
         }
-        currentFunctionContext = revertFromInnerContext();
         return null;
     }
 
-    private Boolean testCondition(Expression condition) {
-        Expression testedCondition = evaluateExpression(condition);
+    private boolean testCondition(Expression condition) {
+        evaluateExpression(condition);
+        if (condition != null && condition.getStaticType() == TypeSpecifier.BOOL && !condition.mayBeEmpty()) return frames.popBool();
+
+        TypeSpecifier conditionType = frames.peekType();
 
-        if (testedCondition == null) throw new ExpressionResolvingException();
-        if (testedCondition.getType() != TypeSpecifier.BOOL) throw new MismatchedTypesException("condition", TypeSpecifier.BOOL, testedCondition.getType());
+        if (conditionType == null) throw new ExpressionResolvingException();
+        if (conditionType != TypeSpecifier.BOOL) throw new MismatchedTypesException("condition", TypeSpecifier.BOOL, conditionType);
 
-        return (Boolean) testedCondition.value().getValue();
+        return frames.popBool();
     }
 
-    private JumpStatement executeExistStatement(ExistStatement statement) {
-        currentFunctionContext = createInnerContext();
+    @Override
+    public JumpStatement visitExistStatement(ExistStatement statement) {
+        evaluateExpression(statement.getExistValue());
+        boolean exists = frames.peekType() != null;
+        frames.pop();
 
-        if (evaluateExpression(statement.getExistValue()) != null) return executeInstructionBlock(statement.getExistStatements());
+        if (exists) return executeInstructionBlock(statement.getExistStatements());
         else return executeInstructionBlock(statement.getElseStatements());
     }
 
-    private JumpStatement executePatternMatchingStatement(PatternMatchingStatement statement) {
-        currentFunctionContext = createInnerContext();
+    @Override
+    public JumpStatement visitPatternMatchingStatement(PatternMatchingStatement statement) {
+        // matched value lives in its own scope, visible to all the cases
+        int scopeMarker = frames.enterScope();
 
-        Expression toMatch = evaluateExpression(statement.getToMatch());
-        if (toMatch == null) throw new ExpressionResolvingException();
-
-        currentFunctionContext.addVariable(new VariableDefinition(false, false, "var", toMatch.getType(), toMatch));
+        evaluateExpression(statement.getToMatch());
+        if (frames.peekType() == null) throw new ExpressionResolvingException();
+        frames.define(statement.getMatchedBinding().getIndex());
 
         for (MatchCaseStatement caseStatement : statement.getCases()) {
-            if (Boolean.TRUE.equals(testCondition(caseStatement.getCondition()))) {
-                currentFunctionContext = createInnerContext();
+            if (testCondition(caseStatement.getCondition())) {
                 JumpStatement returnable = executeInstructionBlock(caseStatement.getStatements());
                 if (returnable != null) {
-                    currentFunctionContext = revertFromInnerContext();
+                    frames.leaveScope(scopeMarker);
                     return returnable;
                 }
             }
         }
 
-        currentFunctionContext = revertFromInnerContext();
+        frames.leaveScope(scopeMarker);
         return null;
     }
-
-    private Context createInnerContext() {
-        previousFunctionContexts.add(currentFunctionContext);
-        return new Context(currentFunctionContext.getAllScopeVariables());
-    }
-
-    private Context revertFromInnerContext() {
-        Context previousContext = previousFunctionContexts.get(previousFunctionContexts.size()-1);
-        previousContext.updateVariables(currentFunctionContext.getAllScopeVariables());
-        previousFunctionContexts.remove(previousFunctionContexts.size()-1);
-
-        return previousContext;
-    }
-
-    private Context revertPreviousContext() {
-        Context previousContext = previousFunctionContexts.get(previousFunctionContexts.size()-1);
-        previousFunctionContexts.remove(previousFunctionContexts.size()-1);
-
-        return previousContext;
-    }
-
-    private FunctionDefinition findFunction(String name) {
-        for (FunctionDefinition tmp : functions) {
-            if (Objects.equals(tmp.getName(), name)) return tmp;
-        }
-        throw new FunctionNotDeclaredException(name);
-    }
-
-    private VariableDefinition findGlobalVar(String identifier) {
-        for (VariableDefinition tmp : globalVariables) {
-            if (Objects.equals(tmp.getIdentifier(), identifier)) return tmp;
-        }
-        return null;
-    }
-
-    private Expression setGlobalVariableValue(String identifier, Expression newValue) {
-        for (VariableDefinition globalVariable : globalVariables) {
-            if (Objects.equals(globalVariable.getIdentifier(), identifier)) {
-                globalVariable.setValue(newValue);
-                return newValue;
-            }
-        }
-        throw new VariableNotDeclaredException(identifier);
-    }
-
-    private void validate() {
-        validateFunctions(functions);
-        validateGlobalVariables(globalVariables);
-    }
-
-    private void validateGlobalVariables(List<VariableDefinition> variables) {
-        for (int i = 0; i < variables.size(); i++) {
-            for (int j = i+1; j < variables.size(); j++) {
-                if (Objects.equals(variables.get(i).getIdentifier(), variables.get(j).getIdentifier())) {
-                    throw new VariableAlreadyDefinedException(variables.get(i).getIdentifier());
-                }
-            }
-        }
-    }
-
-    private void validateFunctions(List<FunctionDefinition> functions) {
-        for (int i = 0; i < functions.size(); i++) {
-            if (Boolean.TRUE.equals(restrictedName(functions.get(i).getName()))) {
-                throw new FunctionAlreadyDefinedException(functions.get(i).getName());
-            }
-            for (int j = i+1; j < functions.size(); j++) {
-                if (Objects.equals(functions.get(i).getName(), functions.get(j).getName())) {
-                    throw new FunctionAlreadyDefinedException(functions.get(i).getName());
-                }
-            }
-        }
-    }
-
-    private Boolean restrictedName(String name) {
-        return (Objects.equals(name, "print")) ||
-                (Objects.equals(name, "input")) ||
-                (Objects.equals(name, "to_int")) ||
-                (Objects.equals(name, "to_float")) ||
-                (Objects.equals(name, "to_string")) ||
-                (Objects.equals(name, "to_bool"));
-    }
 }
@@ -0,0 +1,244 @@
+package tkom.project;
+
+import tkom.project.exceptions.*;
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.*;
+import tkom.project.runtime.Builtin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+public class Resolver {
+    private final Program program;
+
+    private final HashMap<String, Binding> globalBindings = new HashMap<>();
+    private final HashMap<String, FunctionDefinition> functionsByName = new HashMap<>();
+    private final ArrayList<HashMap<String, Binding>> scopes = new ArrayList<>();
+
+    private int nextSlot;
+    private int frameSize;
+
+    public Resolver(Program program) {
+        this.program = program;
+    }
+
+    public void resolve() {     // Binds every variable use to a global index or a slot in the function frame, and every call to its function
+        validate();
+        globalBindings.clear();
+        functionsByName.clear();
+        for (FunctionDefinition function : program.getFunctions()) {
+            functionsByName.put(function.getName(), function);
+        }
+
+        List<VariableDefinition> globals = program.getVariables();
+        for (int i = 0; i < globals.size(); i++) {
+            VariableDefinition global = globals.get(i);
+
+            // global initializer can only see globals defined before it
+            resolveExpression(global.getValue());
+
+            Binding binding = new Binding(
+                    global.getIdentifier(),
+                    global.getType(),
+                    Boolean.TRUE.equals(global.getMutable()),
+                    Boolean.TRUE.equals(global.getOptional()),
+                    true,
+                    i
+            );
+            global.setBinding(binding);
+            globalBindings.put(global.getIdentifier(), binding);
+        }
+
+        for (FunctionDefinition function : program.getFunctions()) {
+            resolveFunction(function);
+        }
+    }
+
+    public FunctionDefinition findMain() {
+        for (FunctionDefinition function : program.getFunctions()) {
+            if (Objects.equals(function.getName(), "main")) {
+                // Check if main structure is correct
+                if (function.getType() != TypeSpecifier.VOID) throw new IncorrectReturnTypeException(function.getName(), function.getType(), TypeSpecifier.VOID);
+                if (!function.getParameters().isEmpty()) throw new IncorrectParameterAmountException(function.getName(), function.getParameters().size(), 0);
+                return function;
+            }
+        }
+        throw new FunctionNotDeclaredException("main");
+    }
+
+    // Parameters are checked when the function is called, so the engines report it at the call
+    public static void checkParameters(List<Parameter> parameters, String funName) {
+        for (int i = 0; i < parameters.size()-1; i++) {
+            for (int j = i+1; j < parameters.size()-1; j++) {
+                if (Objects.equals(parameters.get(i).getIdentifier(), parameters.get(j).getIdentifier())) {
+                    throw new ParameterAlreadyDeclaredException(parameters.get(i).getIdentifier(), funName);
+                }
+            }
+        }
+    }
+
+    private void resolveFunction(FunctionDefinition function) {
+        scopes.clear();
+        nextSlot = 0;
+        frameSize = 0;
+
+        // parameters take the first slots of the frame, in declaration order
+        scopes.add(new HashMap<>());
+        for (Parameter parameter : function.getParameters()) {
+            if (globalBindings.containsKey(parameter.getIdentifier())) throw new VariableAlreadyDefinedException(parameter.getIdentifier());
+            parameter.setBinding(declare(parameter.getIdentifier(), parameter.getType(), parameter.isMutable(), parameter.isOptional()));
+        }
+
+        resolveInstructionBlock(function.getStatements());
+        scopes.clear();
+
+        function.setFrameSize(frameSize);
+    }
+
+    private void resolveInstructionBlock(List<Statement> statements) {
+        if (statements == null) return;
+
+        // slots of a block are reused by the blocks following it
+        int blockStart = nextSlot;
+        scopes.add(new HashMap<>());
+
+        for (Statement statement : statements) {
+            resolveStatement(statement);
+        }
+
+        scopes.remove(scopes.size()-1);
+        nextSlot = blockStart;
+    }
+
+    private void resolveStatement(Statement statement) {
+        if (statement instanceof VariableDefinition varDef) resolveVariableDefinition(varDef);
+        else if (statement instanceof Expression expression) resolveExpression(expression);
+        else if (statement instanceof IfElseStatement ifElse) resolveIfElseStatement(ifElse);
+        else if (statement instanceof WhileStatement whileStatement) {
+            resolveExpression(whileStatement.getCondition());
+            resolveInstructionBlock(whileStatement.getStatements());
+        }
+        else if (statement instanceof ExistStatement exist) {
+            resolveExpression(exist.getExistValue());
+            resolveInstructionBlock(exist.getExistStatements());
+            resolveInstructionBlock(exist.getElseStatements());
+        }
+        else if (statement instanceof PatternMatchingStatement match) resolvePatternMatchingStatement(match);
+        else if (statement instanceof JumpStatement jump) resolveExpression(jump.getRetExpr());
+    }
+
+    private void resolveVariableDefinition(VariableDefinition varDef) {
+        // the assigned value is resolved before the variable becomes visible
+        resolveExpression(varDef.getValue());
+
+        String identifier = varDef.getIdentifier();
+        if (globalBindings.containsKey(identifier) || (findLocal(identifier) != null) || Objects.equals(identifier, "var")) {
+            throw new VariableAlreadyDefinedException(identifier);
+        }
+
+        varDef.setBinding(declare(identifier, varDef.getType(), Boolean.TRUE.equals(varDef.getMutable()), Boolean.TRUE.equals(varDef.getOptional())));
+    }
+
+    private void resolveIfElseStatement(IfElseStatement statement) {
+        resolveExpression(statement.getIfStatements().getCondition());
+        resolveInstructionBlock(statement.getIfStatements().getStatements());
+
+        for (IfBlock elifBlock : statement.getElifStatements()) {
+            resolveExpression(elifBlock.getCondition());
+            resolveInstructionBlock(elifBlock.getStatements());
+        }
+
+        if (statement.getElseStatements() != null) resolveInstructionBlock(statement.getElseStatements().getStatements());
+    }
+
+    private void resolvePatternMatchingStatement(PatternMatchingStatement statement) {
+        resolveExpression(statement.getToMatch());
+
+        // matched value is visible as "var" in all the cases
+        int matchStart = nextSlot;
+        scopes.add(new HashMap<>());
+        statement.setMatchedBinding(declare("var", TypeSpecifier.UNKNOWN, false, false));
+
+        for (MatchCaseStatement caseStatement : statement.getCases()) {
+            resolveExpression(caseStatement.getCondition());
+            resolveInstructionBlock(caseStatement.getStatements());
+        }
+
+        scopes.remove(scopes.size()-1);
+        nextSlot = matchStart;
+    }
+
+    private void resolveExpression(Expression expression) {
+        if (expression == null) return;
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            resolveExpression(operatorExpression.getLeftExpr());
+            resolveExpression(operatorExpression.getRightExpr());
+        } else if (expression instanceof FuncCallStatement funcCall) {
+            // calls to not declared functions stay unlinked and are reported once executed
+            Builtin builtin = Builtin.find(funcCall.getIdentifier());
+            funcCall.link(builtin, (builtin == null) ? functionsByName.get(funcCall.getIdentifier()) : null);
+
+            for (Expression argument : funcCall.getArguments()) {
+                resolveExpression(argument);
+            }
+        } else if (expression.getIdentifier() != null) {
+            // not declared variables stay unbound and are reported once evaluated
+            Binding binding = findLocal(expression.getIdentifier());
+            if (binding == null) binding = globalBindings.get(expression.getIdentifier());
+            expression.setBinding(binding);
+        }
+    }
+
+    private Binding declare(String identifier, TypeSpecifier type, boolean mutable, boolean optional) {
+        Binding binding = new Binding(identifier, type, mutable, optional, false, nextSlot++);
+        frameSize = Math.max(frameSize, nextSlot);
+
+        scopes.get(scopes.size()-1).put(identifier, binding);
+        return binding;
+    }
+
+    private Binding findLocal(String identifier) {
+        for (int i = scopes.size()-1; i >= 0; i--) {
+            Binding binding = scopes.get(i).get(identifier);
+            if (binding != null) return binding;
+        }
+        return null;
+    }
+
+    private void validate() {
+        validateFunctions(program.getFunctions());
+        validateGlobalVariables(program.getVariables());
+    }
+
+    private void validateGlobalVariables(List<VariableDefinition> variables) {
+        for (int i = 0; i < variables.size(); i++) {
+            for (int j = i+1; j < variables.size(); j++) {
+                if (Objects.equals(variables.get(i).getIdentifier(), variables.get(j).getIdentifier())) {
+                    throw new VariableAlreadyDefinedException(variables.get(i).getIdentifier());
+                }
+            }
+        }
+    }
+
+    private void validateFunctions(List<FunctionDefinition> functions) {
+        for (int i = 0; i < functions.size(); i++) {
+            if (Boolean.TRUE.equals(restrictedName(functions.get(i).getName()))) {
+                throw new FunctionAlreadyDefinedException(functions.get(i).getName());
+            }
+            for (int j = i+1; j < functions.size(); j++) {
+                if (Objects.equals(functions.get(i).getName(), functions.get(j).getName())) {
+                    throw new FunctionAlreadyDefinedException(functions.get(i).getName());
+                }
+            }
+        }
+    }
+
+    private Boolean restrictedName(String name) {
+        return Builtin.find(name) != null;
+    }
+}
@@ -0,0 +1,125 @@
+package tkom.project;
+
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.*;
+import tkom.project.runtime.Specializations;
+import tkom.project.runtime.StaticTypes;
+
+import java.util.List;
+
+// Annotates every expression with the type StaticTypes proves for it, so Interpreter leaves out the checks it always passes
+// Type errors are still reported when the code making them is executed, as values which are never computed don't fail
+public class TypeChecker {
+    private final Program program;
+    private final StaticTypes types;
+
+    private FunctionDefinition checkedFunction;
+    private boolean returnTypeChecked;
+
+    public TypeChecker(Program program) {
+        this.program = program;
+        this.types = new StaticTypes(program);
+    }
+
+    public void check() {       // Types of variables come from their bindings, so it runs after Resolver
+        types.analyze();
+
+        for (VariableDefinition global : program.getVariables()) {
+            checkExpression(global.getValue());
+        }
+        for (FunctionDefinition function : program.getFunctions()) {
+            checkedFunction = function;
+            returnTypeChecked = true;
+
+            checkStatements(function.getStatements());
+            function.setReturnTypeChecked(returnTypeChecked);
+        }
+    }
+
+    private void checkStatements(List<Statement> statements) {
+        if (statements == null) return;
+
+        for (Statement statement : statements) {
+            checkStatement(statement);
+        }
+    }
+
+    private void checkStatement(Statement statement) {
+        if (statement instanceof VariableDefinition varDef) checkExpression(varDef.getValue());
+        else if (statement instanceof Expression expression) checkExpression(expression);
+        else if (statement instanceof IfElseStatement ifElse) {
+            checkExpression(ifElse.getIfStatements().getCondition());
+            checkStatements(ifElse.getIfStatements().getStatements());
+            for (IfBlock elifBlock : ifElse.getElifStatements()) {
+                checkExpression(elifBlock.getCondition());
+                checkStatements(elifBlock.getStatements());
+            }
+            if (ifElse.getElseStatements() != null) checkStatements(ifElse.getElseStatements().getStatements());
+        }
+        else if (statement instanceof WhileStatement whileStatement) {
+            checkExpression(whileStatement.getCondition());
+            checkStatements(whileStatement.getStatements());
+        }
+        else if (statement instanceof ExistStatement exist) {
+            checkExpression(exist.getExistValue());
+            checkStatements(exist.getExistStatements());
+            checkStatements(exist.getElseStatements());
+        }
+        else if (statement instanceof PatternMatchingStatement match) {
+            checkExpression(match.getToMatch());
+            for (MatchCaseStatement caseStatement : match.getCases()) {
+                checkExpression(caseStatement.getCondition());
+                checkStatements(caseStatement.getStatements());
+            }
+        }
+        else if (statement instanceof JumpStatement jump) {
+            checkExpression(jump.getRetExpr());
+
+            // empty returned value isn't checked, any other has to be of the function type
+            Expression returned = jump.getRetExpr();
+            if (jump.getType() == JumpType.RETURN && returned != null && returned.getStaticType() != checkedFunction.getType()) returnTypeChecked = false;
+        }
+    }
+
+    private void checkExpression(Expression expression) {
+        if (expression == null) return;
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            checkExpression(operatorExpression.getLeftExpr());
+            checkExpression(operatorExpression.getRightExpr());
+        } else if (expression instanceof FuncCallStatement funcCall) {
+            for (Expression argument : funcCall.getArguments()) {
+                checkExpression(argument);
+            }
+        }
+        expression.setStaticType(types.typeOf(expression), mayBeEmpty(expression));
+
+        if (expression instanceof OperatorExpression operatorExpression) specializeOperator(operatorExpression);
+    }
+
+    // function can read a global before its definition was executed, when it's called by an earlier global's initializer
+    private boolean mayBeEmpty(Expression expression) {
+        if (types.mayBeEmpty(expression)) return true;
+
+        Binding binding = expression.getBinding();
+        return binding != null && binding.isGlobal() && binding.isOptional();
+    }
+
+    // operator which always gets values of one type runs its typed version from the first evaluation
+    // logical operators evaluate their operands on their own, so they don't use specializations
+    private void specializeOperator(OperatorExpression expression) {
+        Operator op = expression.getOperator();
+        if (op == Operator.ASSIGN || op == Operator.AND || op == Operator.OR) return;
+
+        Expression left = expression.getLeftExpr();
+        Expression right = expression.getRightExpr();
+        if (left == null || right == null || left.mayBeEmpty() || right.mayBeEmpty()) return;
+
+        TypeSpecifier type = left.getStaticType();
+        if (type == null || type != right.getStaticType() || StaticTypes.resultType(op, type, expression.getNotFlag()) == null) return;
+
+        expression.setSpecialization(Specializations.typedOperator(op, type, expression.getNotFlag()));
+    }
+}
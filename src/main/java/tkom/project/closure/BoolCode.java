@@ -0,0 +1,9 @@
+package tkom.project.closure;
+
+import tkom.project.scope.FrameStack;
+
+// Expression of bool type which always has a value, computed as plain Java value
+@FunctionalInterface
+public interface BoolCode {
+    boolean run(FrameStack frames);
+}
@@ -0,0 +1,1071 @@
+package tkom.project.closure;
+
+import tkom.project.Resolver;
+import tkom.project.exceptions.*;
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.*;
+import tkom.project.runtime.Builtin;
+import tkom.project.runtime.Operations;
+import tkom.project.runtime.StaticTypes;
+import tkom.project.scope.FrameStack;
+import tkom.project.scope.Reader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+// Turns every node into a closure once, executing them repeats what Interpreter does without looking at the nodes again
+// Expressions of known type become typed closures computing Java values, the others use the frame stack like Interpreter
+public class ClosureCompiler implements StatementVisitor<StatementCode>, ExpressionVisitor<ValueCode> {
+    private final Program program;
+    private final StaticTypes types;
+    private final Reader debug;
+    private final HashMap<String, ClosureFunction> functions = new HashMap<>();
+
+    // function whose body is compiled, its return can make tail calls, null for main and code outside of functions
+    private ClosureFunction compiledFunction;
+
+    public ClosureCompiler(Program program, Reader debug) {
+        this.program = program;
+        this.types = new StaticTypes(program);
+        this.debug = debug;
+    }
+
+    // Returns the compiled main function
+    public ClosureFunction compile(FunctionDefinition main) {
+        analyzeTypes();
+
+        for (FunctionDefinition function : program.getFunctions()) {
+            functions.put(function.getName(), new ClosureFunction(function.getName(), function.getType(), function.getFrameSize()));
+        }
+        for (FunctionDefinition function : program.getFunctions()) {
+            ClosureFunction compiled = functions.get(function.getName());
+            compiled.setBody(compileBody(compiled, function));
+        }
+        return functions.get(main.getName());
+    }
+
+    public ClosureFunction getFunction(String name) {
+        return functions.get(name);
+    }
+
+    protected void analyzeTypes() {
+        types.analyze();
+    }
+
+    // Function a call is compiled to, subclasses can give it a differently compiled copy
+    protected ClosureFunction callTarget(String name) {
+        return functions.get(name);
+    }
+
+    // main body isn't a called function, as return only ends its statement
+    protected StatementCode[] compileBody(ClosureFunction function, FunctionDefinition definition) {
+        ClosureFunction enclosingFunction = compiledFunction;
+        compiledFunction = Objects.equals(definition.getName(), "main") ? null : function;
+
+        StatementCode[] body = compileStatements(definition.getStatements());
+        compiledFunction = enclosingFunction;
+        return body;
+    }
+
+    public StatementCode[] compileGlobals() {
+        return compileStatements(program.getVariables());
+    }
+
+    // STATEMENTS
+    protected StatementCode[] compileStatements(List<? extends Statement> statements) {
+        if (statements == null) return new StatementCode[0];
+
+        StatementCode[] codes = new StatementCode[statements.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = statements.get(i).accept(this);
+        }
+        return codes;
+    }
+
+    protected StatementCode compileBlock(List<Statement> statements) {
+        StatementCode[] codes = compileStatements(statements);
+
+        // variables defined in the block are dropped when leaving it
+        return frames -> {
+            int scopeMarker = frames.enterScope();
+
+            for (StatementCode statement : codes) {
+                JumpType jump = statement.run(frames);
+                if (jump != null) {
+                    frames.leaveScope(scopeMarker);
+                    return jump;
+                }
+            }
+            frames.leaveScope(scopeMarker);
+            return null;
+        };
+    }
+
+    @Override
+    public StatementCode visitVariableDefinition(VariableDefinition statement) {
+        ValueCode value = compileValue(statement.getValue());
+        if (types.typeOf(statement.getValue()) != statement.getType()) value = checkDefinition(value, statement);
+
+        // globals are defined before main frame is entered, so their index is also their slot
+        ValueCode definedValue = value;
+        int slot = statement.getBinding().getIndex();
+        if (statement.getBinding().isGlobal()) {
+            return frames -> {
+                definedValue.run(frames);
+                frames.defineGlobal(slot);
+                return null;
+            };
+        }
+        return frames -> {
+            definedValue.run(frames);
+            frames.define(slot);
+            return null;
+        };
+    }
+
+    private ValueCode checkDefinition(ValueCode value, VariableDefinition varDef) {
+        return frames -> {
+            value.run(frames);
+
+            TypeSpecifier resolvedType = frames.peekType();
+            if ((resolvedType != null) && (resolvedType != varDef.getType())) {
+                throw new MismatchedTypesException(varDef.getIdentifier(), varDef.getType(), resolvedType);
+            }
+        };
+    }
+
+    @Override
+    public StatementCode visitExpressionStatement(Expression statement) {
+        // value of expression used as a statement is dropped
+        if (hasTypedForm(statement)) {
+            switch (types.typeOf(statement)) {
+                case INT -> {
+                    IntCode code = compileInt(statement);
+                    return frames -> {
+                        code.run(frames);
+                        return null;
+                    };
+                }
+                case FLOAT -> {
+                    FloatCode code = compileFloat(statement);
+                    return frames -> {
+                        code.run(frames);
+                        return null;
+                    };
+                }
+                case BOOL -> {
+                    BoolCode code = compileBool(statement);
+                    return frames -> {
+                        code.run(frames);
+                        return null;
+                    };
+                }
+                default -> {
+                    StringCode code = compileString(statement);
+                    return frames -> {
+                        code.run(frames);
+                        return null;
+                    };
+                }
+            }
+        }
+
+        ValueCode code = compileGeneric(statement);
+        return frames -> {
+            code.run(frames);
+            frames.pop();
+            return null;
+        };
+    }
+
+    @Override
+    public StatementCode visitIfElseStatement(IfElseStatement statement) {
+        ArrayList<IfBlock> conditionalBlocks = new ArrayList<>();
+        conditionalBlocks.add(statement.getIfStatements());
+        conditionalBlocks.addAll(statement.getElifStatements());
+
+        BoolCode[] conditions = new BoolCode[conditionalBlocks.size()];
+        StatementCode[] blocks = new StatementCode[conditionalBlocks.size()];
+        for (int i = 0; i < conditions.length; i++) {
+            conditions[i] = compileCondition(conditionalBlocks.get(i).getCondition());
+            blocks[i] = compileBlock(conditionalBlocks.get(i).getStatements());
+        }
+
+        StatementCode elseBlock = (statement.getElseStatements() == null) ? null : compileBlock(statement.getElseStatements().getStatements());
+        return frames -> {
+            for (int i = 0; i < conditions.length; i++) {
+                if (conditions[i].run(frames)) return blocks[i].run(frames);
+            }
+
+            if (elseBlock == null) return null;
+            return elseBlock.run(frames);
+        };
+    }
+
+    @Override
+    public StatementCode visitWhileStatement(WhileStatement statement) {
+        BoolCode condition = compileCondition(statement.getCondition());
+        StatementCode body = compileBlock(statement.getStatements());
+
+        return frames -> {
+            while (condition.run(frames)) {
+                JumpType jump = body.run(frames);
+                if (jump == JumpType.RETURN) return jump;
+                else if (jump == JumpType.BREAK) return null;
+            }
+            return null;
+        };
+    }
+
+    protected BoolCode compileCondition(Expression condition) {
+        if (hasTypedForm(condition) && types.typeOf(condition) == TypeSpecifier.BOOL) return compileBool(condition);
+
+        ValueCode value = compileGeneric(condition);
+        return frames -> {
+            value.run(frames);
+            TypeSpecifier conditionType = frames.peekType();
+
+            if (conditionType == null) throw new ExpressionResolvingException();
+            if (conditionType != TypeSpecifier.BOOL) throw new MismatchedTypesException("condition", TypeSpecifier.BOOL, conditionType);
+
+            return frames.popBool();
+        };
+    }
+
+    @Override
+    public StatementCode visitExistStatement(ExistStatement statement) {
+        ValueCode value = compileValue(statement.getExistValue());
+        StatementCode existBlock = compileBlock(statement.getExistStatements());
+        StatementCode elseBlock = compileBlock(statement.getElseStatements());
+
+        return frames -> {
+            value.run(frames);
+            boolean exists = frames.peekType() != null;
+            frames.pop();
+
+            if (exists) return existBlock.run(frames);
+            else return elseBlock.run(frames);
+        };
+    }
+
+    @Override
+    public StatementCode visitPatternMatchingStatement(PatternMatchingStatement statement) {
+        ValueCode toMatch = compileValue(statement.getToMatch());
+        int slot = statement.getMatchedBinding().getIndex();
+
+        List<MatchCaseStatement> cases = statement.getCases();
+        BoolCode[] conditions = new BoolCode[cases.size()];
+        StatementCode[] blocks = new StatementCode[cases.size()];
+        for (int i = 0; i < conditions.length; i++) {
+            conditions[i] = compileCondition(cases.get(i).getCondition());
+            blocks[i] = compileBlock(cases.get(i).getStatements());
+        }
+
+        // matched value lives in its own scope, visible to all the cases, every matching case is executed
+        return frames -> {
+            int scopeMarker = frames.enterScope();
+
+            toMatch.run(frames);
+            if (frames.peekType() == null) throw new ExpressionResolvingException();
+            frames.define(slot);
+
+            for (int i = 0; i < conditions.length; i++) {
+                if (conditions[i].run(frames)) {
+                    JumpType jump = blocks[i].run(frames);
+                    if (jump != null) {
+                        frames.leaveScope(scopeMarker);
+                        return jump;
+                    }
+                }
+            }
+
+            frames.leaveScope(scopeMarker);
+            return null;
+        };
+    }
+
+    @Override
+    public StatementCode visitJumpStatement(JumpStatement statement) {
+        JumpType type = statement.getType();
+        if (type != JumpType.RETURN) return frames -> type;
+
+        if (statement.getRetExpr() instanceof FuncCallStatement call && isTailCall(call)) return compileTailCall(call);
+
+        // returned value has to be evaluated before leaving the scopes of variables it uses
+        ValueCode value = compileValue(statement.getRetExpr());
+        return frames -> {
+            value.run(frames);
+            frames.saveReturnedValue();
+            return JumpType.RETURN;
+        };
+    }
+
+    // Call whose value is returned as it is continues in the frame of the returning function, instead of nesting in it
+    // returned value is then checked only once, so the called function has to return the same type
+    private boolean isTailCall(FuncCallStatement call) {
+        if (compiledFunction == null || call.getNotFlag() != null || Builtin.find(call.getIdentifier()) != null) return false;
+
+        FunctionDefinition called = findFunction(call.getIdentifier());
+        return called != null && called.getType() == compiledFunction.getType() && failingCall(call, called) == null;
+    }
+
+    private StatementCode compileTailCall(FuncCallStatement call) {
+        ClosureFunction caller = compiledFunction;
+        ClosureFunction function = callTarget(call.getIdentifier());
+        ValueCode[] argumentCodes = compileArguments(call, findFunction(call.getIdentifier()));
+
+        return frames -> {
+            for (ValueCode argument : argumentCodes) {
+                argument.run(frames);
+            }
+
+            // compiled function doesn't use the frame, its value is returned right away
+            ValueCode compiled = function.getCompiled();
+            if (compiled != null) {
+                compiled.run(frames);
+                frames.saveReturnedValue();
+                return JumpType.RETURN;
+            }
+
+            frames.saveArguments(argumentCodes.length);
+            caller.setTailCall(function);
+            return JumpType.RETURN;
+        };
+    }
+
+    // EXPRESSIONS
+    // Typed closure is made when the value is known to have a type and operands it needs are typed as well
+    private boolean hasTypedForm(Expression expression) {
+        if (expression == null || !typed(expression)) return false;
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN) {
+                Binding binding = operatorExpression.getLeftExpr().getBinding();
+                return operatorExpression.getNotFlag() == null && binding != null && !binding.isGlobal();
+            }
+            return typed(operatorExpression.getLeftExpr()) && typed(operatorExpression.getRightExpr());
+        }
+        return !(expression instanceof FuncCallStatement);
+    }
+
+    private boolean typed(Expression expression) {
+        return types.typeOf(expression) != null && !types.mayBeEmpty(expression);
+    }
+
+    private ValueCode compileValue(Expression expression) {
+        if (!hasTypedForm(expression)) return compileGeneric(expression);
+
+        switch (types.typeOf(expression)) {
+            case INT -> {
+                IntCode code = compileInt(expression);
+                return frames -> frames.pushInt(code.run(frames));
+            }
+            case FLOAT -> {
+                FloatCode code = compileFloat(expression);
+                return frames -> frames.pushFloat(code.run(frames));
+            }
+            case BOOL -> {
+                BoolCode code = compileBool(expression);
+                return frames -> frames.pushBool(code.run(frames));
+            }
+            default -> {
+                StringCode code = compileString(expression);
+                return frames -> frames.pushString(code.run(frames));
+            }
+        }
+    }
+
+    // TYPED EXPRESSIONS, operands are computed right first like in Interpreter
+    private IntCode compileInt(Expression expression) {
+        if (!hasTypedForm(expression)) {
+            ValueCode value = compileGeneric(expression);
+            return frames -> {
+                value.run(frames);
+                return frames.popInt();
+            };
+        }
+
+        IntCode code;
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN) return assignInt(operatorExpression);
+
+            IntCode right = compileInt(operatorExpression.getRightExpr());
+            IntCode left = compileInt(operatorExpression.getLeftExpr());
+            switch (operatorExpression.getOperator()) {
+                case ADD -> code = frames -> {
+                    int rightValue = right.run(frames);
+                    return left.run(frames) + rightValue;
+                };
+                case SUB -> code = frames -> {
+                    int rightValue = right.run(frames);
+                    return left.run(frames) - rightValue;
+                };
+                case MULTI -> {
+                    int shift = powerOfTwo(operatorExpression.getRightExpr());
+                    if (shift > 0) code = frames -> left.run(frames) << shift;
+                    else code = frames -> {
+                        int rightValue = right.run(frames);
+                        return left.run(frames) * rightValue;
+                    };
+                }
+                case MODULO -> {
+                    // remainder keeps the sign of the divided value, so a negative one takes the divisor back
+                    int shift = powerOfTwo(operatorExpression.getRightExpr());
+                    int mask = (1 << shift) - 1;
+                    if (shift > 0) code = frames -> {
+                        int leftValue = left.run(frames);
+                        int remainder = leftValue & mask;
+                        return (leftValue < 0 && remainder != 0) ? remainder - mask - 1 : remainder;
+                    };
+                    else code = frames -> {
+                        int rightValue = right.run(frames);
+                        int leftValue = left.run(frames);
+                        if (rightValue == 0) throw new DivisionByZeroException();
+                        return leftValue % rightValue;
+                    };
+                }
+                default -> throw new ExpressionResolvingException();
+            }
+        } else if (expression.getIdentifier() != null) code = readInt(expression.getBinding());
+        else {
+            int value = expression.getIntValue();
+            return (expression.getNotFlag() == null) ? frames -> value : frames -> -value;
+        }
+
+        if (expression.getNotFlag() == null) return code;
+        IntCode negated = code;
+        return frames -> -negated.run(frames);
+    }
+
+    // Exponent of the int literal if it's a power of two above 1, so multiplying and dividing by it are shifts and masks
+    private static int powerOfTwo(Expression expression) {
+        if (expression instanceof OperatorExpression || expression instanceof FuncCallStatement) return 0;
+        if (expression.getIdentifier() != null || expression.getNotFlag() != null || expression.getType() != TypeSpecifier.INT) return 0;
+
+        int value = expression.getIntValue();
+        return (value > 1 && Integer.bitCount(value) == 1) ? Integer.numberOfTrailingZeros(value) : 0;
+    }
+
+    private FloatCode compileFloat(Expression expression) {
+        if (!hasTypedForm(expression)) {
+            ValueCode value = compileGeneric(expression);
+            return frames -> {
+                value.run(frames);
+                return frames.popFloat();
+            };
+        }
+
+        FloatCode code;
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN) return assignFloat(operatorExpression);
+
+            // division of integers gives float
+            if (types.typeOf(operatorExpression.getLeftExpr()) == TypeSpecifier.INT) {
+                IntCode right = compileInt(operatorExpression.getRightExpr());
+                IntCode left = compileInt(operatorExpression.getLeftExpr());
+                code = frames -> {
+                    int rightValue = right.run(frames);
+                    int leftValue = left.run(frames);
+                    if (rightValue == 0) throw new DivisionByZeroException();
+                    return (float) leftValue / rightValue;
+                };
+            } else {
+                FloatCode right = compileFloat(operatorExpression.getRightExpr());
+                FloatCode left = compileFloat(operatorExpression.getLeftExpr());
+                switch (operatorExpression.getOperator()) {
+                    case ADD -> code = frames -> {
+                        float rightValue = right.run(frames);
+                        return left.run(frames) + rightValue;
+                    };
+                    case SUB -> code = frames -> {
+                        float rightValue = right.run(frames);
+                        return left.run(frames) - rightValue;
+                    };
+                    case MULTI -> code = frames -> {
+                        float rightValue = right.run(frames);
+                        return left.run(frames) * rightValue;
+                    };
+                    case DIV -> code = frames -> {
+                        float rightValue = right.run(frames);
+                        float leftValue = left.run(frames);
+                        if (rightValue == 0) throw new DivisionByZeroException();
+                        return leftValue / rightValue;
+                    };
+                    case MODULO -> code = frames -> {
+                        float rightValue = right.run(frames);
+                        float leftValue = left.run(frames);
+                        if (rightValue == 0) throw new DivisionByZeroException();
+                        return leftValue % rightValue;
+                    };
+                    default -> throw new ExpressionResolvingException();
+                }
+            }
+        } else if (expression.getIdentifier() != null) code = readFloat(expression.getBinding());
+        else {
+            float value = expression.getFloatValue();
+            return (expression.getNotFlag() == null) ? frames -> value : frames -> -value;
+        }
+
+        if (expression.getNotFlag() == null) return code;
+        FloatCode negated = code;
+        return frames -> -negated.run(frames);
+    }
+
+    private BoolCode compileBool(Expression expression) {
+        if (!hasTypedForm(expression)) {
+            ValueCode value = compileGeneric(expression);
+            return frames -> {
+                value.run(frames);
+                return frames.popBool();
+            };
+        }
+
+        BoolCode code;
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN) return assignBool(operatorExpression);
+            code = compileComparison(operatorExpression);
+        } else if (expression.getIdentifier() != null) code = readBool(expression.getBinding());
+        else {
+            boolean value = (expression.getNotFlag() != null) != expression.getBoolValue();
+            return frames -> value;
+        }
+
+        if (expression.getNotFlag() == null) return code;
+        BoolCode negated = code;
+        return frames -> !negated.run(frames);
+    }
+
+    private BoolCode compileComparison(OperatorExpression expression) {
+        Operator op = expression.getOperator();
+
+        switch (types.typeOf(expression.getLeftExpr())) {
+            case INT -> {
+                IntCode right = compileInt(expression.getRightExpr());
+                IntCode left = compileInt(expression.getLeftExpr());
+                switch (op) {
+                    case LESS -> {
+                        return frames -> {
+                            int rightValue = right.run(frames);
+                            return left.run(frames) < rightValue;
+                        };
+                    }
+                    case LESS_EQ -> {
+                        return frames -> {
+                            int rightValue = right.run(frames);
+                            return left.run(frames) <= rightValue;
+                        };
+                    }
+                    case MORE -> {
+                        return frames -> {
+                            int rightValue = right.run(frames);
+                            return left.run(frames) > rightValue;
+                        };
+                    }
+                    case MORE_EQ -> {
+                        return frames -> {
+                            int rightValue = right.run(frames);
+                            return left.run(frames) >= rightValue;
+                        };
+                    }
+                    case EQUAL -> {
+                        return frames -> {
+                            int rightValue = right.run(frames);
+                            return left.run(frames) == rightValue;
+                        };
+                    }
+                    default -> {
+                        return frames -> {
+                            int rightValue = right.run(frames);
+                            return left.run(frames) != rightValue;
+                        };
+                    }
+                }
+            }
+            case FLOAT -> {
+                FloatCode right = compileFloat(expression.getRightExpr());
+                FloatCode left = compileFloat(expression.getLeftExpr());
+                switch (op) {
+                    case LESS -> {
+                        return frames -> {
+                            float rightValue = right.run(frames);
+                            return left.run(frames) < rightValue;
+                        };
+                    }
+                    case LESS_EQ -> {
+                        return frames -> {
+                            float rightValue = right.run(frames);
+                            return left.run(frames) <= rightValue;
+                        };
+                    }
+                    case MORE -> {
+                        return frames -> {
+                            float rightValue = right.run(frames);
+                            return left.run(frames) > rightValue;
+                        };
+                    }
+                    case MORE_EQ -> {
+                        return frames -> {
+                            float rightValue = right.run(frames);
+                            return left.run(frames) >= rightValue;
+                        };
+                    }
+                    case EQUAL -> {
+                        return frames -> {
+                            float rightValue = right.run(frames);
+                            return Float.compare(left.run(frames), rightValue) == 0;
+                        };
+                    }
+                    default -> {
+                        return frames -> {
+                            float rightValue = right.run(frames);
+                            return Float.compare(left.run(frames), rightValue) != 0;
+                        };
+                    }
+                }
+            }
+            case STRING -> {
+                StringCode right = compileString(expression.getRightExpr());
+                StringCode left = compileString(expression.getLeftExpr());
+                boolean equal = op == Operator.EQUAL;
+                return frames -> {
+                    String rightValue = right.run(frames);
+                    return Objects.equals(left.run(frames), rightValue) == equal;
+                };
+            }
+            default -> {
+                // logical operators evaluate the right side only when the left one doesn't decide the result
+                BoolCode left = compileBool(expression.getLeftExpr());
+                BoolCode right = compileBool(expression.getRightExpr());
+                if (op == Operator.AND) return frames -> left.run(frames) && right.run(frames);
+                return frames -> left.run(frames) || right.run(frames);
+            }
+        }
+    }
+
+    private StringCode compileString(Expression expression) {
+        if (!hasTypedForm(expression)) {
+            ValueCode value = compileGeneric(expression);
+            return frames -> {
+                value.run(frames);
+                return frames.popString();
+            };
+        }
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN) return assignString(operatorExpression);
+
+            StringCode right = compileString(operatorExpression.getRightExpr());
+            StringCode left = compileString(operatorExpression.getLeftExpr());
+            return frames -> {
+                String rightValue = right.run(frames);
+                return left.run(frames) + rightValue;
+            };
+        }
+        if (expression.getIdentifier() != null) return readString(expression.getBinding());
+
+        String value = expression.getStringValue();
+        return frames -> value;
+    }
+
+    // TYPED VARIABLES, only local variables are read and assigned directly
+    private IntCode readInt(Binding binding) {
+        int slot = binding.getIndex();
+        if (binding.isGlobal()) {
+            ValueCode load = loadGlobal(binding);
+            return frames -> {
+                load.run(frames);
+                return frames.popInt();
+            };
+        }
+        if (!requiresValue(binding)) return frames -> frames.getInt(slot);
+
+        return frames -> {
+            if (frames.getType(slot) == null) throw new NonOptionalVariableMissingValueException(binding.getIdentifier());
+            return frames.getInt(slot);
+        };
+    }
+
+    private FloatCode readFloat(Binding binding) {
+        int slot = binding.getIndex();
+        if (binding.isGlobal()) {
+            ValueCode load = loadGlobal(binding);
+            return frames -> {
+                load.run(frames);
+                return frames.popFloat();
+            };
+        }
+        if (!requiresValue(binding)) return frames -> frames.getFloat(slot);
+
+        return frames -> {
+            if (frames.getType(slot) == null) throw new NonOptionalVariableMissingValueException(binding.getIdentifier());
+            return frames.getFloat(slot);
+        };
+    }
+
+    private BoolCode readBool(Binding binding) {
+        int slot = binding.getIndex();
+        if (binding.isGlobal()) {
+            ValueCode load = loadGlobal(binding);
+            return frames -> {
+                load.run(frames);
+                return frames.popBool();
+            };
+        }
+        if (!requiresValue(binding)) return frames -> frames.getBool(slot);
+
+        return frames -> {
+            if (frames.getType(slot) == null) throw new NonOptionalVariableMissingValueException(binding.getIdentifier());
+            return frames.getBool(slot);
+        };
+    }
+
+    private StringCode readString(Binding binding) {
+        int slot = binding.getIndex();
+        if (binding.isGlobal()) {
+            ValueCode load = loadGlobal(binding);
+            return frames -> {
+                load.run(frames);
+                return frames.popString();
+            };
+        }
+        if (!requiresValue(binding)) return frames -> frames.getString(slot);
+
+        return frames -> {
+            if (frames.getType(slot) == null) throw new NonOptionalVariableMissingValueException(binding.getIdentifier());
+            return frames.getString(slot);
+        };
+    }
+
+    private boolean requiresValue(Binding binding) {
+        return !binding.isOptional() && types.mayBeEmpty(binding);
+    }
+
+    private ValueCode loadGlobal(Binding binding) {
+        int index = binding.getIndex();
+        if (!requiresValue(binding)) return frames -> frames.loadGlobal(index);
+
+        return frames -> {
+            frames.loadGlobal(index);
+            if (frames.peekType() == null) throw new NonOptionalVariableMissingValueException(binding.getIdentifier());
+        };
+    }
+
+    private IntCode assignInt(OperatorExpression expression) {
+        IntCode value = compileInt(expression.getRightExpr());
+        Binding binding = expression.getLeftExpr().getBinding();
+        int slot = binding.getIndex();
+
+        // non mutable variable can only get its first value
+        if (binding.isMutable()) {
+            return frames -> {
+                int assigned = value.run(frames);
+                frames.setInt(slot, assigned);
+                return assigned;
+            };
+        }
+        return frames -> {
+            int assigned = value.run(frames);
+            if (frames.getType(slot) != null) throw new ReassignNonMutableVariableException(binding.getIdentifier());
+            frames.setInt(slot, assigned);
+            return assigned;
+        };
+    }
+
+    private FloatCode assignFloat(OperatorExpression expression) {
+        FloatCode value = compileFloat(expression.getRightExpr());
+        Binding binding = expression.getLeftExpr().getBinding();
+        int slot = binding.getIndex();
+
+        if (binding.isMutable()) {
+            return frames -> {
+                float assigned = value.run(frames);
+                frames.setFloat(slot, assigned);
+                return assigned;
+            };
+        }
+        return frames -> {
+            float assigned = value.run(frames);
+            if (frames.getType(slot) != null) throw new ReassignNonMutableVariableException(binding.getIdentifier());
+            frames.setFloat(slot, assigned);
+            return assigned;
+        };
+    }
+
+    private BoolCode assignBool(OperatorExpression expression) {
+        BoolCode value = compileBool(expression.getRightExpr());
+        Binding binding = expression.getLeftExpr().getBinding();
+        int slot = binding.getIndex();
+
+        if (binding.isMutable()) {
+            return frames -> {
+                boolean assigned = value.run(frames);
+                frames.setBool(slot, assigned);
+                return assigned;
+            };
+        }
+        return frames -> {
+            boolean assigned = value.run(frames);
+            if (frames.getType(slot) != null) throw new ReassignNonMutableVariableException(binding.getIdentifier());
+            frames.setBool(slot, assigned);
+            return assigned;
+        };
+    }
+
+    private StringCode assignString(OperatorExpression expression) {
+        StringCode value = compileString(expression.getRightExpr());
+        Binding binding = expression.getLeftExpr().getBinding();
+        int slot = binding.getIndex();
+
+        if (binding.isMutable()) {
+            return frames -> {
+                String assigned = value.run(frames);
+                frames.setString(slot, assigned);
+                return assigned;
+            };
+        }
+        return frames -> {
+            String assigned = value.run(frames);
+            if (frames.getType(slot) != null) throw new ReassignNonMutableVariableException(binding.getIdentifier());
+            frames.setString(slot, assigned);
+            return assigned;
+        };
+    }
+
+    // EXPRESSIONS OF TYPES KNOWN ONLY WHILE EXECUTING
+    private ValueCode compileGeneric(Expression expression) {
+        // missing expression evaluates to an empty value
+        if (expression == null) return FrameStack::pushEmpty;
+        return expression.acceptExpression(this);
+    }
+
+    @Override
+    public ValueCode visitOperatorExpression(OperatorExpression expression) {
+        Operator op = expression.getOperator();
+        NotValue notFlag = expression.getNotFlag();
+        ValueCode right = compileValue(expression.getRightExpr());
+
+        if (op == Operator.ASSIGN) return compileAssignment(expression, right);
+
+        ValueCode left = compileValue(expression.getLeftExpr());
+        if (op == Operator.AND || op == Operator.OR) {
+            return frames -> {
+                left.run(frames);
+                if (Operations.shortCircuit(frames, op, notFlag)) return;
+
+                right.run(frames);
+                frames.swap();
+                Operations.evaluateOperator(frames, op, notFlag);
+            };
+        }
+        return frames -> {
+            right.run(frames);
+            left.run(frames);
+            Operations.evaluateOperator(frames, op, notFlag);
+        };
+    }
+
+    private ValueCode compileAssignment(OperatorExpression expression, ValueCode value) {
+        if (expression.getNotFlag() != null) {
+            return frames -> {
+                value.run(frames);
+                throw new NegateAssignOperationException();
+            };
+        }
+
+        Expression target = expression.getLeftExpr();
+        Binding binding = target.getBinding();
+        if (binding == null) {
+            return frames -> {
+                value.run(frames);
+                throw new VariableNotDeclaredException(target.getIdentifier());
+            };
+        }
+
+        // assigned value stays on the stack as the result of assignment
+        int index = binding.getIndex();
+        if (binding.isGlobal()) {
+            return frames -> {
+                value.run(frames);
+                if (!binding.isMutable() && frames.getGlobalType(index) != null) throw new ReassignNonMutableVariableException(binding.getIdentifier());
+                frames.storeGlobal(index);
+            };
+        }
+        return frames -> {
+            value.run(frames);
+            if (!binding.isMutable() && frames.getType(index) != null) throw new ReassignNonMutableVariableException(binding.getIdentifier());
+            frames.store(index);
+        };
+    }
+
+    @Override
+    public ValueCode visitFuncCall(FuncCallStatement expression) {
+        String identifier = expression.getIdentifier();
+        List<Expression> arguments = expression.getArguments();
+
+        Builtin builtin = Builtin.find(identifier);
+        if (builtin != null) return compileBuiltinCall(builtin, arguments);
+
+        ClosureFunction function = callTarget(identifier);
+        if (function == null) {
+            return frames -> {
+                throw new FunctionNotDeclaredException(identifier);
+            };
+        }
+
+        FunctionDefinition definition = findFunction(identifier);
+        ValueCode failing = failingCall(expression, definition);
+        if (failing != null) return failing;
+        ValueCode[] argumentCodes = compileArguments(expression, definition);
+
+        NotValue notFlag = expression.getNotFlag();
+        return frames -> {
+            for (ValueCode argument : argumentCodes) {
+                argument.run(frames);
+            }
+
+            // compiled function always gives a value of its type, or nothing if it has no type
+            ValueCode compiled = function.getCompiled();
+            if (compiled != null) {
+                compiled.run(frames);
+                if (frames.peekType() != null) Operations.negateReturnedValue(frames, frames.peekType(), notFlag);
+                return;
+            }
+
+            // every function of the tail call chain returns the same type, the last one reports the mismatch like it would when nested
+            ClosureFunction returning = function.call(frames, argumentCodes.length);
+            if (returning != null) {
+                TypeSpecifier returnedType = frames.peekType();
+                if (returnedType != null) {
+                    if (returnedType != returning.getType()) throw new IncorrectReturnTypeException(returning.getName(), returnedType, returning.getType());
+                    Operations.negateReturnedValue(frames, returnedType, notFlag);
+                }
+            }
+        };
+    }
+
+    // Code reporting the error of the call when it's executed, null if its parameters and arguments fit
+    private ValueCode failingCall(FuncCallStatement call, FunctionDefinition called) {
+        List<Parameter> parameters = called.getParameters();
+        try {
+            Resolver.checkParameters(parameters, called.getName());
+        } catch (ParameterAlreadyDeclaredException e) {
+            return frames -> {
+                throw e;
+            };
+        }
+
+        int argumentCount = call.getArguments().size();
+        if (parameters.size() != argumentCount) {
+            return frames -> {
+                throw new IncorrectParameterAmountException(called.getName(), argumentCount, parameters.size());
+            };
+        }
+        return null;
+    }
+
+    // evaluated arguments stay on the stack and become the first slots of called function frame
+    private ValueCode[] compileArguments(FuncCallStatement call, FunctionDefinition called) {
+        List<Expression> arguments = call.getArguments();
+        ValueCode[] argumentCodes = new ValueCode[arguments.size()];
+        for (int i = 0; i < argumentCodes.length; i++) {
+            argumentCodes[i] = compileArgument(arguments.get(i), called.getParameters().get(i));
+        }
+        return argumentCodes;
+    }
+
+    private ValueCode compileArgument(Expression argument, Parameter parameter) {
+        ValueCode value = compileValue(argument);
+        if (types.typeOf(argument) == parameter.getType()) return value;
+
+        return frames -> {
+            value.run(frames);
+
+            TypeSpecifier resolvedType = frames.peekType();
+            if ((resolvedType != null) && (parameter.getType() != resolvedType)) {
+                throw new MismatchedTypesException(parameter.getIdentifier(), parameter.getType(), resolvedType);
+            }
+        };
+    }
+
+    private ValueCode compileBuiltinCall(Builtin builtin, List<Expression> arguments) {
+        if (arguments.size() != builtin.getParameterCount()) {
+            return frames -> {
+                throw new IncorrectParameterAmountException(builtin.getName(), arguments.size(), builtin.getParameterCount());
+            };
+        }
+
+        if (arguments.isEmpty()) return frames -> builtin.execute(frames, debug);
+
+        ValueCode argument = compileValue(arguments.get(0));
+        return frames -> {
+            argument.run(frames);
+            builtin.execute(frames, debug);
+        };
+    }
+
+    @Override
+    public ValueCode visitVariableReference(Expression expression) {
+        Binding binding = expression.getBinding();
+        if (binding == null) {
+            return frames -> {
+                throw new VariableNotDeclaredException(expression.getIdentifier());
+            };
+        }
+
+        int index = binding.getIndex();
+        boolean global = binding.isGlobal();
+        boolean negated = expression.getNotFlag() != null;
+        return frames -> {
+            if (global) frames.loadGlobal(index);
+            else frames.load(index);
+
+            TypeSpecifier type = frames.peekType();
+            if (type == null) {
+                if (binding.isOptional()) return;
+                else throw new NonOptionalVariableMissingValueException(binding.getIdentifier());
+            }
+            if (negated) Operations.negateVariable(frames, expression, type);
+        };
+    }
+
+    @Override
+    public ValueCode visitLiteral(Expression expression) {
+        boolean negated = expression.getNotFlag() != null;
+
+        switch (expression.getType()) {
+            case INT -> {
+                int value = negated ? -expression.getIntValue() : expression.getIntValue();
+                return frames -> frames.pushInt(value);
+            }
+            case FLOAT -> {
+                float value = negated ? -expression.getFloatValue() : expression.getFloatValue();
+                return frames -> frames.pushFloat(value);
+            }
+            case STRING -> {
+                String value = expression.getStringValue();
+                return frames -> frames.pushString(value);
+            }
+            case BOOL -> {
+                boolean value = negated != expression.getBoolValue();
+                return frames -> frames.pushBool(value);
+            }
+            default -> {
+                TypeSpecifier type = expression.getType();
+                return frames -> {
+                    throw new TypeException(new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.FLOAT, TypeSpecifier.STRING, TypeSpecifier.BOOL}, type, "expression");
+                };
+            }
+        }
+    }
+
+    protected FunctionDefinition findFunction(String name) {
+        for (FunctionDefinition function : program.getFunctions()) {
+            if (function.getName().equals(name)) return function;
+        }
+        return null;
+    }
+}
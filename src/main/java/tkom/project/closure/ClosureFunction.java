@@ -0,0 +1,92 @@
+package tkom.project.closure;
+
+import tkom.project.exceptions.InvalidJumpStatement;
+import tkom.project.nodes.JumpType;
+import tkom.project.nodes.TypeSpecifier;
+import tkom.project.scope.FrameStack;
+
+public final class ClosureFunction {
+    private final String name;
+    private final TypeSpecifier type;
+    private final int frameSize;
+
+    private StatementCode[] body;
+    private ValueCode compiled;     // replaces the body, takes the arguments from the stack and leaves the result there
+    private ClosureFunction tailCall;   // called by return in tail position, its arguments are kept aside by the frame stack
+
+    public ClosureFunction(String name, TypeSpecifier type, int frameSize) {
+        this.name = name;
+        this.type = type;
+        this.frameSize = frameSize;
+    }
+
+    // body is set after all functions exist, so calls can refer to functions compiled later
+    public void setBody(StatementCode[] body) {
+        this.body = body;
+    }
+
+    public void setCompiled(ValueCode compiled) {
+        this.compiled = compiled;
+    }
+
+    public ValueCode getCompiled() {
+        return compiled;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TypeSpecifier getType() {
+        return type;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public StatementCode[] getBody() {
+        return body;
+    }
+
+    // Set by the return statement of the body, the call running this function continues with the called one in the same frame
+    public void setTailCall(ClosureFunction tailCall) {
+        this.tailCall = tailCall;
+    }
+
+    // Runs the body in already entered frame, returns whether a value was returned
+    public boolean invoke(FrameStack frames) {
+        for (StatementCode statement : body) {
+            JumpType jump = statement.run(frames);
+
+            if (jump != null) {
+                if (jump != JumpType.RETURN) throw new InvalidJumpStatement(name);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Calls the function with its arguments on the stack, leaves the returned value there or empty value if nothing was returned
+    // returns the function whose return ended the call, the last one of a tail call chain, or null if nothing was returned
+    public ClosureFunction call(FrameStack frames, int argumentCount) {
+        int previousFramePointer = frames.enterFrame(argumentCount, frameSize);
+        ClosureFunction function = this;
+        boolean returned = invoke(frames);
+
+        // tail calls replace the frame of the function which made them, so recursion doesn't grow the Java stack
+        while (function.tailCall != null) {
+            ClosureFunction called = function.tailCall;
+            function.tailCall = null;
+
+            frames.reuseFrame(called.frameSize);
+            function = called;
+            returned = function.invoke(frames);
+        }
+        frames.leaveFrame(previousFramePointer);
+
+        if (returned) frames.pushReturnedValue();
+        else frames.pushEmpty();
+        return returned ? function : null;
+    }
+}
@@ -0,0 +1,61 @@
+package tkom.project.closure;
+
+import tkom.project.Engine;
+import tkom.project.Resolver;
+import tkom.project.exceptions.InvalidJumpStatement;
+import tkom.project.nodes.FunctionDefinition;
+import tkom.project.nodes.JumpType;
+import tkom.project.nodes.Program;
+import tkom.project.optimizer.Optimizer;
+import tkom.project.optimizer.OptimizerPolicy;
+import tkom.project.scope.FrameStack;
+import tkom.project.scope.Reader;
+
+// Executes the program as closures made by ClosureCompiler, using the frame stack the same way Interpreter does
+public class ClosureInterpreter implements Engine {
+    private final Program program;
+    private OptimizerPolicy optimizerPolicy = OptimizerPolicy.DEFAULT;
+    private final FrameStack frames;
+    private final Reader debug;
+
+    public ClosureInterpreter(Program program) {
+        this(program, null);
+    }
+
+    public ClosureInterpreter(Program program, Reader reader) {
+        this.program = program;
+        this.frames = new FrameStack();
+        this.debug = reader;
+    }
+
+    @Override
+    public void setOptimizerPolicy(OptimizerPolicy optimizerPolicy) {
+        this.optimizerPolicy = optimizerPolicy;
+    }
+
+    @Override
+    public String execute() {
+        Resolver resolver = new Resolver(program);
+        resolver.resolve();
+        FunctionDefinition main = resolver.findMain();
+        new Optimizer(program, optimizerPolicy).optimize();
+
+        ClosureCompiler compiler = new ClosureCompiler(program, debug);
+        ClosureFunction compiledMain = compiler.compile(main);
+
+        // Initialize global variables in order of their definition
+        frames.reserveGlobals(program.getVariables().size());
+        for (StatementCode globalVariable : compiler.compileGlobals()) {
+            globalVariable.run(frames);
+        }
+
+        // return in main only ends the statement it was in
+        frames.enterFrame(0, compiledMain.getFrameSize());
+        for (StatementCode statement : compiledMain.getBody()) {
+            JumpType jump = statement.run(frames);
+            if (jump != null && jump != JumpType.RETURN) throw new InvalidJumpStatement("main");
+        }
+
+        return ("Program executed CORRECTLY!");
+    }
+}
@@ -0,0 +1,10 @@
+package tkom.project.closure;
+
+import tkom.project.nodes.JumpType;
+import tkom.project.scope.FrameStack;
+
+// Returns the jump leaving the statement, null when it ends normally
+@FunctionalInterface
+public interface StatementCode {
+    JumpType run(FrameStack frames);
+}
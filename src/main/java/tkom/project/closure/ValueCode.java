@@ -0,0 +1,9 @@
+package tkom.project.closure;
+
+import tkom.project.scope.FrameStack;
+
+// Expression of type known only while executing, it leaves its tagged value on the frame stack
+@FunctionalInterface
+public interface ValueCode {
+    void run(FrameStack frames);
+}
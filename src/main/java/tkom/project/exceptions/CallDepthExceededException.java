@@ -0,0 +1,7 @@
+package tkom.project.exceptions;
+
+public class CallDepthExceededException extends RuntimeException {
+    public CallDepthExceededException(String funName, int maxDepth) {
+        super("ERROR: Call of function "+funName.toUpperCase()+" exceeds the maximum CALL DEPTH of: "+maxDepth);
+    }
+}
@@ -0,0 +1,173 @@
+package tkom.project.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// Writes a class file with methods only, in version 49 which is verified without stack map frames
+public class ClassWriter {
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_STATIC = 0x0008;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int VERSION = 49;
+
+    // CONSTANT POOL
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int FLOAT = 4;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int METHOD = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream constantBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constants = new DataOutputStream(constantBytes);
+    private final HashMap<String, Integer> constantIndexes = new HashMap<>();
+    private int constantCount = 1;
+
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount;
+
+    private final int thisClass;
+    private final int superClass;
+    private final int implemented;
+
+    public ClassWriter(String name, String superName, String interfaceName) {
+        thisClass = classConstant(name);
+        superClass = classConstant(superName);
+        implemented = classConstant(interfaceName);
+    }
+
+    public int intConstant(int value) {
+        return constant("I" + value, out -> {
+            out.writeByte(INTEGER);
+            out.writeInt(value);
+        });
+    }
+
+    public int floatConstant(float value) {
+        return constant("F" + Float.floatToRawIntBits(value), out -> {
+            out.writeByte(FLOAT);
+            out.writeInt(Float.floatToRawIntBits(value));
+        });
+    }
+
+    public int stringConstant(String value) {
+        int text = utf8Constant(value);
+        return constant("S" + value, out -> {
+            out.writeByte(STRING);
+            out.writeShort(text);
+        });
+    }
+
+    public int methodConstant(String owner, String name, String descriptor) {
+        int ownerClass = classConstant(owner);
+        int nameAndType = nameAndTypeConstant(name, descriptor);
+        return constant("M" + owner + "." + name + descriptor, out -> {
+            out.writeByte(METHOD);
+            out.writeShort(ownerClass);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int classConstant(String name) {
+        int text = utf8Constant(name);
+        return constant("C" + name, out -> {
+            out.writeByte(CLASS);
+            out.writeShort(text);
+        });
+    }
+
+    private int nameAndTypeConstant(String name, String descriptor) {
+        int nameText = utf8Constant(name);
+        int descriptorText = utf8Constant(descriptor);
+        return constant("N" + name + ":" + descriptor, out -> {
+            out.writeByte(NAME_AND_TYPE);
+            out.writeShort(nameText);
+            out.writeShort(descriptorText);
+        });
+    }
+
+    private int utf8Constant(String value) {
+        return constant("U" + value, out -> {
+            out.writeByte(UTF8);
+            out.writeUTF(value);
+        });
+    }
+
+    private interface ConstantWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // equal constants are written once, the key tells the kind of constant and its value
+    private int constant(String key, ConstantWriter writer) {
+        Integer index = constantIndexes.get(key);
+        if (index != null) return index;
+
+        try {
+            writer.write(constants);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        constantIndexes.put(key, constantCount);
+        return constantCount++;
+    }
+
+    public void addMethod(int access, String name, String descriptor, byte[] code, int codeLength, int maxStack, int maxLocals) {
+        int nameIndex = utf8Constant(name);
+        int descriptorIndex = utf8Constant(descriptor);
+        int codeAttribute = utf8Constant("Code");
+
+        try {
+            methods.writeShort(access);
+            methods.writeShort(nameIndex);
+            methods.writeShort(descriptorIndex);
+            methods.writeShort(1);
+
+            // code attribute without exception table and attributes of its own
+            methods.writeShort(codeAttribute);
+            methods.writeInt(12 + codeLength);
+            methods.writeShort(maxStack);
+            methods.writeShort(maxLocals);
+            methods.writeInt(codeLength);
+            methods.write(code, 0, codeLength);
+            methods.writeShort(0);
+            methods.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methodCount++;
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+
+            out.writeShort(constantCount);
+            constantBytes.writeTo(out);
+
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(implemented);
+            out.writeShort(0);
+
+            out.writeShort(methodCount);
+            methodBytes.writeTo(out);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,32 @@
+package tkom.project.jvm;
+
+import tkom.project.closure.StatementCode;
+import tkom.project.nodes.Binding;
+import tkom.project.nodes.JumpType;
+import tkom.project.scope.FrameStack;
+
+import java.util.List;
+
+// Loop compiled while Interpreter was running it, continued from the state of the frame at the end of an iteration
+// JVM code keeps variables in local variables of their type, so it can only take over a frame holding values of those types
+public final class CompiledLoop {
+    private final StatementCode code;
+    private final List<Binding> assumedVariables;
+
+    public CompiledLoop(StatementCode code, List<Binding> assumedVariables) {
+        this.code = code;
+        this.assumedVariables = assumedVariables;
+    }
+
+    public boolean canEnter(FrameStack frames) {
+        for (Binding binding : assumedVariables) {
+            if (frames.getType(binding.getIndex()) != binding.getType()) return false;
+        }
+        return true;
+    }
+
+    // Returns RETURN if the loop returned from its function, the returned value is then saved like by Interpreter
+    public JumpType run(FrameStack frames) {
+        return code.run(frames);
+    }
+}
@@ -0,0 +1,9 @@
+package tkom.project.jvm;
+
+// Implemented by the class made by JvmCompiler, calls compiled function with arguments taken from the frame stack
+// or continues compiled loop in the current frame, returning whether the loop returned from its function
+public interface CompiledProgram {
+    void call(int function, JvmRuntime runtime);
+
+    boolean enterLoop(int loop, JvmRuntime runtime);
+}
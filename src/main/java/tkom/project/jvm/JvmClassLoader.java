@@ -0,0 +1,18 @@
+package tkom.project.jvm;
+
+// Loads classes made by JvmCompiler, they see the classes of the project through the parent loader
+public class JvmClassLoader extends ClassLoader {
+    public JvmClassLoader() {
+        super(JvmClassLoader.class.getClassLoader());
+    }
+
+    public CompiledProgram load(String name, byte[] classFile) {
+        Class<?> loaded = defineClass(name, classFile, 0, classFile.length);
+
+        try {
+            return (CompiledProgram) loaded.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Compiled program can't be created", e);
+        }
+    }
+}
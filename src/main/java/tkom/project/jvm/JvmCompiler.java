@@ -0,0 +1,1107 @@
+package tkom.project.jvm;
+
+import tkom.project.Resolver;
+import tkom.project.exceptions.ParameterAlreadyDeclaredException;
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.*;
+import tkom.project.runtime.Builtin;
+import tkom.project.runtime.StaticTypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+// Compiles functions into static methods of one JVM class, so the JIT compiler optimizes them like Java code
+// Only functions whose every value has a type known before execution and is never empty are compiled,
+// their variables become local variables of the method, compiled functions only call each other
+// Loops meeting the same conditions also get methods, which continue a loop started by Interpreter (on-stack replacement)
+public class JvmCompiler implements StatementVisitor<Void> {
+    public static final String CLASS_NAME = "TkomProgram";
+    private static final String RUNTIME = "tkom/project/jvm/JvmRuntime";
+    private static final String RUNTIME_TYPE = "L" + RUNTIME + ";";
+    private static final String STRING_TYPE = "Ljava/lang/String;";
+    private static final int MAX_CODE_SIZE = Short.MAX_VALUE;     // jump offsets have 16 bits
+
+    private final Program program;
+    private final StaticTypes types;
+
+    private FunctionDefinition main;
+    private final HashSet<FunctionDefinition> callable = new HashSet<>();
+    private final HashSet<FunctionDefinition> tooLarge = new HashSet<>();
+    private final ArrayList<FunctionDefinition> compiled = new ArrayList<>();
+    private final HashSet<WhileStatement> tooLargeLoops = new HashSet<>();
+    private final ArrayList<WhileStatement> loops = new ArrayList<>();
+    private final ArrayList<FunctionDefinition> loopFunctions = new ArrayList<>();
+    private final ArrayList<List<Binding>> loopVariables = new ArrayList<>();
+
+    // function checked for being compiled
+    private FunctionDefinition checkedFunction;
+    private int loopDepth;
+
+    // code of currently compiled method
+    private ClassWriter classWriter;
+    private byte[] code;
+    private int size;
+    private int stack;
+    private int maxStack;
+    private final HashMap<Binding, Integer> locals = new HashMap<>();
+    private int nextLocal;
+
+    private FunctionDefinition function;
+    private Loop loop;                              // innermost loop, null outside of loops
+    private ArrayList<Integer> statementExits;      // return in main only ends the top level statement it's in
+    private ArrayList<Binding> frameVariables;      // variables a loop method takes from the frame, null outside of them
+    private ArrayList<Integer> loopReturns;
+
+    private static final class Loop {
+        private final Loop enclosing;
+        private final int start;
+        private final ArrayList<Integer> breaks = new ArrayList<>();
+
+        private Loop(Loop enclosing, int start) {
+            this.enclosing = enclosing;
+            this.start = start;
+        }
+    }
+
+    public JvmCompiler(Program program) {
+        this.program = program;
+        this.types = new StaticTypes(program);
+    }
+
+    // Returns the class file, null if no function or loop can be compiled
+    public byte[] compile(FunctionDefinition main) {
+        this.main = main;
+        types.analyze();
+
+        while (true) {
+            selectFunctions();
+            if (compiled.isEmpty() && loops.isEmpty()) return null;
+
+            byte[] classFile = writeClass();
+            if (classFile != null) return classFile;
+        }
+    }
+
+    // Compiled functions in order of their number in CompiledProgram.call
+    public List<FunctionDefinition> getCompiled() {
+        return compiled;
+    }
+
+    // Compiled loops in order of their number in CompiledProgram.enterLoop
+    public List<WhileStatement> getLoops() {
+        return loops;
+    }
+
+    // Variables the loop takes from the frame when it's entered, they have to hold values of their types
+    public List<Binding> getLoopVariables(int loop) {
+        return loopVariables.get(loop);
+    }
+
+    // SELECTING FUNCTIONS
+    private void selectFunctions() {
+        callable.clear();
+        compiled.clear();
+
+        for (FunctionDefinition candidate : program.getFunctions()) {
+            if (candidate != main && !tooLarge.contains(candidate) && supportsSignature(candidate)) callable.add(candidate);
+        }
+
+        // function calling a function which isn't compiled can't be compiled either, so it's repeated until nothing changes
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (FunctionDefinition candidate : program.getFunctions()) {
+                if (callable.contains(candidate) && !supportsBody(candidate)) {
+                    callable.remove(candidate);
+                    changed = true;
+                }
+            }
+        }
+
+        for (FunctionDefinition candidate : program.getFunctions()) {
+            if (callable.contains(candidate)) compiled.add(candidate);
+        }
+        if (!tooLarge.contains(main) && supportsBody(main)) compiled.add(main);
+
+        loops.clear();
+        loopFunctions.clear();
+        for (FunctionDefinition candidate : program.getFunctions()) {
+            selectLoops(candidate, candidate.getStatements());
+        }
+    }
+
+    private void selectLoops(FunctionDefinition candidate, List<Statement> statements) {
+        if (statements == null) return;
+
+        for (Statement statement : statements) {
+            if (statement instanceof WhileStatement whileStatement) {
+                checkedFunction = candidate;
+                loopDepth = 0;
+                if (!tooLargeLoops.contains(whileStatement) && supportsStatement(whileStatement)) {
+                    loops.add(whileStatement);
+                    loopFunctions.add(candidate);
+                }
+                selectLoops(candidate, whileStatement.getStatements());
+            } else if (statement instanceof IfElseStatement ifElse) {
+                selectLoops(candidate, ifElse.getIfStatements().getStatements());
+                for (IfBlock elifBlock : ifElse.getElifStatements()) {
+                    selectLoops(candidate, elifBlock.getStatements());
+                }
+                if (ifElse.getElseStatements() != null) selectLoops(candidate, ifElse.getElseStatements().getStatements());
+            } else if (statement instanceof ExistStatement exist) {
+                selectLoops(candidate, exist.getExistStatements());
+                selectLoops(candidate, exist.getElseStatements());
+            } else if (statement instanceof PatternMatchingStatement patternMatching) {
+                for (MatchCaseStatement matchCase : patternMatching.getCases()) {
+                    selectLoops(candidate, matchCase.getStatements());
+                }
+            }
+        }
+    }
+
+    private boolean supportsSignature(FunctionDefinition candidate) {
+        TypeSpecifier type = candidate.getType();
+        if (type != TypeSpecifier.VOID && (!StaticTypes.isValueType(type) || types.mayBeEmpty(candidate))) return false;
+
+        for (Parameter parameter : candidate.getParameters()) {
+            if (!typedBinding(parameter.getBinding())) return false;
+        }
+
+        try {
+            Resolver.checkParameters(candidate.getParameters(), candidate.getName());
+        } catch (ParameterAlreadyDeclaredException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private boolean supportsBody(FunctionDefinition candidate) {
+        checkedFunction = candidate;
+        loopDepth = 0;
+        return supportsBlock(candidate.getStatements());
+    }
+
+    private boolean supportsBlock(List<Statement> statements) {
+        if (statements == null) return true;
+
+        for (Statement statement : statements) {
+            if (!supportsStatement(statement)) return false;
+        }
+        return true;
+    }
+
+    private boolean supportsStatement(Statement statement) {
+        if (statement instanceof VariableDefinition varDef) {
+            return typedBinding(varDef.getBinding()) && supportsValue(varDef.getValue()) && types.typeOf(varDef.getValue()) == varDef.getType();
+        }
+        if (statement instanceof FuncCallStatement funcCall && isVoidCall(funcCall)) return supportsCall(funcCall);
+        if (statement instanceof Expression expression) return supportsValue(expression);
+
+        if (statement instanceof IfElseStatement ifElse) {
+            if (!supportsCondition(ifElse.getIfStatements().getCondition()) || !supportsBlock(ifElse.getIfStatements().getStatements())) return false;
+            for (IfBlock elifBlock : ifElse.getElifStatements()) {
+                if (!supportsCondition(elifBlock.getCondition()) || !supportsBlock(elifBlock.getStatements())) return false;
+            }
+            return ifElse.getElseStatements() == null || supportsBlock(ifElse.getElseStatements().getStatements());
+        }
+        if (statement instanceof WhileStatement whileStatement) {
+            loopDepth++;
+            boolean supported = supportsCondition(whileStatement.getCondition()) && supportsBlock(whileStatement.getStatements());
+            loopDepth--;
+            return supported;
+        }
+        // value which is never empty always exists, so the else block is never executed
+        if (statement instanceof ExistStatement exist) return supportsValue(exist.getExistValue()) && supportsBlock(exist.getExistStatements());
+
+        if (statement instanceof JumpStatement jump) {
+            if (jump.getType() != JumpType.RETURN) return loopDepth > 0;
+
+            Expression value = jump.getRetExpr();
+            if (checkedFunction == main) return value == null || supportsValue(value);
+            if (checkedFunction.getType() == TypeSpecifier.VOID) return value == null;
+
+            // tail call of another function would leave the frame of the method, only calls of itself become a jump
+            FunctionDefinition tailCalled = tailCalled(value);
+            if (tailCalled != null && tailCalled != checkedFunction) return false;
+            return supportsValue(value) && types.typeOf(value) == checkedFunction.getType();
+        }
+
+        // matched value has no declared type
+        return false;
+    }
+
+    // Function called by return in tail position, which continues in the frame of the returning function
+    private FunctionDefinition tailCalled(Expression value) {
+        if (!(value instanceof FuncCallStatement call) || call.getNotFlag() != null || Builtin.find(call.getIdentifier()) != null) return null;
+
+        FunctionDefinition called = findFunction(call.getIdentifier());
+        return (called != null && called.getType() == checkedFunction.getType()) ? called : null;
+    }
+
+    private boolean supportsCondition(Expression condition) {
+        return supportsValue(condition) && types.typeOf(condition) == TypeSpecifier.BOOL;
+    }
+
+    private boolean supportsValue(Expression expression) {
+        if (expression == null || types.typeOf(expression) == null || types.mayBeEmpty(expression)) return false;
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN) {
+                return operatorExpression.getNotFlag() == null && typedBinding(operatorExpression.getLeftExpr().getBinding()) && supportsValue(operatorExpression.getRightExpr());
+            }
+            return supportsValue(operatorExpression.getLeftExpr()) && supportsValue(operatorExpression.getRightExpr());
+        }
+        if (expression instanceof FuncCallStatement funcCall) return supportsCall(funcCall);
+        if (expression.getIdentifier() != null) return typedBinding(expression.getBinding());
+
+        return true;
+    }
+
+    private boolean supportsCall(FuncCallStatement funcCall) {
+        List<Expression> arguments = funcCall.getArguments();
+
+        Builtin builtin = Builtin.find(funcCall.getIdentifier());
+        if (builtin != null) {
+            if (arguments.size() != builtin.getParameterCount()) return false;
+            return arguments.isEmpty() || supportsBuiltinArgument(builtin, arguments.get(0));
+        }
+
+        FunctionDefinition called = findFunction(funcCall.getIdentifier());
+        if (called == null || !callable.contains(called) || arguments.size() != called.getParameters().size()) return false;
+
+        for (int i = 0; i < arguments.size(); i++) {
+            Expression argument = arguments.get(i);
+            if (!supportsValue(argument) || types.typeOf(argument) != called.getParameters().get(i).getType()) return false;
+        }
+        return true;
+    }
+
+    private boolean supportsBuiltinArgument(Builtin builtin, Expression argument) {
+        if (!supportsValue(argument)) return false;
+
+        TypeSpecifier type = types.typeOf(argument);
+        switch (builtin) {
+            case TO_INT, TO_STRING -> {
+                return true;
+            }
+            case TO_FLOAT -> {
+                return type == TypeSpecifier.INT || type == TypeSpecifier.FLOAT;
+            }
+            case TO_BOOL -> {
+                return type != TypeSpecifier.FLOAT;
+            }
+            case PRINT -> {
+                return type == TypeSpecifier.STRING;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private boolean isVoidCall(FuncCallStatement funcCall) {
+        FunctionDefinition called = findFunction(funcCall.getIdentifier());
+        return called != null && called.getType() == TypeSpecifier.VOID && Builtin.find(funcCall.getIdentifier()) == null;
+    }
+
+    private boolean typedBinding(Binding binding) {
+        return binding != null && types.typeOf(binding) != null && !types.mayBeEmpty(binding);
+    }
+
+    // WRITING CLASS, returns null if some function or loop turned out too large to be compiled
+    private byte[] writeClass() {
+        classWriter = new ClassWriter(CLASS_NAME, "java/lang/Object", "tkom/project/jvm/CompiledProgram");
+
+        for (FunctionDefinition compiledFunction : compiled) {
+            compileFunction(compiledFunction);
+            if (size > MAX_CODE_SIZE) {
+                tooLarge.add(compiledFunction);
+                return null;
+            }
+            classWriter.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, methodName(compiledFunction), descriptor(compiledFunction), code, size, maxStack, nextLocal);
+        }
+
+        loopVariables.clear();
+        for (int i = 0; i < loops.size(); i++) {
+            compileLoop(loopFunctions.get(i), loops.get(i));
+            if (size > MAX_CODE_SIZE) {
+                tooLargeLoops.add(loops.get(i));
+                return null;
+            }
+            classWriter.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "loop_" + i, "(" + RUNTIME_TYPE + ")Z", code, size, maxStack, nextLocal);
+        }
+
+        compileConstructor();
+        compileCallMethod();
+        compileEnterLoopMethod();
+        return classWriter.toByteArray();
+    }
+
+    private void startCode(int firstLocal) {
+        code = new byte[256];
+        size = 0;
+        stack = 0;
+        maxStack = 0;
+        locals.clear();
+        nextLocal = firstLocal;
+        loop = null;
+    }
+
+    private void compileFunction(FunctionDefinition compiledFunction) {
+        // runtime is the first argument of every compiled function
+        startCode(1);
+        function = compiledFunction;
+        for (Parameter parameter : compiledFunction.getParameters()) {
+            locals.put(parameter.getBinding(), nextLocal++);
+        }
+
+        for (Statement statement : compiledFunction.getStatements()) {
+            statementExits = new ArrayList<>();
+            statement.accept(this);
+            for (Integer exit : statementExits) patch(exit);
+        }
+
+        // function returning a value always ends with return
+        if (compiledFunction.getType() == TypeSpecifier.VOID) emit(0, JvmOpcode.RETURN);
+    }
+
+    // Loop method returns whether the loop returned from its function, the returned value is saved on the frame stack
+    // variables are loaded from the frame before the first iteration and stored back when the loop ends
+    private void compileLoop(FunctionDefinition loopFunction, WhileStatement loopStatement) {
+        startCode(1);
+        function = loopFunction;
+        frameVariables = new ArrayList<>();
+        loopReturns = new ArrayList<>();
+
+        // variables taken from the frame are known once the loop is compiled, so loading them is placed after it
+        int entry = emitJump(JvmOpcode.GOTO, 0);
+        int start = size;
+        visitWhileStatement(loopStatement);
+        compileLoopExit(JvmOpcode.ICONST_0);
+
+        for (Integer loopReturn : loopReturns) patch(loopReturn);
+        compileLoopExit(JvmOpcode.ICONST_1);
+
+        patch(entry);
+        for (Binding binding : frameVariables) {
+            TypeSpecifier type = binding.getType();
+            emit(1, JvmOpcode.ALOAD, 0);
+            emitConstant(binding.getIndex());
+            emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "local" + typeName(type), "(I)" + typeDescriptor(type));
+            emitLocal(storeOpcode(type), locals.get(binding), -1);
+        }
+        emitJumpTo(JvmOpcode.GOTO, start);
+
+        loopVariables.add(frameVariables);
+        frameVariables = null;
+        loopReturns = null;
+    }
+
+    private void compileLoopExit(int returned) {
+        for (Binding binding : frameVariables) {
+            if (!binding.isMutable()) continue;
+
+            TypeSpecifier type = binding.getType();
+            emit(1, JvmOpcode.ALOAD, 0);
+            emitLocal(loadOpcode(type), locals.get(binding), 1);
+            emitConstant(binding.getIndex());
+            emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "storeLocal", "(" + typeDescriptor(type) + "I)V");
+        }
+        emit(1, returned);
+        emit(-1, JvmOpcode.IRETURN);
+    }
+
+    private void compileConstructor() {
+        startCode(1);
+        emit(1, JvmOpcode.ALOAD, 0);
+        emitInvoke(JvmOpcode.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        emit(0, JvmOpcode.RETURN);
+
+        classWriter.addMethod(ClassWriter.ACC_PUBLIC, "<init>", "()V", code, size, maxStack, nextLocal);
+    }
+
+    // call(function, runtime) takes the arguments from the frame stack, calls the function and puts its result there
+    private void compileCallMethod() {
+        startCode(3);
+        if (compiled.isEmpty()) {
+            emit(0, JvmOpcode.RETURN);
+            classWriter.addMethod(ClassWriter.ACC_PUBLIC, "call", "(I" + RUNTIME_TYPE + ")V", code, size, maxStack, nextLocal);
+            return;
+        }
+        emit(1, JvmOpcode.ILOAD, 1);
+
+        int switchPosition = size;
+        emit(-1, JvmOpcode.TABLESWITCH);
+        while (size % 4 != 0) emit(0, 0);
+
+        int table = size;
+        for (int i = 0; i < 3 + compiled.size(); i++) emitInt(0);
+        writeInt(table + 4, 0);
+        writeInt(table + 8, compiled.size() - 1);
+
+        for (int i = 0; i < compiled.size(); i++) {
+            writeInt(table + 12 + 4*i, size - switchPosition);
+            compileCallCase(compiled.get(i));
+        }
+
+        writeInt(table, size - switchPosition);
+        emit(0, JvmOpcode.RETURN);
+
+        classWriter.addMethod(ClassWriter.ACC_PUBLIC, "call", "(I" + RUNTIME_TYPE + ")V", code, size, maxStack, nextLocal);
+    }
+
+    private void compileCallCase(FunctionDefinition called) {
+        List<Parameter> parameters = called.getParameters();
+        int firstArgument = 3;
+        nextLocal = Math.max(nextLocal, firstArgument + parameters.size());
+
+        // last argument is on top of the frame stack
+        for (int i = parameters.size()-1; i >= 0; i--) {
+            TypeSpecifier type = parameters.get(i).getType();
+            emit(1, JvmOpcode.ALOAD, 2);
+            emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "pop" + typeName(type), "()" + typeDescriptor(type));
+            emitLocal(storeOpcode(type), firstArgument + i, -1);
+        }
+
+        TypeSpecifier type = called.getType();
+        if (type != TypeSpecifier.VOID) emit(1, JvmOpcode.ALOAD, 2);
+
+        emit(1, JvmOpcode.ALOAD, 2);
+        for (int i = 0; i < parameters.size(); i++) {
+            emitLocal(loadOpcode(parameters.get(i).getType()), firstArgument + i, 1);
+        }
+        emitInvoke(JvmOpcode.INVOKESTATIC, CLASS_NAME, methodName(called), descriptor(called));
+
+        // main is only called to be executed, the result of function without value is empty
+        if (type != TypeSpecifier.VOID) emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "push" + typeName(type), "(" + typeDescriptor(type) + ")V");
+        else if (called != main) {
+            emit(1, JvmOpcode.ALOAD, 2);
+            emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "pushEmpty", "()V");
+        }
+        emit(0, JvmOpcode.RETURN);
+    }
+
+    // enterLoop(loop, runtime) continues the loop in the current frame, returns whether it returned from its function
+    private void compileEnterLoopMethod() {
+        startCode(3);
+        if (loops.isEmpty()) {
+            emit(1, JvmOpcode.ICONST_0);
+            emit(-1, JvmOpcode.IRETURN);
+            classWriter.addMethod(ClassWriter.ACC_PUBLIC, "enterLoop", "(I" + RUNTIME_TYPE + ")Z", code, size, maxStack, nextLocal);
+            return;
+        }
+        emit(1, JvmOpcode.ILOAD, 1);
+
+        int switchPosition = size;
+        emit(-1, JvmOpcode.TABLESWITCH);
+        while (size % 4 != 0) emit(0, 0);
+
+        int table = size;
+        for (int i = 0; i < 3 + loops.size(); i++) emitInt(0);
+        writeInt(table + 4, 0);
+        writeInt(table + 8, loops.size() - 1);
+
+        for (int i = 0; i < loops.size(); i++) {
+            writeInt(table + 12 + 4*i, size - switchPosition);
+            emit(1, JvmOpcode.ALOAD, 2);
+            emitInvoke(JvmOpcode.INVOKESTATIC, CLASS_NAME, "loop_" + i, "(" + RUNTIME_TYPE + ")Z");
+            emit(-1, JvmOpcode.IRETURN);
+        }
+
+        writeInt(table, size - switchPosition);
+        emit(1, JvmOpcode.ICONST_0);
+        emit(-1, JvmOpcode.IRETURN);
+
+        classWriter.addMethod(ClassWriter.ACC_PUBLIC, "enterLoop", "(I" + RUNTIME_TYPE + ")Z", code, size, maxStack, nextLocal);
+    }
+
+    // STATEMENTS
+    private void compileBlock(List<Statement> statements) {
+        if (statements == null) return;
+
+        for (Statement statement : statements) {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public Void visitVariableDefinition(VariableDefinition statement) {
+        compileValue(statement.getValue());
+
+        // variable defined again in a loop keeps its local variable
+        Binding binding = statement.getBinding();
+        Integer slot = locals.get(binding);
+        if (slot == null) {
+            slot = nextLocal++;
+            locals.put(binding, slot);
+        }
+        emitLocal(storeOpcode(binding.getType()), slot, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(Expression statement) {
+        // value of expression used as a statement is dropped
+        if (statement instanceof FuncCallStatement funcCall && isVoidCall(funcCall)) compileCall(funcCall);
+        else {
+            compileValue(statement);
+            emit(-1, JvmOpcode.POP);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfElseStatement(IfElseStatement statement) {
+        ArrayList<IfBlock> conditionalBlocks = new ArrayList<>();
+        conditionalBlocks.add(statement.getIfStatements());
+        conditionalBlocks.addAll(statement.getElifStatements());
+
+        ArrayList<Integer> exits = new ArrayList<>();
+        for (IfBlock block : conditionalBlocks) {
+            int nextBlock = compileCondition(block.getCondition());
+
+            compileBlock(block.getStatements());
+            exits.add(emitJump(JvmOpcode.GOTO, 0));
+            patch(nextBlock);
+        }
+
+        if (statement.getElseStatements() != null) compileBlock(statement.getElseStatements().getStatements());
+        for (Integer exit : exits) patch(exit);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStatement(WhileStatement statement) {
+        int start = size;
+        int exit = compileCondition(statement.getCondition());
+
+        loop = new Loop(loop, start);
+        compileBlock(statement.getStatements());
+        emitJumpTo(JvmOpcode.GOTO, start);
+
+        patch(exit);
+        for (Integer loopBreak : loop.breaks) patch(loopBreak);
+        loop = loop.enclosing;
+        return null;
+    }
+
+    @Override
+    public Void visitExistStatement(ExistStatement statement) {
+        compileValue(statement.getExistValue());
+        emit(-1, JvmOpcode.POP);
+
+        compileBlock(statement.getExistStatements());
+        return null;
+    }
+
+    @Override
+    public Void visitPatternMatchingStatement(PatternMatchingStatement statement) {
+        // functions and loops with a match statement are filtered out by supportsStatement
+        throw new IllegalStateException("Match statement reached the JVM compiler, it should have been filtered out before compilation");
+    }
+
+    @Override
+    public Void visitJumpStatement(JumpStatement statement) {
+        if (statement.getType() == JumpType.BREAK) {
+            loop.breaks.add(emitJump(JvmOpcode.GOTO, 0));
+            return null;
+        }
+        if (statement.getType() == JumpType.CONTINUE) {
+            emitJumpTo(JvmOpcode.GOTO, loop.start);
+            return null;
+        }
+
+        Expression value = statement.getRetExpr();
+        if (loopReturns != null) {
+            compileLoopReturn(value);
+            loopReturns.add(emitJump(JvmOpcode.GOTO, 0));
+        } else if (function == main) {
+            if (value != null) {
+                compileValue(value);
+                emit(-1, JvmOpcode.POP);
+            }
+            statementExits.add(emitJump(JvmOpcode.GOTO, 0));
+        } else if (function.getType() == TypeSpecifier.VOID) emit(0, JvmOpcode.RETURN);
+        else if (value instanceof FuncCallStatement call && call.getNotFlag() == null && findFunction(call.getIdentifier()) == function) compileSelfTailCall(call);
+        else {
+            compileValue(value);
+            emit(-1, returnOpcode(function.getType()));
+        }
+        return null;
+    }
+
+    // Arguments replace the parameters and the method starts again, so tail recursion doesn't grow the Java stack
+    // all of them are evaluated before the first parameter changes, as they can read the parameters
+    private void compileSelfTailCall(FuncCallStatement call) {
+        List<Expression> arguments = call.getArguments();
+        for (Expression argument : arguments) {
+            compileValue(argument);
+        }
+        List<Parameter> parameters = function.getParameters();
+        for (int i = parameters.size()-1; i >= 0; i--) {
+            emitLocal(storeOpcode(parameters.get(i).getType()), locals.get(parameters.get(i).getBinding()), -1);
+        }
+        emitJumpTo(JvmOpcode.GOTO, 0);
+    }
+
+    // value returned from a loop method is saved like Interpreter does, main ignores it
+    private void compileLoopReturn(Expression value) {
+        if (function == main) {
+            if (value != null) {
+                compileValue(value);
+                emit(-1, JvmOpcode.POP);
+            }
+            return;
+        }
+
+        emit(1, JvmOpcode.ALOAD, 0);
+        if (value == null) emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "pushEmpty", "()V");
+        else {
+            TypeSpecifier type = types.typeOf(value);
+            compileValue(value);
+            emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "push" + typeName(type), "(" + typeDescriptor(type) + ")V");
+        }
+        emit(1, JvmOpcode.ALOAD, 0);
+        emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "saveReturnedValue", "()V");
+    }
+
+    // EXPRESSIONS, every compiled expression leaves its value on the operand stack
+    private void compileValue(Expression expression) {
+        TypeSpecifier type = types.typeOf(expression);
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            Operator op = operatorExpression.getOperator();
+            if (op == Operator.ASSIGN) {
+                compileAssignment(operatorExpression);
+                return;
+            }
+
+            if (isComparison(op)) {
+                int falseJump = compileComparison(operatorExpression);
+                emit(1, JvmOpcode.ICONST_1);
+                int exit = emitJump(JvmOpcode.GOTO, 0);
+
+                patch(falseJump);
+                stack--;
+                emit(1, JvmOpcode.ICONST_0);
+                patch(exit);
+            } else if (op == Operator.AND || op == Operator.OR) {
+                // right side is evaluated only when the left one doesn't decide the result, which is then the left value
+                compileValue(operatorExpression.getLeftExpr());
+                int decided = emitJump((op == Operator.AND) ? JvmOpcode.IFEQ : JvmOpcode.IFNE, -1);
+                compileValue(operatorExpression.getRightExpr());
+                int exit = emitJump(JvmOpcode.GOTO, 0);
+
+                patch(decided);
+                stack--;
+                emit(1, (op == Operator.AND) ? JvmOpcode.ICONST_0 : JvmOpcode.ICONST_1);
+                patch(exit);
+            } else {
+                compileOperands(operatorExpression);
+                compileOperator(op, types.typeOf(operatorExpression.getLeftExpr()));
+            }
+            compileNegation(type, expression.getNotFlag());
+        } else if (expression instanceof FuncCallStatement funcCall) compileCall(funcCall);
+        else if (expression.getIdentifier() != null) {
+            compileLoad(expression.getBinding());
+            compileNegation(type, expression.getNotFlag());
+        } else compileLiteral(expression);
+    }
+
+    private void compileLiteral(Expression expression) {
+        boolean negated = expression.getNotFlag() != null;
+
+        switch (expression.getType()) {
+            case INT -> emitConstant(negated ? -expression.getIntValue() : expression.getIntValue());
+            case FLOAT -> {
+                float value = negated ? -expression.getFloatValue() : expression.getFloatValue();
+                if (Float.floatToRawIntBits(value) == 0) emit(1, JvmOpcode.FCONST_0);
+                else emitLoadConstant(classWriter.floatConstant(value));
+            }
+            case BOOL -> emit(1, (negated != expression.getBoolValue()) ? JvmOpcode.ICONST_1 : JvmOpcode.ICONST_0);
+            default -> emitLoadConstant(classWriter.stringConstant(expression.getStringValue()));
+        }
+    }
+
+    // operands are evaluated right first like in Interpreter, unless the order can't be noticed
+    private void compileOperands(OperatorExpression expression) {
+        if (isPure(expression.getLeftExpr()) && isPure(expression.getRightExpr())) {
+            compileValue(expression.getLeftExpr());
+            compileValue(expression.getRightExpr());
+        } else {
+            compileValue(expression.getRightExpr());
+            compileValue(expression.getLeftExpr());
+            emit(0, JvmOpcode.SWAP);
+        }
+    }
+
+    private boolean isPure(Expression expression) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            return operatorExpression.getOperator() != Operator.ASSIGN && isPure(operatorExpression.getLeftExpr()) && isPure(operatorExpression.getRightExpr());
+        }
+        return !(expression instanceof FuncCallStatement);
+    }
+
+    private void compileOperator(Operator op, TypeSpecifier type) {
+        switch (type) {
+            case INT -> {
+                switch (op) {
+                    case ADD -> emit(-1, JvmOpcode.IADD);
+                    case SUB -> emit(-1, JvmOpcode.ISUB);
+                    case MULTI -> emit(-1, JvmOpcode.IMUL);
+                    case DIV -> emitInvoke(JvmOpcode.INVOKESTATIC, RUNTIME, "divide", "(II)F");
+                    default -> emitInvoke(JvmOpcode.INVOKESTATIC, RUNTIME, "modulo", "(II)I");
+                }
+            }
+            case FLOAT -> {
+                switch (op) {
+                    case ADD -> emit(-1, JvmOpcode.FADD);
+                    case SUB -> emit(-1, JvmOpcode.FSUB);
+                    case MULTI -> emit(-1, JvmOpcode.FMUL);
+                    case DIV -> emitInvoke(JvmOpcode.INVOKESTATIC, RUNTIME, "divide", "(FF)F");
+                    default -> emitInvoke(JvmOpcode.INVOKESTATIC, RUNTIME, "modulo", "(FF)F");
+                }
+            }
+            case STRING -> emitInvoke(JvmOpcode.INVOKESTATIC, RUNTIME, "concat", "(" + STRING_TYPE + STRING_TYPE + ")" + STRING_TYPE);
+        }
+    }
+
+    private void compileNegation(TypeSpecifier type, NotValue notFlag) {
+        if (notFlag == null) return;
+
+        switch (type) {
+            case INT -> emit(0, JvmOpcode.INEG);
+            case FLOAT -> emit(0, JvmOpcode.FNEG);
+            default -> {
+                emit(1, JvmOpcode.ICONST_1);
+                emit(-1, JvmOpcode.IXOR);
+            }
+        }
+    }
+
+    // Returns the position of jump taken when the condition is false
+    private int compileCondition(Expression condition) {
+        if (condition instanceof OperatorExpression operatorExpression && isComparison(operatorExpression.getOperator()) && condition.getNotFlag() == null) {
+            return compileComparison(operatorExpression);
+        }
+
+        compileValue(condition);
+        return emitJump(JvmOpcode.IFEQ, -1);
+    }
+
+    private int compileComparison(OperatorExpression expression) {
+        Operator op = expression.getOperator();
+        compileOperands(expression);
+
+        switch (types.typeOf(expression.getLeftExpr())) {
+            case INT -> {
+                switch (op) {
+                    case LESS -> {
+                        return emitJump(JvmOpcode.IF_ICMPGE, -2);
+                    }
+                    case LESS_EQ -> {
+                        return emitJump(JvmOpcode.IF_ICMPGT, -2);
+                    }
+                    case MORE -> {
+                        return emitJump(JvmOpcode.IF_ICMPLE, -2);
+                    }
+                    case MORE_EQ -> {
+                        return emitJump(JvmOpcode.IF_ICMPLT, -2);
+                    }
+                    case EQUAL -> {
+                        return emitJump(JvmOpcode.IF_ICMPNE, -2);
+                    }
+                    default -> {
+                        return emitJump(JvmOpcode.IF_ICMPEQ, -2);
+                    }
+                }
+            }
+            case FLOAT -> {
+                // comparison with NaN is false, so it's given the result which fails the test
+                switch (op) {
+                    case LESS -> {
+                        emit(-1, JvmOpcode.FCMPG);
+                        return emitJump(JvmOpcode.IFGE, -1);
+                    }
+                    case LESS_EQ -> {
+                        emit(-1, JvmOpcode.FCMPG);
+                        return emitJump(JvmOpcode.IFGT, -1);
+                    }
+                    case MORE -> {
+                        emit(-1, JvmOpcode.FCMPL);
+                        return emitJump(JvmOpcode.IFLE, -1);
+                    }
+                    case MORE_EQ -> {
+                        emit(-1, JvmOpcode.FCMPL);
+                        return emitJump(JvmOpcode.IFLT, -1);
+                    }
+                    default -> {
+                        emitInvoke(JvmOpcode.INVOKESTATIC, "java/lang/Float", "compare", "(FF)I");
+                        return emitJump((op == Operator.EQUAL) ? JvmOpcode.IFNE : JvmOpcode.IFEQ, -1);
+                    }
+                }
+            }
+            default -> {
+                emitInvoke(JvmOpcode.INVOKESTATIC, "java/util/Objects", "equals", "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+                return emitJump((op == Operator.EQUAL) ? JvmOpcode.IFEQ : JvmOpcode.IFNE, -1);
+            }
+        }
+    }
+
+    private boolean isComparison(Operator op) {
+        return switch (op) {
+            case LESS, LESS_EQ, MORE, MORE_EQ, EQUAL, NOT_EQUAL -> true;
+            default -> false;
+        };
+    }
+
+    // VARIABLES
+    private void compileLoad(Binding binding) {
+        TypeSpecifier type = binding.getType();
+
+        if (binding.isGlobal()) {
+            emit(1, JvmOpcode.ALOAD, 0);
+            emitConstant(binding.getIndex());
+            emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "global" + typeName(type), "(I)" + typeDescriptor(type));
+        } else emitLocal(loadOpcode(type), local(binding), 1);
+    }
+
+    // loop method finds the variables defined before the loop in the frame
+    private int local(Binding binding) {
+        Integer slot = locals.get(binding);
+        if (slot == null) {
+            slot = nextLocal++;
+            locals.put(binding, slot);
+            frameVariables.add(binding);
+        }
+        return slot;
+    }
+
+    private void compileAssignment(OperatorExpression expression) {
+        Binding binding = expression.getLeftExpr().getBinding();
+        TypeSpecifier type = binding.getType();
+        compileValue(expression.getRightExpr());
+
+        // compiled variables always have a value, so the non mutable ones can't get another one
+        if (!binding.isMutable()) {
+            emitLoadConstant(classWriter.stringConstant(binding.getIdentifier()));
+            emitInvoke(JvmOpcode.INVOKESTATIC, RUNTIME, "reassign", "(" + STRING_TYPE + ")Ljava/lang/RuntimeException;");
+            emit(-1, JvmOpcode.ATHROW);
+            return;
+        }
+
+        // assigned value stays on the stack as the result of assignment
+        if (binding.isGlobal()) {
+            emit(1, JvmOpcode.ALOAD, 0);
+            emitConstant(binding.getIndex());
+            String valueType = typeDescriptor(type);
+            emitInvoke(JvmOpcode.INVOKESTATIC, RUNTIME, "storeGlobal", "(" + valueType + RUNTIME_TYPE + "I)" + valueType);
+        } else {
+            emit(1, JvmOpcode.DUP);
+            emitLocal(storeOpcode(type), local(binding), -1);
+        }
+    }
+
+    // CALLS
+    private void compileCall(FuncCallStatement funcCall) {
+        List<Expression> arguments = funcCall.getArguments();
+
+        Builtin builtin = Builtin.find(funcCall.getIdentifier());
+        if (builtin != null) {
+            compileBuiltinCall(builtin, arguments);
+            return;
+        }
+
+        FunctionDefinition called = findFunction(funcCall.getIdentifier());
+        emit(1, JvmOpcode.ALOAD, 0);
+        for (Expression argument : arguments) {
+            compileValue(argument);
+        }
+        emitInvoke(JvmOpcode.INVOKESTATIC, CLASS_NAME, methodName(called), descriptor(called));
+    }
+
+    private void compileBuiltinCall(Builtin builtin, List<Expression> arguments) {
+        switch (builtin) {
+            case INPUT -> {
+                emit(1, JvmOpcode.ALOAD, 0);
+                emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "input", "()" + STRING_TYPE);
+                return;
+            }
+            case PRINT -> {
+                emit(1, JvmOpcode.ALOAD, 0);
+                compileValue(arguments.get(0));
+                emitInvoke(JvmOpcode.INVOKEVIRTUAL, RUNTIME, "print", "(" + STRING_TYPE + ")" + STRING_TYPE);
+                return;
+            }
+            default -> {
+            }
+        }
+
+        // conversion to the type the value already has leaves it as it is
+        Expression argument = arguments.get(0);
+        TypeSpecifier type = types.typeOf(argument);
+        compileValue(argument);
+
+        switch (builtin) {
+            case TO_INT -> {
+                if (type != TypeSpecifier.INT) emitInvoke(JvmOpcode.INVOKESTATIC, RUNTIME, "toInt", "(" + typeDescriptor(type) + ")I");
+            }
+            case TO_FLOAT -> {
+                if (type == TypeSpecifier.INT) emit(0, JvmOpcode.I2F);
+            }
+            case TO_STRING -> {
+                switch (type) {
+                    case INT -> emitInvoke(JvmOpcode.INVOKESTATIC, "java/lang/Integer", "toString", "(I)" + STRING_TYPE);
+                    case FLOAT -> emitInvoke(JvmOpcode.INVOKESTATIC, "java/lang/Float", "toString", "(F)" + STRING_TYPE);
+                    case BOOL -> emitInvoke(JvmOpcode.INVOKESTATIC, "java/lang/Boolean", "toString", "(Z)" + STRING_TYPE);
+                    default -> {
+                    }
+                }
+            }
+            default -> {
+                if (type == TypeSpecifier.INT) emitInvoke(JvmOpcode.INVOKESTATIC, RUNTIME, "toBool", "(I)Z");
+                else if (type == TypeSpecifier.STRING) emitInvoke(JvmOpcode.INVOKESTATIC, "java/lang/Boolean", "parseBoolean", "(" + STRING_TYPE + ")Z");
+            }
+        }
+    }
+
+    private FunctionDefinition findFunction(String name) {
+        for (FunctionDefinition candidate : program.getFunctions()) {
+            if (candidate.getName().equals(name)) return candidate;
+        }
+        return null;
+    }
+
+    // TYPES
+    private String methodName(FunctionDefinition compiledFunction) {
+        return "tkom_" + compiledFunction.getName();
+    }
+
+    private String descriptor(FunctionDefinition compiledFunction) {
+        StringBuilder descriptor = new StringBuilder("(" + RUNTIME_TYPE);
+        for (Parameter parameter : compiledFunction.getParameters()) {
+            descriptor.append(typeDescriptor(parameter.getType()));
+        }
+
+        TypeSpecifier type = compiledFunction.getType();
+        return descriptor.append(")").append((type == TypeSpecifier.VOID) ? "V" : typeDescriptor(type)).toString();
+    }
+
+    private String typeDescriptor(TypeSpecifier type) {
+        return switch (type) {
+            case INT -> "I";
+            case FLOAT -> "F";
+            case BOOL -> "Z";
+            default -> STRING_TYPE;
+        };
+    }
+
+    private String typeName(TypeSpecifier type) {
+        return switch (type) {
+            case INT -> "Int";
+            case FLOAT -> "Float";
+            case BOOL -> "Bool";
+            default -> "String";
+        };
+    }
+
+    private int loadOpcode(TypeSpecifier type) {
+        return switch (type) {
+            case INT, BOOL -> JvmOpcode.ILOAD;
+            case FLOAT -> JvmOpcode.FLOAD;
+            default -> JvmOpcode.ALOAD;
+        };
+    }
+
+    private int storeOpcode(TypeSpecifier type) {
+        return switch (type) {
+            case INT, BOOL -> JvmOpcode.ISTORE;
+            case FLOAT -> JvmOpcode.FSTORE;
+            default -> JvmOpcode.ASTORE;
+        };
+    }
+
+    private int returnOpcode(TypeSpecifier type) {
+        return switch (type) {
+            case INT, BOOL -> JvmOpcode.IRETURN;
+            case FLOAT -> JvmOpcode.FRETURN;
+            default -> JvmOpcode.ARETURN;
+        };
+    }
+
+    // EMITTING, every instruction is given the change of operand stack height it makes
+    private void emitConstant(int value) {
+        if (value >= -1 && value <= 5) emit(1, JvmOpcode.ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) emit(1, JvmOpcode.BIPUSH, value);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) emit(1, JvmOpcode.SIPUSH, value >> 8, value);
+        else emitLoadConstant(classWriter.intConstant(value));
+    }
+
+    private void emitLoadConstant(int index) {
+        if (index < 256) emit(1, JvmOpcode.LDC, index);
+        else emit(1, JvmOpcode.LDC_W, index >> 8, index);
+    }
+
+    private void emitLocal(int opcode, int slot, int stackChange) {
+        if (slot < 256) emit(stackChange, opcode, slot);
+        else emit(stackChange, JvmOpcode.WIDE, opcode, slot >> 8, slot);
+    }
+
+    private void emitInvoke(int opcode, String owner, String name, String descriptor) {
+        // every value used here takes one slot of the operand stack
+        int argumentCount = 0;
+        for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+            if (descriptor.charAt(i) == 'L') i = descriptor.indexOf(';', i);
+            argumentCount++;
+        }
+        if (opcode != JvmOpcode.INVOKESTATIC) argumentCount++;
+        int resultCount = descriptor.endsWith(")V") ? 0 : 1;
+
+        int index = classWriter.methodConstant(owner, name, descriptor);
+        emit(resultCount - argumentCount, opcode, index >> 8, index);
+    }
+
+    // Returns the position of jump, to be patched once the target is known
+    private int emitJump(int opcode, int stackChange) {
+        emit(stackChange, opcode, 0, 0);
+        return size - 3;
+    }
+
+    private void emitJumpTo(int opcode, int target) {
+        int offset = target - size;
+        emit(0, opcode, offset >> 8, offset);
+    }
+
+    private void patch(int position) {
+        int offset = size - position;
+        code[position + 1] = (byte) (offset >> 8);
+        code[position + 2] = (byte) offset;
+    }
+
+    private void emitInt(int value) {
+        emit(0, value >> 24, value >> 16, value >> 8, value);
+    }
+
+    private void writeInt(int position, int value) {
+        code[position] = (byte) (value >> 24);
+        code[position + 1] = (byte) (value >> 16);
+        code[position + 2] = (byte) (value >> 8);
+        code[position + 3] = (byte) value;
+    }
+
+    private void emit(int stackChange, int... bytes) {
+        if (size + bytes.length > code.length) code = Arrays.copyOf(code, Math.max(code.length * 2, size + bytes.length));
+
+        for (int value : bytes) {
+            code[size++] = (byte) value;
+        }
+        stack += stackChange;
+        maxStack = Math.max(maxStack, stack);
+    }
+}
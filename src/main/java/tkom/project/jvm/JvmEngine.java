@@ -0,0 +1,63 @@
+package tkom.project.jvm;
+
+import tkom.project.Engine;
+import tkom.project.Resolver;
+import tkom.project.closure.StatementCode;
+import tkom.project.exceptions.InvalidJumpStatement;
+import tkom.project.nodes.FunctionDefinition;
+import tkom.project.nodes.JumpType;
+import tkom.project.nodes.Program;
+import tkom.project.optimizer.Optimizer;
+import tkom.project.optimizer.OptimizerPolicy;
+import tkom.project.scope.FrameStack;
+import tkom.project.scope.Reader;
+
+// Executes functions compiled by JvmCompiler as JVM code, the others as closures made by ClosureCompiler
+public class JvmEngine implements Engine {
+    private final Program program;
+    private OptimizerPolicy optimizerPolicy = OptimizerPolicy.DEFAULT;
+    private final FrameStack frames;
+    private final Reader debug;
+
+    public JvmEngine(Program program) {
+        this(program, null);
+    }
+
+    public JvmEngine(Program program, Reader reader) {
+        this.program = program;
+        this.frames = new FrameStack();
+        this.debug = reader;
+    }
+
+    @Override
+    public void setOptimizerPolicy(OptimizerPolicy optimizerPolicy) {
+        this.optimizerPolicy = optimizerPolicy;
+    }
+
+    @Override
+    public String execute() {
+        Resolver resolver = new Resolver(program);
+        resolver.resolve();
+        FunctionDefinition main = resolver.findMain();
+        new Optimizer(program, optimizerPolicy).optimize();
+
+        JvmProgram compiled = new JvmProgram(program, main, frames, debug);
+
+        // Initialize global variables in order of their definition
+        frames.reserveGlobals(program.getVariables().size());
+        for (StatementCode globalVariable : compiled.compileGlobals()) {
+            globalVariable.run(frames);
+        }
+
+        if (compiled.executeMain()) return ("Program executed CORRECTLY!");
+
+        // return in main only ends the statement it was in
+        frames.enterFrame(0, compiled.getMain().getFrameSize());
+        for (StatementCode statement : compiled.getMain().getBody()) {
+            JumpType jump = statement.run(frames);
+            if (jump != null && jump != JumpType.RETURN) throw new InvalidJumpStatement("main");
+        }
+
+        return ("Program executed CORRECTLY!");
+    }
+}
@@ -0,0 +1,71 @@
+package tkom.project.jvm;
+
+// Instructions of the Java virtual machine used by JvmCompiler
+public final class JvmOpcode {
+    private JvmOpcode() {
+    }
+
+    // CONSTANTS
+    public static final int ICONST_M1 = 0x02;
+    public static final int ICONST_0 = 0x03;
+    public static final int ICONST_1 = 0x04;
+    public static final int FCONST_0 = 0x0b;
+    public static final int BIPUSH = 0x10;
+    public static final int SIPUSH = 0x11;
+    public static final int LDC = 0x12;
+    public static final int LDC_W = 0x13;
+
+    // LOCAL VARIABLES
+    public static final int ILOAD = 0x15;
+    public static final int FLOAD = 0x17;
+    public static final int ALOAD = 0x19;
+    public static final int ISTORE = 0x36;
+    public static final int FSTORE = 0x38;
+    public static final int ASTORE = 0x3a;
+    public static final int WIDE = 0xc4;
+
+    // OPERAND STACK
+    public static final int POP = 0x57;
+    public static final int DUP = 0x59;
+    public static final int SWAP = 0x5f;
+
+    // ARITHMETIC
+    public static final int IADD = 0x60;
+    public static final int FADD = 0x62;
+    public static final int ISUB = 0x64;
+    public static final int FSUB = 0x66;
+    public static final int IMUL = 0x68;
+    public static final int FMUL = 0x6a;
+    public static final int INEG = 0x74;
+    public static final int FNEG = 0x76;
+    public static final int IXOR = 0x82;
+    public static final int I2F = 0x86;
+    public static final int FCMPL = 0x95;
+    public static final int FCMPG = 0x96;
+
+    // JUMPS, offset is relative to the jump instruction
+    public static final int IFEQ = 0x99;
+    public static final int IFNE = 0x9a;
+    public static final int IFLT = 0x9b;
+    public static final int IFGE = 0x9c;
+    public static final int IFGT = 0x9d;
+    public static final int IFLE = 0x9e;
+    public static final int IF_ICMPEQ = 0x9f;
+    public static final int IF_ICMPNE = 0xa0;
+    public static final int IF_ICMPLT = 0xa1;
+    public static final int IF_ICMPGE = 0xa2;
+    public static final int IF_ICMPGT = 0xa3;
+    public static final int IF_ICMPLE = 0xa4;
+    public static final int GOTO = 0xa7;
+    public static final int TABLESWITCH = 0xaa;
+
+    // METHODS
+    public static final int IRETURN = 0xac;
+    public static final int FRETURN = 0xae;
+    public static final int ARETURN = 0xb0;
+    public static final int RETURN = 0xb1;
+    public static final int INVOKEVIRTUAL = 0xb6;
+    public static final int INVOKESPECIAL = 0xb7;
+    public static final int INVOKESTATIC = 0xb8;
+    public static final int ATHROW = 0xbf;
+}
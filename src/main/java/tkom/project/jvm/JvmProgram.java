@@ -0,0 +1,91 @@
+package tkom.project.jvm;
+
+import tkom.project.closure.ClosureCompiler;
+import tkom.project.closure.ClosureFunction;
+import tkom.project.closure.StatementCode;
+import tkom.project.nodes.FunctionDefinition;
+import tkom.project.nodes.JumpType;
+import tkom.project.nodes.Program;
+import tkom.project.nodes.statements.WhileStatement;
+import tkom.project.scope.FrameStack;
+import tkom.project.scope.Reader;
+import tkom.project.trace.BranchProfile;
+import tkom.project.trace.TraceCompiler;
+
+import java.util.List;
+
+// Program compiled to closures, where functions JvmCompiler could compile are called as JVM code
+public class JvmProgram {
+    private final Program program;
+    private final Reader debug;
+    private final ClosureCompiler closureCompiler;
+    private final ClosureFunction closureMain;
+    private final JvmRuntime runtime;
+
+    private final JvmCompiler jvmCompiler;
+
+    private CompiledProgram compiledProgram;
+    private int compiledMain = -1;
+    private List<WhileStatement> compiledLoops = List.of();
+
+    public JvmProgram(Program program, FunctionDefinition main, FrameStack frames, Reader debug) {
+        this.program = program;
+        this.debug = debug;
+
+        closureCompiler = new ClosureCompiler(program, debug);
+        closureMain = closureCompiler.compile(main);
+        runtime = new JvmRuntime(frames, debug);
+
+        jvmCompiler = new JvmCompiler(program);
+        byte[] classFile = jvmCompiler.compile(main);
+        if (classFile == null) return;
+
+        // closures call compiled functions through the compiled program, with arguments left on the frame stack
+        compiledProgram = new JvmClassLoader().load(JvmCompiler.CLASS_NAME, classFile);
+        compiledLoops = jvmCompiler.getLoops();
+
+        List<FunctionDefinition> compiled = jvmCompiler.getCompiled();
+        for (int i = 0; i < compiled.size(); i++) {
+            int function = i;
+            CompiledProgram target = compiledProgram;
+
+            if (compiled.get(i) == main) compiledMain = i;
+            else closureCompiler.getFunction(compiled.get(i).getName()).setCompiled(f -> target.call(function, runtime));
+        }
+    }
+
+    public ClosureFunction getFunction(String name) {
+        return closureCompiler.getFunction(name);
+    }
+
+    public ClosureFunction getMain() {
+        return closureMain;
+    }
+
+    public StatementCode[] compileGlobals() {
+        return closureCompiler.compileGlobals();
+    }
+
+    // Loop JvmCompiler couldn't compile continues as closures, which work on the frame like Interpreter does
+    public CompiledLoop compileLoop(WhileStatement loop) {
+        int index = compiledLoops.indexOf(loop);
+        if (index == -1) return new CompiledLoop(loop.accept(closureCompiler), List.of());
+
+        CompiledProgram target = compiledProgram;
+        return new CompiledLoop(frames -> target.enterLoop(index, runtime) ? JumpType.RETURN : null, jvmCompiler.getLoopVariables(index));
+    }
+
+    // Traced loop has no assumptions about the frame, as its closures check values like Interpreter does
+    public CompiledLoop compileTrace(WhileStatement loop, BranchProfile profile) {
+        TraceCompiler traceCompiler = new TraceCompiler(program, debug, closureCompiler, profile);
+        return new CompiledLoop(traceCompiler.compileTrace(loop), List.of());
+    }
+
+    // Runs compiled main, returns false if main could not be compiled
+    public boolean executeMain() {
+        if (compiledMain == -1) return false;
+
+        compiledProgram.call(compiledMain, runtime);
+        return true;
+    }
+}
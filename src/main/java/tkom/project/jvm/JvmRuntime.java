@@ -0,0 +1,205 @@
+package tkom.project.jvm;
+
+import tkom.project.exceptions.DivisionByZeroException;
+import tkom.project.exceptions.ReassignNonMutableVariableException;
+import tkom.project.runtime.Builtin;
+import tkom.project.scope.FrameStack;
+import tkom.project.scope.Reader;
+
+// Called from compiled code, it's given to every compiled function as its first argument
+// Operations on plain values are static, so they can be inlined by the JIT compiler like any other Java code
+public final class JvmRuntime {
+    private final FrameStack frames;
+    private final Reader debug;
+
+    public JvmRuntime(FrameStack frames, Reader debug) {
+        this.frames = frames;
+        this.debug = debug;
+    }
+
+    // OPERATORS
+    public static int modulo(int left, int right) {
+        if (right == 0) throw new DivisionByZeroException();
+        return left % right;
+    }
+
+    public static float divide(int left, int right) {
+        if (right == 0) throw new DivisionByZeroException();
+        return (float) left / right;
+    }
+
+    public static float divide(float left, float right) {
+        if (right == 0) throw new DivisionByZeroException();
+        return left / right;
+    }
+
+    public static float modulo(float left, float right) {
+        if (right == 0) throw new DivisionByZeroException();
+        return left % right;
+    }
+
+    public static String concat(String left, String right) {
+        return left + right;
+    }
+
+    public static RuntimeException reassign(String name) {
+        return new ReassignNonMutableVariableException(name);
+    }
+
+    // PREDEFINED FUNCTIONS, only those with arguments they accept are compiled
+    public static int toInt(float value) {
+        return Math.round(value);
+    }
+
+    public static int toInt(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    public static int toInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException();
+        }
+    }
+
+    public static boolean toBool(int value) {
+        return value != 0;
+    }
+
+    public String print(String value) {
+        frames.pushString(value);
+        Builtin.PRINT.execute(frames, debug);
+        return frames.popString();
+    }
+
+    public String input() {
+        Builtin.INPUT.execute(frames, debug);
+        return frames.popString();
+    }
+
+    // GLOBAL VARIABLES, kept on the frame stack as they are shared with the other functions
+    public int globalInt(int index) {
+        frames.loadGlobal(index);
+        return frames.popInt();
+    }
+
+    public float globalFloat(int index) {
+        frames.loadGlobal(index);
+        return frames.popFloat();
+    }
+
+    public boolean globalBool(int index) {
+        frames.loadGlobal(index);
+        return frames.popBool();
+    }
+
+    public String globalString(int index) {
+        frames.loadGlobal(index);
+        return frames.popString();
+    }
+
+    // assigned value is returned, as it is also the result of assignment
+    public static int storeGlobal(int value, JvmRuntime runtime, int index) {
+        runtime.frames.pushInt(value);
+        runtime.storeGlobal(index);
+        return value;
+    }
+
+    public static float storeGlobal(float value, JvmRuntime runtime, int index) {
+        runtime.frames.pushFloat(value);
+        runtime.storeGlobal(index);
+        return value;
+    }
+
+    public static boolean storeGlobal(boolean value, JvmRuntime runtime, int index) {
+        runtime.frames.pushBool(value);
+        runtime.storeGlobal(index);
+        return value;
+    }
+
+    public static String storeGlobal(String value, JvmRuntime runtime, int index) {
+        runtime.frames.pushString(value);
+        runtime.storeGlobal(index);
+        return value;
+    }
+
+    private void storeGlobal(int index) {
+        frames.storeGlobal(index);
+        frames.pop();
+    }
+
+    // LOCAL VARIABLES of the frame a compiled loop was entered in
+    public int localInt(int slot) {
+        return frames.getInt(slot);
+    }
+
+    public float localFloat(int slot) {
+        return frames.getFloat(slot);
+    }
+
+    public boolean localBool(int slot) {
+        return frames.getBool(slot);
+    }
+
+    public String localString(int slot) {
+        return frames.getString(slot);
+    }
+
+    public void storeLocal(int value, int slot) {
+        frames.setInt(slot, value);
+    }
+
+    public void storeLocal(float value, int slot) {
+        frames.setFloat(slot, value);
+    }
+
+    public void storeLocal(boolean value, int slot) {
+        frames.setBool(slot, value);
+    }
+
+    public void storeLocal(String value, int slot) {
+        frames.setString(slot, value);
+    }
+
+    public void saveReturnedValue() {
+        frames.saveReturnedValue();
+    }
+
+    // ARGUMENTS AND RESULTS of functions called from outside of compiled code
+    public int popInt() {
+        return frames.popInt();
+    }
+
+    public float popFloat() {
+        return frames.popFloat();
+    }
+
+    public boolean popBool() {
+        return frames.popBool();
+    }
+
+    public String popString() {
+        return frames.popString();
+    }
+
+    public void pushInt(int value) {
+        frames.pushInt(value);
+    }
+
+    public void pushFloat(float value) {
+        frames.pushFloat(value);
+    }
+
+    public void pushBool(boolean value) {
+        frames.pushBool(value);
+    }
+
+    public void pushString(String value) {
+        frames.pushString(value);
+    }
+
+    public void pushEmpty() {
+        frames.pushEmpty();
+    }
+}
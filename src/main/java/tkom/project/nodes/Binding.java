@@ -0,0 +1,46 @@
+package tkom.project.nodes;
+
+public final class Binding {
+    private final String identifier;
+    private final TypeSpecifier type;
+
+    private final boolean mutable;
+    private final boolean optional;
+
+    // global variables are indexed in the program, locals by their slot in the function frame
+    private final boolean global;
+    private final int index;
+
+    public Binding(String identifier, TypeSpecifier type, boolean mutable, boolean optional, boolean global, int index) {
+        this.identifier = identifier;
+        this.type = type;
+        this.mutable = mutable;
+        this.optional = optional;
+        this.global = global;
+        this.index = index;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public TypeSpecifier getType() {
+        return type;
+    }
+
+    public boolean isMutable() {
+        return mutable;
+    }
+
+    public boolean isOptional() {
+        return optional;
+    }
+
+    public boolean isGlobal() {
+        return global;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
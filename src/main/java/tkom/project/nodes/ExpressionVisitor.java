@@ -0,0 +1,15 @@
+package tkom.project.nodes;
+
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.FuncCallStatement;
+
+public interface ExpressionVisitor<R> {
+    R visitOperatorExpression(OperatorExpression expression);
+
+    R visitFuncCall(FuncCallStatement expression);
+
+    R visitVariableReference(Expression expression);
+
+    R visitLiteral(Expression expression);
+}
@@ -4,12 +4,17 @@ import tkom.project.nodes.statements.Statement;
 
 import java.util.List;
 
-public class FunctionDefinition extends Statement {
+public final class FunctionDefinition implements Node {
     private final String name;
     private final TypeSpecifier type;
     private final List<Parameter> parameters;
     private List<Statement> statements;
 
+    private int frameSize;
+
+    // every value the function returns has its type, proven by TypeChecker
+    private boolean returnTypeChecked;
+
     public FunctionDefinition(String identifier, TypeSpecifier type, List<Parameter> parameters, List<Statement> statements) {
         this.name = identifier;
         this.type = type;
@@ -36,4 +41,20 @@ public class FunctionDefinition extends Statement {
     public String getName() {
         return name;
     }
-}
\ No newline at end of file
+
+    public void setFrameSize(int frameSize) {
+        this.frameSize = frameSize;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public void setReturnTypeChecked(boolean returnTypeChecked) {
+        this.returnTypeChecked = returnTypeChecked;
+    }
+
+    public boolean isReturnTypeChecked() {
+        return returnTypeChecked;
+    }
+}
@@ -1,12 +1,14 @@
 package tkom.project.nodes;
 
-public class Parameter implements Node {
+public final class Parameter implements Node {
     private final String identifier;
     private final TypeSpecifier type;
 
     private final boolean mutability;
     private final boolean optional;
 
+    private Binding binding;
+
     public Parameter(boolean mutability, boolean optional, String identifier, TypeSpecifier type) {
         this.mutability = mutability;
         this.optional = optional;
@@ -27,4 +29,12 @@ public class Parameter implements Node {
     }
 
     public boolean isOptional() { return optional; }
+
+    public void setBinding(Binding binding) {
+        this.binding = binding;
+    }
+
+    public Binding getBinding() {
+        return binding;
+    }
 }
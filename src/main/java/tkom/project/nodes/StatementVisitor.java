@@ -0,0 +1,20 @@
+package tkom.project.nodes;
+
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.statements.*;
+
+public interface StatementVisitor<R> {
+    R visitVariableDefinition(VariableDefinition statement);
+
+    R visitExpressionStatement(Expression statement);
+
+    R visitIfElseStatement(IfElseStatement statement);
+
+    R visitWhileStatement(WhileStatement statement);
+
+    R visitExistStatement(ExistStatement statement);
+
+    R visitPatternMatchingStatement(PatternMatchingStatement statement);
+
+    R visitJumpStatement(JumpStatement statement);
+}
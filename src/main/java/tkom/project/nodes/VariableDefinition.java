@@ -4,7 +4,7 @@ import tkom.project.exceptions.ReassignNonMutableVariableException;
 import tkom.project.nodes.expressions.Expression;
 import tkom.project.nodes.statements.Statement;
 
-public class VariableDefinition extends Statement {
+public final class VariableDefinition extends Statement {
     private final String identifier;
     private final TypeSpecifier type;
 
@@ -12,6 +12,8 @@ public class VariableDefinition extends Statement {
     private final Boolean mutable;
     private final Boolean optional;
 
+    private Binding binding;
+
     public VariableDefinition(Boolean mutable, Boolean optional, String identifier, TypeSpecifier type, Expression expression) {
         this.mutable = mutable;
         this.optional = optional;
@@ -39,6 +41,11 @@ public class VariableDefinition extends Statement {
         }
     }
 
+    // value rewritten by the optimizer, which computes the same value, isn't a reassignment
+    public void replaceValue(Expression value) {
+        this.value = value;
+    }
+
     public Boolean getMutable() {
         return mutable;
     }
@@ -46,4 +53,17 @@ public class VariableDefinition extends Statement {
     public Boolean getOptional() {
         return optional;
     }
+
+    public void setBinding(Binding binding) {
+        this.binding = binding;
+    }
+
+    public Binding getBinding() {
+        return binding;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitVariableDefinition(this);
+    }
 }
@@ -1,8 +1,12 @@
 package tkom.project.nodes.expressions;
 
+import tkom.project.nodes.Binding;
+import tkom.project.nodes.ExpressionVisitor;
 import tkom.project.nodes.NotValue;
+import tkom.project.nodes.StatementVisitor;
 import tkom.project.nodes.TypeSpecifier;
 import tkom.project.nodes.statements.Statement;
+import tkom.project.runtime.Specialization;
 import tkom.project.tokens.*;
 
 public class Expression extends Statement {
@@ -10,12 +14,20 @@ public class Expression extends Statement {
     TypeSpecifier type;
 
     String identifier = null;
+    Binding binding = null;
 
     private Integer valueInt;
     private Float valueFloat;
     private Boolean valueBool;
     private String valueString;
 
+    // evaluation of operator or variable read rewritten by Interpreter for the types it has seen
+    private Specialization specialization;
+
+    // type of every value the expression gives, proven by TypeChecker before execution, null if it's known only while executing
+    private TypeSpecifier staticType;
+    private boolean mayBeEmpty = true;
+
     public Expression(NotValue notFlag, TypeSpecifier type, Integer value) {
         this.notFlag = notFlag;
         this.type = type;
@@ -65,6 +77,14 @@ public class Expression extends Statement {
         return this.identifier;
     }
 
+    public void setBinding(Binding binding) {
+        this.binding = binding;
+    }
+
+    public Binding getBinding() {
+        return binding;
+    }
+
     public ReturnValue value() {
         switch (type) {
             case INT -> {
@@ -85,7 +105,56 @@ public class Expression extends Statement {
         }
     }
 
+    // literal payloads read without wrapping them in ReturnValue
+    public int getIntValue() {
+        return valueInt;
+    }
+
+    public float getFloatValue() {
+        return valueFloat;
+    }
+
+    public boolean getBoolValue() {
+        return valueBool;
+    }
+
+    public String getStringValue() {
+        return valueString;
+    }
+
     public void setNotFlag(NotValue notFlag) {
         this.notFlag = notFlag;
     }
+
+    public Specialization getSpecialization() {
+        return specialization;
+    }
+
+    public void setSpecialization(Specialization specialization) {
+        this.specialization = specialization;
+    }
+
+    public TypeSpecifier getStaticType() {
+        return staticType;
+    }
+
+    public boolean mayBeEmpty() {
+        return mayBeEmpty;
+    }
+
+    public void setStaticType(TypeSpecifier staticType, boolean mayBeEmpty) {
+        this.staticType = staticType;
+        this.mayBeEmpty = mayBeEmpty;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitExpressionStatement(this);
+    }
+
+    // plain expression is a variable reference when it names a variable, otherwise it's a literal
+    public <R> R acceptExpression(ExpressionVisitor<R> visitor) {
+        if (identifier != null) return visitor.visitVariableReference(this);
+        return visitor.visitLiteral(this);
+    }
 }
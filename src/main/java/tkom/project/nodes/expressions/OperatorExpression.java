@@ -1,12 +1,14 @@
 package tkom.project.nodes.expressions;
 
+import tkom.project.nodes.ExpressionVisitor;
 import tkom.project.nodes.Operator;
 
-public class OperatorExpression extends Expression {
+public final class OperatorExpression extends Expression {
+
+    private Expression leftExpr;
+    private Expression rightExpr;
+    private final Operator operator;
 
-    Expression leftExpr;
-    Expression rightExpr;
-    Operator operator;
     public OperatorExpression(Expression left, Expression right, Operator op) {
         super();
         this.leftExpr = left;
@@ -18,11 +20,24 @@ public class OperatorExpression extends Expression {
         return leftExpr;
     }
 
+    public void setLeftExpr(Expression leftExpr) {
+        this.leftExpr = leftExpr;
+    }
+
     public Expression getRightExpr() {
         return rightExpr;
     }
 
+    public void setRightExpr(Expression rightExpr) {
+        this.rightExpr = rightExpr;
+    }
+
     public Operator getOperator() {
         return operator;
     }
+
+    @Override
+    public <R> R acceptExpression(ExpressionVisitor<R> visitor) {
+        return visitor.visitOperatorExpression(this);
+    }
 }
@@ -1,14 +1,15 @@
 package tkom.project.nodes.statements;
 
+import tkom.project.nodes.StatementVisitor;
 import tkom.project.nodes.expressions.Expression;
 
 import java.util.List;
 
-public class ExistStatement extends Statement {
-    Expression identifier;
+public final class ExistStatement extends Statement {
+    private final Expression identifier;
 
-    List<Statement> existStatements;
-    List<Statement> elseStatements;
+    private final List<Statement> existStatements;
+    private final List<Statement> elseStatements;
 
     public ExistStatement(Expression identifier, List<Statement> statements1, List<Statement> statements2) {
         this.identifier = identifier;
@@ -27,4 +28,9 @@ public class ExistStatement extends Statement {
     public List<Statement> getElseStatements() {
         return elseStatements;
     }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitExistStatement(this);
+    }
 }
@@ -1,15 +1,25 @@
 package tkom.project.nodes.statements;
 
+import tkom.project.nodes.ExpressionVisitor;
+import tkom.project.nodes.FunctionDefinition;
 import tkom.project.nodes.NotValue;
 import tkom.project.nodes.expressions.Expression;
+import tkom.project.runtime.Builtin;
+
 import java.util.List;
 
-public class FuncCallStatement extends Expression {
-    List<Expression> arguments;
+public final class FuncCallStatement extends Expression {
+    private final List<Expression> arguments;
+
+    private final String funcIdentifier;
 
-    String funcIdentifier;
+    private final NotValue notValue;
 
-    NotValue notValue;
+    // called function linked by Resolver, both are null if no function has that name
+    private Builtin builtin;
+    private FunctionDefinition function;
+    // set once the parameters of the called function were checked against this call
+    private boolean parametersChecked;
 
     public FuncCallStatement(NotValue notValue, String identifier, List<Expression> arguments) {
         this.notValue = notValue;
@@ -21,6 +31,28 @@ public class FuncCallStatement extends Expression {
         return arguments;
     }
 
+    public void link(Builtin builtin, FunctionDefinition function) {
+        this.builtin = builtin;
+        this.function = function;
+        this.parametersChecked = false;
+    }
+
+    public Builtin getBuiltin() {
+        return builtin;
+    }
+
+    public FunctionDefinition getFunction() {
+        return function;
+    }
+
+    public boolean areParametersChecked() {
+        return parametersChecked;
+    }
+
+    public void setParametersChecked() {
+        this.parametersChecked = true;
+    }
+
     @Override
     public String getIdentifier() {
         return funcIdentifier;
@@ -30,4 +62,9 @@ public class FuncCallStatement extends Expression {
     public NotValue getNotFlag() {
         return notValue;
     }
+
+    @Override
+    public <R> R acceptExpression(ExpressionVisitor<R> visitor) {
+        return visitor.visitFuncCall(this);
+    }
 }
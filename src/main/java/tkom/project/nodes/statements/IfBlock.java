@@ -4,10 +4,10 @@ import tkom.project.nodes.expressions.Expression;
 
 import java.util.List;
 
-public class IfBlock {
-    Expression condition;
+public final class IfBlock {
+    private Expression condition;
 
-    List<Statement> statements;
+    private final List<Statement> statements;
 
     public IfBlock(Expression cond, List<Statement> statements) {
         this.condition = cond;
@@ -23,6 +23,10 @@ public class IfBlock {
         return condition;
     }
 
+    public void setCondition(Expression condition) {
+        this.condition = condition;
+    }
+
     public List<Statement> getStatements() {
         return statements;
     }
@@ -1,11 +1,12 @@
 package tkom.project.nodes.statements;
 
+import tkom.project.nodes.StatementVisitor;
 import java.util.List;
 
-public class IfElseStatement extends Statement {
-    IfBlock ifStatements;
-    List<IfBlock> elifStatements;
-    IfBlock elseStatements;
+public final class IfElseStatement extends Statement {
+    private final IfBlock ifStatements;
+    private final List<IfBlock> elifStatements;
+    private final IfBlock elseStatements;
 
     public IfElseStatement(IfBlock ifPart, List<IfBlock> elifPart, IfBlock elsePart) {
         this.ifStatements = ifPart;
@@ -24,4 +25,9 @@ public class IfElseStatement extends Statement {
     public IfBlock getElseStatements() {
         return elseStatements;
     }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitIfElseStatement(this);
+    }
 }
@@ -1,12 +1,13 @@
 package tkom.project.nodes.statements;
 
 import tkom.project.nodes.JumpType;
+import tkom.project.nodes.StatementVisitor;
 import tkom.project.nodes.expressions.Expression;
 
 
-public class JumpStatement extends Statement {
-    JumpType type;
-    Expression retExpr;
+public final class JumpStatement extends Statement {
+    private final JumpType type;
+    private Expression retExpr;
 
     public JumpStatement(JumpType type) {
         this.type = type;
@@ -25,4 +26,13 @@ public class JumpStatement extends Statement {
     public Expression getRetExpr() {
         return retExpr;
     }
+
+    public void setRetExpr(Expression retExpr) {
+        this.retExpr = retExpr;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitJumpStatement(this);
+    }
 }
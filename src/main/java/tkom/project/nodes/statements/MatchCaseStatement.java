@@ -1,11 +1,12 @@
 package tkom.project.nodes.statements;
 
+import tkom.project.nodes.Node;
 import tkom.project.nodes.expressions.Expression;
 
 import java.util.List;
 
-public class MatchCaseStatement extends Statement {
-    private final Expression condition;
+public final class MatchCaseStatement implements Node {
+    private Expression condition;
 
     private final List<Statement> statements;
 
@@ -18,6 +19,10 @@ public class MatchCaseStatement extends Statement {
         return condition;
     }
 
+    public void setCondition(Expression condition) {
+        this.condition = condition;
+    }
+
     public List<Statement> getStatements() {
         return statements;
     }
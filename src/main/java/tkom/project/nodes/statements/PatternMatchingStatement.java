@@ -1,14 +1,18 @@
 package tkom.project.nodes.statements;
 
+import tkom.project.nodes.Binding;
+import tkom.project.nodes.StatementVisitor;
 import tkom.project.nodes.expressions.Expression;
 
 import java.util.List;
 
-public class PatternMatchingStatement extends Statement {
-    private final Expression toMatch;
+public final class PatternMatchingStatement extends Statement {
+    private Expression toMatch;
 
     private final List<MatchCaseStatement> cases;
 
+    private Binding matchedBinding;
+
     public PatternMatchingStatement(Expression toMatch, List<MatchCaseStatement> cases) {
         this.toMatch = toMatch;
         this.cases = cases;
@@ -18,7 +22,24 @@ public class PatternMatchingStatement extends Statement {
         return toMatch;
     }
 
+    public void setToMatch(Expression toMatch) {
+        this.toMatch = toMatch;
+    }
+
     public List<MatchCaseStatement> getCases() {
         return cases;
     }
+
+    public void setMatchedBinding(Binding matchedBinding) {
+        this.matchedBinding = matchedBinding;
+    }
+
+    public Binding getMatchedBinding() {
+        return matchedBinding;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitPatternMatchingStatement(this);
+    }
 }
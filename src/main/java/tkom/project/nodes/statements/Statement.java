@@ -1,6 +1,8 @@
 package tkom.project.nodes.statements;
 
 import tkom.project.nodes.Node;
+import tkom.project.nodes.StatementVisitor;
 
-public class Statement implements Node {
+public abstract class Statement implements Node {
+    public abstract <R> R accept(StatementVisitor<R> visitor);
 }
@@ -1,11 +1,12 @@
 package tkom.project.nodes.statements;
 
+import tkom.project.nodes.StatementVisitor;
 import tkom.project.nodes.expressions.Expression;
 import java.util.List;
 
-public class WhileStatement extends Statement{
-    Expression condition;
-    List<Statement> statements;
+public final class WhileStatement extends Statement {
+    private Expression condition;
+    private final List<Statement> statements;
 
     public WhileStatement(Expression condition, List<Statement> statements) {
         this.condition = condition;
@@ -16,7 +17,16 @@ public class WhileStatement extends Statement{
         return condition;
     }
 
+    public void setCondition(Expression condition) {
+        this.condition = condition;
+    }
+
     public List<Statement> getStatements() {
         return statements;
     }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visitWhileStatement(this);
+    }
 }
@@ -0,0 +1,175 @@
+package tkom.project.optimizer;
+
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.FuncCallStatement;
+import tkom.project.runtime.StaticTypes;
+
+import java.util.List;
+
+// Replaces integer operations with cheaper ones giving the same value, like x * 1 with x, x - x with 0 or -(-x) with x
+// Operands have to be proven integers, reading only variables which can't be left without value, so the removed operation couldn't report an error,
+// and an operand which is left out can't fail or have side effects either
+// Constant operand of a commutative operator or a comparison is moved to the right, where the engines' fused instructions expect it
+public class AlgebraicSimplifier extends ExpressionRewriter {
+    private final StaticTypes types;
+    private final SafeExpressions safe;
+
+    private boolean simplified;
+
+    public AlgebraicSimplifier(Program program) {
+        super(program);
+        this.types = new StaticTypes(program);
+        this.safe = new SafeExpressions(types);
+    }
+
+    // Returns true if any expression was simplified, its constants can then be folded again
+    public boolean simplify() {
+        types.analyze();
+        simplified = false;
+
+        for (VariableDefinition global : program.getVariables()) {
+            rewriteDefinition(global);
+        }
+        for (FunctionDefinition function : program.getFunctions()) {
+            rewriteStatements(function.getStatements());
+        }
+        return simplified;
+    }
+
+    @Override
+    protected Expression rewrite(Expression expression) {
+        if (expression instanceof FuncCallStatement call) {
+            List<Expression> arguments = call.getArguments();
+            for (int i = 0; i < arguments.size(); i++) {
+                arguments.set(i, rewriteExpression(arguments.get(i)));
+            }
+            return call;
+        }
+        if (!(expression instanceof OperatorExpression operatorExpression)) return expression;
+
+        if (operatorExpression.getOperator() != Operator.ASSIGN) operatorExpression.setLeftExpr(rewriteExpression(operatorExpression.getLeftExpr()));
+        operatorExpression.setRightExpr(rewriteExpression(operatorExpression.getRightExpr()));
+
+        Expression result = simplifyOperator(operatorExpression);
+        if (result != expression) simplified = true;
+        return result;
+    }
+
+    private Expression simplifyOperator(OperatorExpression expression) {
+        Operator op = expression.getOperator();
+        Expression left = expression.getLeftExpr();
+        Expression right = expression.getRightExpr();
+        if (!safe.givesValue(left, TypeSpecifier.INT) || !safe.givesValue(right, TypeSpecifier.INT)) return expression;
+        if (types.typeOf(expression) == null) return expression;
+
+        Integer leftValue = intConstant(left);
+        Integer rightValue = intConstant(right);
+
+        switch (op) {
+            case ADD, MULTI -> {
+                if (leftValue != null && rightValue == null) return simplifyOperator(swapped(expression, op));
+            }
+            case LESS, LESS_EQ, MORE, MORE_EQ, EQUAL, NOT_EQUAL -> {
+                if (leftValue != null && rightValue == null) return swapped(expression, mirrored(op));
+                return expression;
+            }
+            default -> {
+            }
+        }
+
+        // value the operator gives without computing it, negated if the operator is
+        Expression reduced = null;
+        switch (op) {
+            case ADD -> {
+                if (isValue(rightValue, 0)) reduced = left;
+            }
+            case SUB -> {
+                if (isValue(rightValue, 0)) reduced = left;
+                else if (isValue(leftValue, 0)) reduced = negated(right);
+                else if (isSameRead(left, right)) reduced = zero();
+            }
+            case MULTI -> {
+                if (isValue(rightValue, 1)) reduced = left;
+                else if (isValue(rightValue, -1)) reduced = negated(left);
+                else if (isValue(rightValue, 0) && !safe.mayFail(left)) reduced = zero();
+            }
+            case MODULO -> {
+                // division by zero is still reported
+                if ((isValue(rightValue, 1) || isValue(rightValue, -1)) && !safe.mayFail(left)) reduced = zero();
+            }
+            default -> {
+            }
+        }
+        if (reduced == null || expression.getNotFlag() == null) return (reduced == null) ? expression : reduced;
+
+        Expression negatedResult = negated(reduced);
+        return (negatedResult == null) ? expression : negatedResult;
+    }
+
+    private static OperatorExpression swapped(OperatorExpression expression, Operator op) {
+        OperatorExpression swapped = new OperatorExpression(expression.getRightExpr(), expression.getLeftExpr(), op);
+        swapped.setNotFlag(expression.getNotFlag());
+        return swapped;
+    }
+
+    private static Operator mirrored(Operator op) {
+        switch (op) {
+            case LESS -> {
+                return Operator.MORE;
+            }
+            case LESS_EQ -> {
+                return Operator.MORE_EQ;
+            }
+            case MORE -> {
+                return Operator.LESS;
+            }
+            case MORE_EQ -> {
+                return Operator.LESS_EQ;
+            }
+            default -> {
+                return op;
+            }
+        }
+    }
+
+    // Expression giving the opposite number, null if negating it would change what it does
+    // stacked negations cancel out, and only literals, reads and arithmetic operators are negated
+    private static Expression negated(Expression expression) {
+        if (expression == null) return null;
+
+        if (expression.getNotFlag() == NotValue.ARITHMETIC) {
+            expression.setNotFlag(null);
+            return expression;
+        }
+        if (expression.getNotFlag() != null || expression instanceof FuncCallStatement) return null;
+
+        if (ConstantFolder.isConstant(expression)) return new Expression(null, TypeSpecifier.INT, (Integer) (-expression.getIntValue()));
+        if (expression instanceof OperatorExpression operatorExpression) {
+            Operator op = operatorExpression.getOperator();
+            if (op != Operator.ADD && op != Operator.SUB && op != Operator.MULTI && op != Operator.MODULO) return null;
+        }
+        expression.setNotFlag(NotValue.ARITHMETIC);
+        return expression;
+    }
+
+    private boolean isSameRead(Expression left, Expression right) {
+        if (left instanceof OperatorExpression || left instanceof FuncCallStatement || right instanceof OperatorExpression || right instanceof FuncCallStatement) return false;
+        if (left.getIdentifier() == null || left.getBinding() == null || left.getBinding() != right.getBinding()) return false;
+        return left.getNotFlag() == right.getNotFlag() && !safe.mayFail(left);
+    }
+
+    private static Integer intConstant(Expression expression) {
+        if (!ConstantFolder.isConstant(expression) || expression.getType() != TypeSpecifier.INT) return null;
+        return expression.getIntValue();
+    }
+
+    private static boolean isValue(Integer constant, int value) {
+        return constant != null && constant == value;
+    }
+
+    private static Expression zero() {
+        return new Expression(null, TypeSpecifier.INT, (Integer) 0);
+    }
+}
@@ -0,0 +1,280 @@
+package tkom.project.optimizer;
+
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.*;
+import tkom.project.runtime.StaticTypes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Computes an expression repeated by the statements of one block once, in a variable defined before the first statement using it,
+// as long as no variable it reads is assigned in between
+// Its value is computed earlier than before, so it can't fail, and it reads only locals, as called functions can change globals
+// Conditions of an if chain are computed before its blocks, so they share values as consecutive statements do
+public class CommonSubexpressions extends ExpressionRewriter {
+    private final StaticTypes types;
+    private final SafeExpressions safe;
+
+    private final IdentityHashMap<Binding, Integer> ids = new IdentityHashMap<>();
+    private final IdentityHashMap<Expression, Expression> replacements = new IdentityHashMap<>();
+    private int temporaries;
+
+    public CommonSubexpressions(Program program) {
+        super(program);
+        this.types = new StaticTypes(program);
+        this.safe = new SafeExpressions(types);
+    }
+
+    // Returns true if any expression was reused, the program has to be resolved again to bind the new variables
+    public boolean eliminate() {
+        types.analyze();
+
+        temporaries = 0;
+        for (FunctionDefinition function : program.getFunctions()) {
+            eliminateBlock(function.getStatements());
+        }
+        return temporaries > 0;
+    }
+
+    private void eliminateBlock(List<Statement> statements) {
+        if (statements == null) return;
+
+        for (Statement statement : statements) {
+            eliminateNested(statement);
+        }
+
+        // occurrences of every computed value, a variable's version is raised by each of its assignments
+        LinkedHashMap<String, ArrayList<Expression>> occurrences = new LinkedHashMap<>();
+        IdentityHashMap<Expression, Integer> statementOf = new IdentityHashMap<>();
+        HashMap<Binding, Integer> versions = new HashMap<>();
+
+        for (int i = 0; i < statements.size(); i++) {
+            List<Expression> computed = computedExpressions(statements.get(i));
+
+            // value read after an assignment made by the same statement can't be computed before it
+            HashSet<Binding> assignedHere = new HashSet<>();
+            for (Expression expression : computed) {
+                collectAssigned(expression, assignedHere);
+            }
+            for (Expression expression : computed) {
+                collectOccurrences(expression, versions, assignedHere, occurrences, statementOf, i);
+            }
+
+            HashSet<Binding> assigned = new HashSet<>();
+            collectAssigned(statements.get(i), assigned);
+            for (Binding binding : assigned) {
+                versions.merge(binding, 1, Integer::sum);
+            }
+        }
+
+        // larger expressions go first, the ones inside a reused expression aren't computed any more
+        ArrayList<ArrayList<Expression>> repeated = new ArrayList<>();
+        for (ArrayList<Expression> found : occurrences.values()) {
+            if (found.size() > 1) repeated.add(found);
+        }
+        repeated.sort(Comparator.comparingInt(found -> -Inliner.size(found.get(0))));
+
+        Set<Expression> covered = Collections.newSetFromMap(new IdentityHashMap<>());
+        TreeMap<Integer, ArrayList<VariableDefinition>> definitions = new TreeMap<>();
+        for (ArrayList<Expression> found : repeated) {
+            ArrayList<Expression> live = new ArrayList<>();
+            for (Expression expression : found) {
+                if (!covered.contains(expression)) live.add(expression);
+            }
+            if (live.size() < 2) continue;
+
+            Expression first = live.get(0);
+            VariableDefinition temporary = temporary("common" + temporaries++, types.typeOf(first), first);
+            definitions.computeIfAbsent(statementOf.get(first), index -> new ArrayList<>()).add(temporary);
+            for (Expression expression : live) {
+                replacements.put(expression, readOf(temporary));
+                cover(expression, covered);
+            }
+        }
+        if (replacements.isEmpty()) return;
+
+        rewriteStatements(statements);
+        replacements.clear();
+        for (Map.Entry<Integer, ArrayList<VariableDefinition>> entry : definitions.descendingMap().entrySet()) {
+            statements.addAll(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void eliminateNested(Statement statement) {
+        if (statement instanceof IfElseStatement ifElse) {
+            eliminateBlock(ifElse.getIfStatements().getStatements());
+            for (IfBlock elifBlock : ifElse.getElifStatements()) {
+                eliminateBlock(elifBlock.getStatements());
+            }
+            if (ifElse.getElseStatements() != null) eliminateBlock(ifElse.getElseStatements().getStatements());
+        }
+        else if (statement instanceof WhileStatement whileStatement) eliminateBlock(whileStatement.getStatements());
+        else if (statement instanceof ExistStatement exist) {
+            eliminateBlock(exist.getExistStatements());
+            eliminateBlock(exist.getElseStatements());
+        }
+        else if (statement instanceof PatternMatchingStatement match) {
+            for (MatchCaseStatement caseStatement : match.getCases()) {
+                eliminateBlock(caseStatement.getStatements());
+            }
+        }
+    }
+
+    @Override
+    protected Expression rewrite(Expression expression) {
+        Expression replacement = replacements.get(expression);
+        if (replacement != null) return replacement;
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() != Operator.ASSIGN) operatorExpression.setLeftExpr(rewriteExpression(operatorExpression.getLeftExpr()));
+            operatorExpression.setRightExpr(rewriteExpression(operatorExpression.getRightExpr()));
+        } else if (expression instanceof FuncCallStatement call) {
+            List<Expression> arguments = call.getArguments();
+            for (int i = 0; i < arguments.size(); i++) {
+                arguments.set(i, rewriteExpression(arguments.get(i)));
+            }
+        }
+        return expression;
+    }
+
+    // Expressions computed once when the statement starts, a loop condition is computed again after its body
+    private static List<Expression> computedExpressions(Statement statement) {
+        ArrayList<Expression> computed = new ArrayList<>();
+
+        if (statement instanceof VariableDefinition varDef) computed.add(varDef.getValue());
+        else if (statement instanceof Expression expression) computed.add(expression);
+        else if (statement instanceof IfElseStatement ifElse) {
+            computed.add(ifElse.getIfStatements().getCondition());
+            for (IfBlock elifBlock : ifElse.getElifStatements()) {
+                computed.add(elifBlock.getCondition());
+            }
+        }
+        else if (statement instanceof PatternMatchingStatement match) computed.add(match.getToMatch());
+        else if (statement instanceof JumpStatement jump) computed.add(jump.getRetExpr());
+
+        computed.removeIf(Objects::isNull);
+        return computed;
+    }
+
+    private void collectOccurrences(Expression expression, HashMap<Binding, Integer> versions, Set<Binding> assignedHere,
+                                    Map<String, ArrayList<Expression>> occurrences, Map<Expression, Integer> statementOf, int statement) {
+        if (expression == null) return;
+
+        // reused value is computed before the statement, even when it's on the right side of && or || which may never be computed
+        if (safe.computesValue(expression) && !safe.mayFail(expression)) {
+            String key = key(expression, versions, assignedHere);
+            if (key != null) {
+                occurrences.computeIfAbsent(key, found -> new ArrayList<>()).add(expression);
+                statementOf.put(expression, statement);
+            }
+        }
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() != Operator.ASSIGN) collectOccurrences(operatorExpression.getLeftExpr(), versions, assignedHere, occurrences, statementOf, statement);
+            collectOccurrences(operatorExpression.getRightExpr(), versions, assignedHere, occurrences, statementOf, statement);
+        } else if (expression instanceof FuncCallStatement call) {
+            for (Expression argument : call.getArguments()) {
+                collectOccurrences(argument, versions, assignedHere, occurrences, statementOf, statement);
+            }
+        }
+    }
+
+    // Text equal for expressions computing the same value, null if the expression can't be reused
+    private String key(Expression expression, Map<Binding, Integer> versions, Set<Binding> assignedHere) {
+        String negation = (expression.getNotFlag() == null) ? "" : expression.getNotFlag().name();
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN) return null;
+
+            String left = key(operatorExpression.getLeftExpr(), versions, assignedHere);
+            String right = key(operatorExpression.getRightExpr(), versions, assignedHere);
+            if (left == null || right == null) return null;
+            return negation + "(" + left + " " + operatorExpression.getOperator() + " " + right + ")";
+        }
+        if (expression instanceof FuncCallStatement call) {
+            if (call.getBuiltin() == null || !call.getBuiltin().isPure()) return null;
+
+            StringBuilder key = new StringBuilder(negation + call.getIdentifier() + "(");
+            for (Expression argument : call.getArguments()) {
+                String argumentKey = key(argument, versions, assignedHere);
+                if (argumentKey == null) return null;
+                key.append(argumentKey).append(",");
+            }
+            return key.append(")").toString();
+        }
+
+        if (expression.getIdentifier() != null) {
+            Binding binding = expression.getBinding();
+            if (binding == null || binding.isGlobal() || assignedHere.contains(binding)) return null;
+
+            ids.putIfAbsent(binding, ids.size());
+            return negation + "#" + ids.get(binding) + "@" + versions.getOrDefault(binding, 0);
+        }
+
+        switch (expression.getType()) {
+            case INT -> {
+                return negation + expression.getIntValue();
+            }
+            case FLOAT -> {
+                return negation + expression.getFloatValue() + "f";
+            }
+            case STRING -> {
+                return negation + "\"" + expression.getStringValue().length() + ":" + expression.getStringValue();
+            }
+            case BOOL -> {
+                return negation + expression.getBoolValue();
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static void collectAssigned(Statement statement, Set<Binding> assigned) {
+        new ExpressionRewriter(null) {
+            @Override
+            protected Expression rewrite(Expression expression) {
+                collectAssigned(expression, assigned);
+                return expression;
+            }
+        }.rewriteStatements(List.of(statement));
+    }
+
+    private static void collectAssigned(Expression expression, Set<Binding> assigned) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN) assigned.add(operatorExpression.getLeftExpr().getBinding());
+            collectAssigned(operatorExpression.getLeftExpr(), assigned);
+            collectAssigned(operatorExpression.getRightExpr(), assigned);
+        } else if (expression instanceof FuncCallStatement call) {
+            for (Expression argument : call.getArguments()) {
+                collectAssigned(argument, assigned);
+            }
+        }
+    }
+
+    private static void cover(Expression expression, Set<Expression> covered) {
+        if (expression == null) return;
+
+        covered.add(expression);
+        if (expression instanceof OperatorExpression operatorExpression) {
+            cover(operatorExpression.getLeftExpr(), covered);
+            cover(operatorExpression.getRightExpr(), covered);
+        } else if (expression instanceof FuncCallStatement call) {
+            for (Expression argument : call.getArguments()) {
+                cover(argument, covered);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package tkom.project.optimizer;
+
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.FuncCallStatement;
+import tkom.project.runtime.Builtin;
+import tkom.project.runtime.Operations;
+import tkom.project.runtime.StaticTypes;
+import tkom.project.scope.FrameStack;
+
+import java.util.HashMap;
+import java.util.List;
+
+// Replaces operators and conversions of literals with their result, and reads of immutable variables defined by a literal with its value
+// Results are computed by Operations and Builtin like while executing, expression which fails is left to fail when it's executed
+public class ConstantFolder extends ExpressionRewriter {
+    private final HashMap<Binding, Expression> constants = new HashMap<>();
+
+    public ConstantFolder(Program program) {
+        super(program);
+    }
+
+    public void fold() {
+        constants.clear();
+
+        List<VariableDefinition> globals = program.getVariables();
+        for (VariableDefinition global : globals) {
+            rewriteDefinition(global);
+        }
+
+        // function called by a global initializer can see a later global before it's defined
+        for (VariableDefinition global : globals) {
+            if (callsFunction(global.getValue())) constants.clear();
+        }
+
+        for (FunctionDefinition function : program.getFunctions()) {
+            rewriteStatements(function.getStatements());
+        }
+    }
+
+    // immutable variable can't get another value once it's defined, so its reads can be replaced with the literal it's defined by
+    @Override
+    protected void rewriteDefinition(VariableDefinition varDef) {
+        Expression value = rewriteExpression(varDef.getValue());
+        varDef.replaceValue(value);
+
+        if (Boolean.TRUE.equals(varDef.getMutable()) || varDef.getBinding() == null) return;
+        if (isConstant(value) && value.getType() == varDef.getType()) constants.put(varDef.getBinding(), value);
+    }
+
+    @Override
+    protected Expression rewrite(Expression expression) {
+        if (expression instanceof OperatorExpression operatorExpression) return foldOperator(operatorExpression);
+        if (expression instanceof FuncCallStatement funcCall) return foldCall(funcCall);
+
+        if (expression.getIdentifier() != null) {
+            Expression constant = constants.get(expression.getBinding());
+            if (constant == null) return expression;
+            if (expression.getNotFlag() == null) return copyOf(constant);
+
+            // negation which doesn't fit the type is reported while executing
+            if (StaticTypes.negation(constant.getType(), expression.getNotFlag()) == null) return expression;
+            return negated(constant);
+        }
+
+        if (expression.getNotFlag() == null || StaticTypes.negation(expression.getType(), expression.getNotFlag()) == null) return expression;
+        return negated(expression);
+    }
+
+    private Expression foldOperator(OperatorExpression expression) {
+        Operator op = expression.getOperator();
+
+        // assigned variable isn't read
+        expression.setRightExpr(rewriteExpression(expression.getRightExpr()));
+        if (op == Operator.ASSIGN) return expression;
+        expression.setLeftExpr(rewriteExpression(expression.getLeftExpr()));
+
+        Expression left = expression.getLeftExpr();
+        Expression right = expression.getRightExpr();
+        if (!isConstant(left) || !isConstant(right)) return expression;
+
+        FrameStack frames = new FrameStack();
+        try {
+            // logical operators are computed the way they are executed, left side first
+            if (op == Operator.AND || op == Operator.OR) {
+                push(frames, left);
+                if (!Operations.shortCircuit(frames, op, expression.getNotFlag())) {
+                    push(frames, right);
+                    frames.swap();
+                    Operations.evaluateOperator(frames, op, expression.getNotFlag());
+                }
+            } else {
+                push(frames, right);
+                push(frames, left);
+                Operations.evaluateOperator(frames, op, expression.getNotFlag());
+            }
+        } catch (RuntimeException e) {
+            return expression;
+        }
+        return literal(frames, expression);
+    }
+
+    private Expression foldCall(FuncCallStatement call) {
+        List<Expression> arguments = call.getArguments();
+        for (int i = 0; i < arguments.size(); i++) {
+            arguments.set(i, rewriteExpression(arguments.get(i)));
+        }
+
+        Builtin builtin = call.getBuiltin();
+        if (builtin == null || !builtin.isPure() || call.getNotFlag() != null || arguments.size() != builtin.getParameterCount()) return call;
+        for (Expression argument : arguments) {
+            if (!isConstant(argument)) return call;
+        }
+
+        FrameStack frames = new FrameStack();
+        try {
+            for (Expression argument : arguments) {
+                push(frames, argument);
+            }
+            builtin.execute(frames, null);
+        } catch (RuntimeException e) {
+            return call;
+        }
+        return literal(frames, call);
+    }
+
+    static boolean callsFunction(Expression expression) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            return callsFunction(operatorExpression.getLeftExpr()) || callsFunction(operatorExpression.getRightExpr());
+        }
+        if (expression instanceof FuncCallStatement funcCall) {
+            if (funcCall.getBuiltin() == null) return true;
+            for (Expression argument : funcCall.getArguments()) {
+                if (callsFunction(argument)) return true;
+            }
+        }
+        return false;
+    }
+
+    // literal without negation, its value is used as it is
+    static boolean isConstant(Expression expression) {
+        return expression != null && !(expression instanceof OperatorExpression) && !(expression instanceof FuncCallStatement)
+                && expression.getIdentifier() == null && expression.getNotFlag() == null && StaticTypes.isValueType(expression.getType());
+    }
+
+    private static void push(FrameStack frames, Expression constant) {
+        switch (constant.getType()) {
+            case INT -> frames.pushInt(constant.getIntValue());
+            case FLOAT -> frames.pushFloat(constant.getFloatValue());
+            case STRING -> frames.pushString(constant.getStringValue());
+            default -> frames.pushBool(constant.getBoolValue());
+        }
+    }
+
+    // Literal of the value on top of the stack, the folded expression stays when there is no value
+    private static Expression literal(FrameStack frames, Expression folded) {
+        TypeSpecifier type = frames.peekType();
+        if (type == null) return folded;
+
+        switch (type) {
+            case INT -> {
+                return new Expression(null, type, (Integer) frames.popInt());
+            }
+            case FLOAT -> {
+                return new Expression(null, type, (Float) frames.popFloat());
+            }
+            case STRING -> {
+                return new Expression(null, type, frames.popString());
+            }
+            default -> {
+                return new Expression(null, type, (Boolean) frames.popBool());
+            }
+        }
+    }
+
+    private static Expression copyOf(Expression constant) {
+        FrameStack frames = new FrameStack();
+        push(frames, constant);
+        return literal(frames, constant);
+    }
+
+    private static Expression negated(Expression constant) {
+        FrameStack frames = new FrameStack();
+        push(frames, constant);
+
+        switch (constant.getType()) {
+            case INT -> frames.pushInt(-frames.popInt());
+            case FLOAT -> frames.pushFloat(-frames.popFloat());
+            default -> frames.pushBool(!frames.popBool());
+        }
+        return literal(frames, constant);
+    }
+}
@@ -0,0 +1,221 @@
+package tkom.project.optimizer;
+
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.*;
+import tkom.project.runtime.StaticTypes;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+// Removes code which is never executed: functions main and the global initializers can't reach, statements after a jump,
+// branches of constant conditions and immutable globals nothing reads
+// Removed global is defined by a value which can't fail, so leaving its definition out doesn't hide an error
+public class DeadCodeEliminator {
+    private final Program program;
+    private final StaticTypes types;
+    private final SafeExpressions safe;
+
+    private boolean changed;
+
+    public DeadCodeEliminator(Program program) {
+        this.program = program;
+        this.types = new StaticTypes(program);
+        this.safe = new SafeExpressions(types);
+    }
+
+    // Returns true if anything was removed, the program has to be resolved again, as globals and blocks changed
+    public boolean eliminate() {
+        types.analyze();
+        changed = false;
+
+        // calls in removed code don't make a function reachable
+        for (FunctionDefinition function : program.getFunctions()) {
+            eliminateBlock(function.getStatements(), isMain(function));
+        }
+        removeUnreachableFunctions();
+        removeUnusedGlobals();
+        return changed;
+    }
+
+    private void removeUnreachableFunctions() {
+        ArrayList<FunctionDefinition> reachable = new ArrayList<>();
+        for (FunctionDefinition function : program.getFunctions()) {
+            if (isMain(function)) reachable.add(function);
+        }
+        for (VariableDefinition global : program.getVariables()) {
+            addReachable(Inliner.calledFunctions(List.of(global)), reachable);
+        }
+        for (int i = 0; i < reachable.size(); i++) {
+            addReachable(Inliner.calledFunctions(reachable.get(i).getStatements()), reachable);
+        }
+
+        if (program.getFunctions().retainAll(reachable)) changed = true;
+    }
+
+    private static boolean isMain(FunctionDefinition function) {
+        return Objects.equals(function.getName(), "main");
+    }
+
+    private static void addReachable(List<FunctionDefinition> called, List<FunctionDefinition> reachable) {
+        for (FunctionDefinition function : called) {
+            if (!reachable.contains(function)) reachable.add(function);
+        }
+    }
+
+    // global initializer reads only earlier globals, so the last ones are checked first
+    private void removeUnusedGlobals() {
+        HashSet<Binding> read = new HashSet<>();
+        for (FunctionDefinition function : program.getFunctions()) {
+            collectReads(function.getStatements(), read);
+        }
+
+        List<VariableDefinition> globals = program.getVariables();
+        for (int i = globals.size() - 1; i >= 0; i--) {
+            VariableDefinition global = globals.get(i);
+            if (isRemovable(global) && !read.contains(global.getBinding())) {
+                globals.remove(i);
+                changed = true;
+            } else {
+                collectReads(List.of(global), read);
+            }
+        }
+    }
+
+    // definition checks its value against the declared type, and only a value which can't fail has no effect
+    private boolean isRemovable(VariableDefinition global) {
+        if (Boolean.TRUE.equals(global.getMutable()) || global.getValue() == null) return false;
+        return !safe.mayFail(global.getValue()) && types.typeOf(global.getValue()) == global.getType();
+    }
+
+    private static void collectReads(List<Statement> statements, HashSet<Binding> read) {
+        new ExpressionRewriter(null) {
+            @Override
+            protected void rewriteStatements(List<Statement> statements) {
+                if (statements == null) return;
+
+                for (Statement statement : statements) {
+                    if (statement instanceof ExistStatement exist) read.add(exist.getExistValue().getBinding());
+                }
+                super.rewriteStatements(statements);
+            }
+
+            @Override
+            protected Expression rewrite(Expression expression) {
+                if (expression instanceof OperatorExpression operatorExpression) {
+                    rewriteExpression(operatorExpression.getLeftExpr());
+                    rewriteExpression(operatorExpression.getRightExpr());
+                } else if (expression instanceof FuncCallStatement call) {
+                    for (Expression argument : call.getArguments()) {
+                        rewriteExpression(argument);
+                    }
+                } else if (expression.getIdentifier() != null) read.add(expression.getBinding());
+                return expression;
+            }
+        }.rewriteStatements(statements);
+    }
+
+    private void eliminateBlock(List<Statement> statements) {
+        eliminateBlock(statements, false);
+    }
+
+    // main body isn't a called function, a return there ends only its statement, and the next one is executed
+    private void eliminateBlock(List<Statement> statements, boolean mainBody) {
+        if (statements == null) return;
+
+        for (int i = 0; i < statements.size(); i++) {
+            Statement statement = statements.get(i);
+
+            if (statement instanceof JumpStatement jump) {
+                if (i + 1 < statements.size() && !(mainBody && jump.getType() == JumpType.RETURN)) {
+                    statements.subList(i + 1, statements.size()).clear();
+                    changed = true;
+                }
+            }
+            else if (statement instanceof IfElseStatement ifElse) {
+                List<Statement> simplified = simplify(ifElse, mainBody);
+                if (simplified == null) {
+                    eliminateBlock(ifElse.getIfStatements().getStatements());
+                    for (IfBlock elifBlock : ifElse.getElifStatements()) {
+                        eliminateBlock(elifBlock.getStatements());
+                    }
+                    if (ifElse.getElseStatements() != null) eliminateBlock(ifElse.getElseStatements().getStatements());
+                } else {
+                    // statements taking its place are checked again, they can be followed by a jump
+                    statements.remove(i);
+                    statements.addAll(i, simplified);
+                    changed = true;
+                    i--;
+                }
+            }
+            else if (statement instanceof WhileStatement whileStatement) {
+                if (isLiteral(whileStatement.getCondition(), false)) {
+                    statements.remove(i);
+                    changed = true;
+                    i--;
+                }
+                else eliminateBlock(whileStatement.getStatements());
+            }
+            else if (statement instanceof ExistStatement exist) {
+                eliminateBlock(exist.getExistStatements());
+                eliminateBlock(exist.getElseStatements());
+            }
+            else if (statement instanceof PatternMatchingStatement match) {
+                for (MatchCaseStatement caseStatement : match.getCases()) {
+                    eliminateBlock(caseStatement.getStatements());
+                }
+            }
+        }
+    }
+
+    // Statements replacing the if chain without the branches of constant conditions, null if it has none
+    private List<Statement> simplify(IfElseStatement ifElse, boolean mainBody) {
+        ArrayList<IfBlock> branches = new ArrayList<>();
+        branches.add(ifElse.getIfStatements());
+        branches.addAll(ifElse.getElifStatements());
+
+        // branch after a condition which always holds is never reached, that one becomes the else block
+        ArrayList<IfBlock> kept = new ArrayList<>();
+        IfBlock taken = ifElse.getElseStatements();
+        boolean simplified = false;
+        for (IfBlock branch : branches) {
+            if (isLiteral(branch.getCondition(), false)) simplified = true;
+            else if (isLiteral(branch.getCondition(), true)) {
+                taken = branch;
+                simplified = true;
+                break;
+            }
+            else kept.add(branch);
+        }
+        if (!simplified) return null;
+
+        if (!kept.isEmpty()) {
+            IfBlock elseBlock = (taken == null) ? null : new IfBlock(taken.getStatements());
+            return List.of(new IfElseStatement(kept.get(0), new ArrayList<>(kept.subList(1, kept.size())), elseBlock));
+        }
+        if (taken == null) return List.of();
+
+        // variables of the block stay in their own scope, and return in main ends only the statement it's in
+        List<Statement> statements = taken.getStatements();
+        if (mainBody || definesVariables(statements)) {
+            if (taken == ifElse.getIfStatements() && branches.size() == 1 && ifElse.getElseStatements() == null) return null;
+            IfBlock block = new IfBlock(new Expression(null, TypeSpecifier.BOOL, true), statements);
+            return List.of(new IfElseStatement(block, new ArrayList<>(), null));
+        }
+        return statements;
+    }
+
+    private static boolean definesVariables(List<Statement> statements) {
+        for (Statement statement : statements) {
+            if (statement instanceof VariableDefinition) return true;
+        }
+        return false;
+    }
+
+    private static boolean isLiteral(Expression condition, boolean value) {
+        return ConstantFolder.isConstant(condition) && condition.getType() == TypeSpecifier.BOOL && condition.getBoolValue() == value;
+    }
+}
@@ -0,0 +1,86 @@
+package tkom.project.optimizer;
+
+import tkom.project.nodes.Program;
+import tkom.project.nodes.TypeSpecifier;
+import tkom.project.nodes.VariableDefinition;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.statements.*;
+
+import java.util.List;
+
+// Pass replacing every expression of the program's statements with the one rewrite gives for it
+// Value checked by exist has to stay a variable, so it isn't rewritten
+abstract class ExpressionRewriter {
+    protected final Program program;
+
+    protected ExpressionRewriter(Program program) {
+        this.program = program;
+    }
+
+    protected abstract Expression rewrite(Expression expression);
+
+    protected Expression rewriteExpression(Expression expression) {
+        if (expression == null) return null;
+        return rewrite(expression);
+    }
+
+    protected void rewriteDefinition(VariableDefinition varDef) {
+        varDef.replaceValue(rewriteExpression(varDef.getValue()));
+    }
+
+    protected void rewriteStatements(List<Statement> statements) {
+        if (statements == null) return;
+
+        for (int i = 0; i < statements.size(); i++) {
+            Statement statement = statements.get(i);
+
+            if (statement instanceof VariableDefinition varDef) rewriteDefinition(varDef);
+            else if (statement instanceof Expression expression) {
+                Expression rewritten = rewriteExpression(expression);
+                if (rewritten != expression) statements.set(i, rewritten);
+            }
+            else if (statement instanceof IfElseStatement ifElse) {
+                rewriteBlock(ifElse.getIfStatements());
+                for (IfBlock elifBlock : ifElse.getElifStatements()) {
+                    rewriteBlock(elifBlock);
+                }
+                if (ifElse.getElseStatements() != null) rewriteStatements(ifElse.getElseStatements().getStatements());
+            }
+            else if (statement instanceof WhileStatement whileStatement) {
+                whileStatement.setCondition(rewriteExpression(whileStatement.getCondition()));
+                rewriteStatements(whileStatement.getStatements());
+            }
+            else if (statement instanceof ExistStatement exist) {
+                rewriteStatements(exist.getExistStatements());
+                rewriteStatements(exist.getElseStatements());
+            }
+            else if (statement instanceof PatternMatchingStatement match) rewriteMatch(match);
+            else if (statement instanceof JumpStatement jump) jump.setRetExpr(rewriteExpression(jump.getRetExpr()));
+        }
+    }
+
+    protected void rewriteMatch(PatternMatchingStatement match) {
+        match.setToMatch(rewriteExpression(match.getToMatch()));
+        for (MatchCaseStatement caseStatement : match.getCases()) {
+            caseStatement.setCondition(rewriteExpression(caseStatement.getCondition()));
+            rewriteStatements(caseStatement.getStatements());
+        }
+    }
+
+    // Variable added by a pass, its name has a character identifiers can't contain, so it doesn't collide with the program's ones
+    protected static VariableDefinition temporary(String name, TypeSpecifier type, Expression value) {
+        return new VariableDefinition(false, false, "$" + name, type, value);
+    }
+
+    // read is bound when the program is resolved again
+    protected static Expression readOf(VariableDefinition temporary) {
+        Expression read = new Expression(null, TypeSpecifier.UNKNOWN);
+        read.setIdentifier(temporary.getIdentifier());
+        return read;
+    }
+
+    private void rewriteBlock(IfBlock block) {
+        block.setCondition(rewriteExpression(block.getCondition()));
+        rewriteStatements(block.getStatements());
+    }
+}
@@ -0,0 +1,280 @@
+package tkom.project.optimizer;
+
+import tkom.project.Resolver;
+import tkom.project.exceptions.ParameterAlreadyDeclaredException;
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.FuncCallStatement;
+import tkom.project.nodes.statements.JumpStatement;
+import tkom.project.nodes.statements.PatternMatchingStatement;
+import tkom.project.nodes.statements.Statement;
+import tkom.project.runtime.StaticTypes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+// Replaces calls of small functions, whose body only returns an expression, with that expression
+// Parameters are replaced with the arguments, so an argument has to be a literal or a local variable of the caller,
+// which has a value of the parameter type and which the called function can't change, like a value passed to it
+// Returned expression has the function type, so the checks of the call can't fail, and recursive functions are never inlined
+public class Inliner extends ExpressionRewriter {
+    private final OptimizerPolicy policy;
+    private final StaticTypes types;
+    private final HashSet<FunctionDefinition> recursive = new HashSet<>();
+    private final HashMap<Binding, TypeSpecifier> matchedTypes = new HashMap<>();
+
+    private FunctionDefinition caller;
+    private boolean inlined;
+
+    public Inliner(Program program, OptimizerPolicy policy) {
+        super(program);
+        this.policy = policy;
+        this.types = new StaticTypes(program);
+    }
+
+    // Returns true if any call was inlined
+    public boolean inline() {
+        if (policy.getInlineSize() == 0) return false;
+
+        types.analyze();
+        for (FunctionDefinition function : program.getFunctions()) {
+            if (reaches(function, function, new HashSet<>())) recursive.add(function);
+        }
+
+        inlined = false;
+        for (FunctionDefinition function : program.getFunctions()) {
+            caller = function;
+            rewriteStatements(function.getStatements());
+        }
+        return inlined;
+    }
+
+    @Override
+    protected Expression rewrite(Expression expression) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() != Operator.ASSIGN) operatorExpression.setLeftExpr(rewriteExpression(operatorExpression.getLeftExpr()));
+            operatorExpression.setRightExpr(rewriteExpression(operatorExpression.getRightExpr()));
+            return expression;
+        }
+        if (!(expression instanceof FuncCallStatement call)) return expression;
+
+        List<Expression> arguments = call.getArguments();
+        for (int i = 0; i < arguments.size(); i++) {
+            arguments.set(i, rewriteExpression(arguments.get(i)));
+        }
+        if (call.getFunction() == null) return call;
+
+        String rejection = rejection(call);
+        report(call, rejection);
+        if (rejection != null) return call;
+
+        // inlined body can call other small functions, none of them leads back to it
+        inlined = true;
+        FunctionDefinition function = call.getFunction();
+        Expression body = substitute(returnedExpression(function), function.getParameters(), arguments);
+        if (call.getNotFlag() != null) body.setNotFlag(call.getNotFlag());
+        return rewriteExpression(body);
+    }
+
+    // matched value is checked to exist before the cases read it, like a predicate's argument
+    @Override
+    protected void rewriteMatch(PatternMatchingStatement match) {
+        TypeSpecifier type = types.typeOf(match.getToMatch());
+        if (type != null) matchedTypes.put(match.getMatchedBinding(), type);
+        super.rewriteMatch(match);
+    }
+
+    // Reason why the call can't be inlined, null if it can
+    private String rejection(FuncCallStatement call) {
+        FunctionDefinition function = call.getFunction();
+
+        if (recursive.contains(function)) return "recursive";
+
+        Expression returned = returnedExpression(function);
+        if (returned == null || !StaticTypes.isValueType(function.getType())) return "body is not a single return";
+        if (size(returned) > policy.getInlineSize()) return "too large";
+        if (call.getNotFlag() != null && !isNegatable(returned, call.getNotFlag())) return "negated call";
+
+        List<Parameter> parameters = function.getParameters();
+        try {
+            Resolver.checkParameters(parameters, function.getName());
+        } catch (ParameterAlreadyDeclaredException e) {
+            return "parameters don't match";
+        }
+        if (parameters.size() != call.getArguments().size()) return "parameters don't match";
+
+        if (types.typeOf(returned) != function.getType()) return "returned type is not proven";
+        if (!keepsParameters(returned, parameters)) return "parameter is assigned or negated";
+
+        for (int i = 0; i < parameters.size(); i++) {
+            if (!isPassedValue(call.getArguments().get(i), parameters.get(i).getType())) return "argument is not a literal or local variable";
+        }
+        return null;
+    }
+
+    // negated call gives the negated returned value, which the returned expression computes when it's negated itself
+    private boolean isNegatable(Expression returned, NotValue notFlag) {
+        if (returned.getNotFlag() != null || returned instanceof FuncCallStatement) return false;
+
+        if (returned instanceof OperatorExpression operatorExpression) {
+            Operator op = operatorExpression.getOperator();
+            return op != Operator.ASSIGN && StaticTypes.resultType(op, types.typeOf(operatorExpression.getLeftExpr()), notFlag) != null;
+        }
+        return StaticTypes.negation(types.typeOf(returned), notFlag) != null;
+    }
+
+    private void report(FuncCallStatement call, String rejection) {
+        if (policy.getInlineReport() == null) return;
+
+        if (rejection == null) policy.getInlineReport().accept(caller.getName() + ": " + call.getIdentifier() + " inlined");
+        else policy.getInlineReport().accept(caller.getName() + ": " + call.getIdentifier() + " not inlined (" + rejection + ")");
+    }
+
+    private static Expression returnedExpression(FunctionDefinition function) {
+        List<Statement> statements = function.getStatements();
+        if (statements.size() != 1 || !(statements.get(0) instanceof JumpStatement jump) || jump.getType() != JumpType.RETURN) return null;
+        return jump.getRetExpr();
+    }
+
+    private boolean reaches(FunctionDefinition from, FunctionDefinition target, HashSet<FunctionDefinition> visited) {
+        if (!visited.add(from)) return false;
+
+        for (FunctionDefinition called : calledFunctions(from.getStatements())) {
+            if (called == target || reaches(called, target, visited)) return true;
+        }
+        return false;
+    }
+
+    static List<FunctionDefinition> calledFunctions(List<Statement> statements) {
+        ArrayList<FunctionDefinition> called = new ArrayList<>();
+        new ExpressionRewriter(null) {
+            @Override
+            protected Expression rewrite(Expression expression) {
+                if (expression instanceof OperatorExpression operatorExpression) {
+                    rewriteExpression(operatorExpression.getLeftExpr());
+                    rewriteExpression(operatorExpression.getRightExpr());
+                } else if (expression instanceof FuncCallStatement call) {
+                    if (call.getFunction() != null) called.add(call.getFunction());
+                    for (Expression argument : call.getArguments()) {
+                        rewriteExpression(argument);
+                    }
+                }
+                return expression;
+            }
+        }.rewriteStatements(statements);
+        return called;
+    }
+
+    static int size(Expression expression) {
+        if (expression == null) return 0;
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            return 1 + size(operatorExpression.getLeftExpr()) + size(operatorExpression.getRightExpr());
+        }
+        int size = 1;
+        if (expression instanceof FuncCallStatement call) {
+            for (Expression argument : call.getArguments()) {
+                size += size(argument);
+            }
+        }
+        return size;
+    }
+
+    // parameter can't be assigned, and a negated one has to be of a type the negation fits, as errors would name the argument
+    private static boolean keepsParameters(Expression expression, List<Parameter> parameters) {
+        if (expression == null) return true;
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN && parameterOf(operatorExpression.getLeftExpr(), parameters) != null) return false;
+            return keepsParameters(operatorExpression.getLeftExpr(), parameters) && keepsParameters(operatorExpression.getRightExpr(), parameters);
+        }
+        if (expression instanceof FuncCallStatement call) {
+            for (Expression argument : call.getArguments()) {
+                if (!keepsParameters(argument, parameters)) return false;
+            }
+            return true;
+        }
+
+        Parameter parameter = parameterOf(expression, parameters);
+        return parameter == null || expression.getNotFlag() == null || StaticTypes.negation(parameter.getType(), expression.getNotFlag()) != null;
+    }
+
+    private static Parameter parameterOf(Expression expression, List<Parameter> parameters) {
+        if (expression == null || expression.getIdentifier() == null || expression.getBinding() == null) return null;
+        if (expression instanceof FuncCallStatement) return null;
+
+        for (Parameter parameter : parameters) {
+            if (parameter.getBinding() == expression.getBinding()) return parameter;
+        }
+        return null;
+    }
+
+    // value which doesn't change until the body reads it, and which the argument check would accept
+    private boolean isPassedValue(Expression argument, TypeSpecifier type) {
+        if (ConstantFolder.isConstant(argument)) return argument.getType() == type;
+        if (argument instanceof OperatorExpression || argument instanceof FuncCallStatement) return false;
+        if (argument.getIdentifier() == null || argument.getNotFlag() != null) return false;
+
+        Binding binding = argument.getBinding();
+        if (binding == null || binding.isGlobal() || types.mayBeEmpty(binding)) return false;
+        return matchedTypes.containsKey(binding) ? matchedTypes.get(binding) == type : types.typeOf(binding) == type;
+    }
+
+    // Copy of the returned expression reading the arguments instead of the parameters
+    private static Expression substitute(Expression expression, List<Parameter> parameters, List<Expression> arguments) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            OperatorExpression copy = new OperatorExpression(
+                    substitute(operatorExpression.getLeftExpr(), parameters, arguments),
+                    substitute(operatorExpression.getRightExpr(), parameters, arguments),
+                    operatorExpression.getOperator()
+            );
+            copy.setNotFlag(operatorExpression.getNotFlag());
+            return copy;
+        }
+        if (expression instanceof FuncCallStatement call) {
+            ArrayList<Expression> copiedArguments = new ArrayList<>();
+            for (Expression argument : call.getArguments()) {
+                copiedArguments.add(substitute(argument, parameters, arguments));
+            }
+            FuncCallStatement copy = new FuncCallStatement(call.getNotFlag(), call.getIdentifier(), copiedArguments);
+            copy.link(call.getBuiltin(), call.getFunction());
+            return copy;
+        }
+
+        Parameter parameter = parameterOf(expression, parameters);
+        if (parameter != null) return copyOf(arguments.get(parameters.indexOf(parameter)), expression.getNotFlag());
+        return copyOf(expression, expression.getNotFlag());
+    }
+
+    private static Expression copyOf(Expression expression, NotValue notFlag) {
+        if (expression == null) return null;
+
+        if (expression.getIdentifier() != null) {
+            Expression copy = new Expression(notFlag, expression.getType());
+            copy.setIdentifier(expression.getIdentifier());
+            copy.setBinding(expression.getBinding());
+            return copy;
+        }
+
+        switch (expression.getType()) {
+            case INT -> {
+                return new Expression(notFlag, TypeSpecifier.INT, (Integer) expression.getIntValue());
+            }
+            case FLOAT -> {
+                return new Expression(notFlag, TypeSpecifier.FLOAT, (Float) expression.getFloatValue());
+            }
+            case STRING -> {
+                return new Expression(notFlag, TypeSpecifier.STRING, expression.getStringValue());
+            }
+            case BOOL -> {
+                return new Expression(notFlag, TypeSpecifier.BOOL, (Boolean) expression.getBoolValue());
+            }
+            default -> {
+                return new Expression(notFlag, expression.getType());
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package tkom.project.optimizer;
+
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.*;
+import tkom.project.runtime.StaticTypes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+// Moves expressions of a while loop, which read only variables the loop doesn't change, to immutable variables defined before it
+// Moved expression is computed even if the loop doesn't run, so it has no side effects and can't fail, unless it's the first
+// thing the condition computes, which fails before the loop in the same way
+// Outer loops are done first, so an expression which doesn't change in any of the enclosing loops is moved before all of them
+public class LoopInvariantMotion extends ExpressionRewriter {
+    private final StaticTypes types;
+    private final SafeExpressions safe;
+
+    private final HashSet<Binding> variant = new HashSet<>();
+    private final Set<Expression> evaluatedFirst = Collections.newSetFromMap(new IdentityHashMap<>());
+    private ArrayList<VariableDefinition> hoisted;
+    private boolean globalsVariant;
+    private boolean globalsUnsafe;
+    private int temporaries;
+
+    public LoopInvariantMotion(Program program) {
+        super(program);
+        this.types = new StaticTypes(program);
+        this.safe = new SafeExpressions(types);
+    }
+
+    // Returns true if any expression was moved, the program has to be resolved again to bind the new variables
+    public boolean hoist() {
+        types.analyze();
+
+        // function called by a global initializer can read a later global before it's defined
+        globalsUnsafe = false;
+        for (VariableDefinition global : program.getVariables()) {
+            if (ConstantFolder.callsFunction(global.getValue())) globalsUnsafe = true;
+        }
+
+        temporaries = 0;
+        for (FunctionDefinition function : program.getFunctions()) {
+            hoistLoops(function.getStatements());
+        }
+        return temporaries > 0;
+    }
+
+    private void hoistLoops(List<Statement> statements) {
+        if (statements == null) return;
+
+        for (int i = 0; i < statements.size(); i++) {
+            Statement statement = statements.get(i);
+
+            if (statement instanceof WhileStatement loop) {
+                List<VariableDefinition> definitions = hoistLoop(loop);
+                statements.addAll(i, definitions);
+                i += definitions.size();
+                hoistLoops(loop.getStatements());
+            }
+            else if (statement instanceof IfElseStatement ifElse) {
+                hoistLoops(ifElse.getIfStatements().getStatements());
+                for (IfBlock elifBlock : ifElse.getElifStatements()) {
+                    hoistLoops(elifBlock.getStatements());
+                }
+                if (ifElse.getElseStatements() != null) hoistLoops(ifElse.getElseStatements().getStatements());
+            }
+            else if (statement instanceof ExistStatement exist) {
+                hoistLoops(exist.getExistStatements());
+                hoistLoops(exist.getElseStatements());
+            }
+            else if (statement instanceof PatternMatchingStatement match) {
+                for (MatchCaseStatement caseStatement : match.getCases()) {
+                    hoistLoops(caseStatement.getStatements());
+                }
+            }
+        }
+    }
+
+    // Definitions of the moved expressions, in the order they have to be computed before the loop
+    private List<VariableDefinition> hoistLoop(WhileStatement loop) {
+        variant.clear();
+        globalsVariant = globalsUnsafe;
+        collectVariant(loop.getCondition());
+        collectVariant(loop.getStatements());
+
+        evaluatedFirst.clear();
+        Expression first = loop.getCondition();
+        while (first != null) {
+            evaluatedFirst.add(first);
+
+            // operands are computed right side first, logical operators start with the left one
+            if (!(first instanceof OperatorExpression operatorExpression) || operatorExpression.getOperator() == Operator.ASSIGN) break;
+            Operator op = operatorExpression.getOperator();
+            first = (op == Operator.AND || op == Operator.OR) ? operatorExpression.getLeftExpr() : operatorExpression.getRightExpr();
+        }
+
+        hoisted = new ArrayList<>();
+        loop.setCondition(rewriteExpression(loop.getCondition()));
+        evaluatedFirst.clear();
+        rewriteStatements(loop.getStatements());
+        return hoisted;
+    }
+
+    @Override
+    protected Expression rewrite(Expression expression) {
+        if (isInvariant(expression) && safe.computesValue(expression) && (evaluatedFirst.contains(expression) || !safe.mayFail(expression))) {
+            VariableDefinition temporary = temporary("invariant" + temporaries++, types.typeOf(expression), expression);
+            hoisted.add(temporary);
+            return readOf(temporary);
+        }
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() != Operator.ASSIGN) operatorExpression.setLeftExpr(rewriteExpression(operatorExpression.getLeftExpr()));
+            operatorExpression.setRightExpr(rewriteExpression(operatorExpression.getRightExpr()));
+        } else if (expression instanceof FuncCallStatement call) {
+            List<Expression> arguments = call.getArguments();
+            for (int i = 0; i < arguments.size(); i++) {
+                arguments.set(i, rewriteExpression(arguments.get(i)));
+            }
+        }
+        return expression;
+    }
+
+    // case conditions are predicates of the matched value or values compared with it, so they stay as they are
+    @Override
+    protected void rewriteMatch(PatternMatchingStatement match) {
+        match.setToMatch(rewriteExpression(match.getToMatch()));
+        for (MatchCaseStatement caseStatement : match.getCases()) {
+            rewriteStatements(caseStatement.getStatements());
+        }
+    }
+
+    private void collectVariant(List<Statement> statements) {
+        if (statements == null) return;
+
+        for (Statement statement : statements) {
+            if (statement instanceof VariableDefinition varDef) {
+                variant.add(varDef.getBinding());
+                collectVariant(varDef.getValue());
+            }
+            else if (statement instanceof Expression expression) collectVariant(expression);
+            else if (statement instanceof IfElseStatement ifElse) {
+                collectVariant(ifElse.getIfStatements().getCondition());
+                collectVariant(ifElse.getIfStatements().getStatements());
+                for (IfBlock elifBlock : ifElse.getElifStatements()) {
+                    collectVariant(elifBlock.getCondition());
+                    collectVariant(elifBlock.getStatements());
+                }
+                if (ifElse.getElseStatements() != null) collectVariant(ifElse.getElseStatements().getStatements());
+            }
+            else if (statement instanceof WhileStatement whileStatement) {
+                collectVariant(whileStatement.getCondition());
+                collectVariant(whileStatement.getStatements());
+            }
+            else if (statement instanceof ExistStatement exist) {
+                collectVariant(exist.getExistStatements());
+                collectVariant(exist.getElseStatements());
+            }
+            else if (statement instanceof PatternMatchingStatement match) {
+                variant.add(match.getMatchedBinding());
+                collectVariant(match.getToMatch());
+                for (MatchCaseStatement caseStatement : match.getCases()) {
+                    collectVariant(caseStatement.getCondition());
+                    collectVariant(caseStatement.getStatements());
+                }
+            }
+            else if (statement instanceof JumpStatement jump) collectVariant(jump.getRetExpr());
+        }
+    }
+
+    // assigned variables change in the loop, and a called function can change any global
+    private void collectVariant(Expression expression) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN) variant.add(operatorExpression.getLeftExpr().getBinding());
+            collectVariant(operatorExpression.getLeftExpr());
+            collectVariant(operatorExpression.getRightExpr());
+        } else if (expression instanceof FuncCallStatement call) {
+            if (call.getBuiltin() == null) globalsVariant = true;
+            for (Expression argument : call.getArguments()) {
+                collectVariant(argument);
+            }
+        }
+    }
+
+    // Expression without side effects, which gives the same value in every iteration
+    private boolean isInvariant(Expression expression) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            return operatorExpression.getOperator() != Operator.ASSIGN
+                    && isInvariant(operatorExpression.getLeftExpr()) && isInvariant(operatorExpression.getRightExpr());
+        }
+        if (expression instanceof FuncCallStatement call) {
+            if (call.getBuiltin() == null || !call.getBuiltin().isPure()) return false;
+            for (Expression argument : call.getArguments()) {
+                if (!isInvariant(argument)) return false;
+            }
+            return true;
+        }
+        if (expression.getIdentifier() == null) return true;
+
+        Binding binding = expression.getBinding();
+        return binding != null && !variant.contains(binding) && !(binding.isGlobal() && globalsVariant);
+    }
+}
@@ -0,0 +1,30 @@
+package tkom.project.optimizer;
+
+import tkom.project.Resolver;
+import tkom.project.nodes.Program;
+
+// Rewrites the resolved program before it's executed, every pass keeps the results and errors of the program
+// constants are folded again in inlined bodies, as their parameters became the arguments of the call, and in simplified expressions
+// variables defined for loop invariants and repeated expressions get their slots from Resolver, like the ones defined in the code
+public class Optimizer {
+    private final Program program;
+    private final OptimizerPolicy policy;
+
+    public Optimizer(Program program) {
+        this(program, OptimizerPolicy.DEFAULT);
+    }
+
+    public Optimizer(Program program, OptimizerPolicy policy) {
+        this.program = program;
+        this.policy = policy;
+    }
+
+    public void optimize() {
+        new ConstantFolder(program).fold();
+        if (new Inliner(program, policy).inline()) new ConstantFolder(program).fold();
+        if (new AlgebraicSimplifier(program).simplify()) new ConstantFolder(program).fold();
+        if (new DeadCodeEliminator(program).eliminate()) new Resolver(program).resolve();
+        if (new LoopInvariantMotion(program).hoist()) new Resolver(program).resolve();
+        if (new CommonSubexpressions(program).eliminate()) new Resolver(program).resolve();
+    }
+}
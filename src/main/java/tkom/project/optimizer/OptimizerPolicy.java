@@ -0,0 +1,27 @@
+package tkom.project.optimizer;
+
+import java.util.function.Consumer;
+
+// Calls of functions returning an expression of at most inlineSize nodes are inlined, 0 turns inlining off
+// every call site of a user function is reported to inlineReport when it's given
+public final class OptimizerPolicy {
+    public static final OptimizerPolicy DEFAULT = new OptimizerPolicy(16, null);
+
+    private final int inlineSize;
+    private final Consumer<String> inlineReport;
+
+    public OptimizerPolicy(int inlineSize, Consumer<String> inlineReport) {
+        if (inlineSize < 0) throw new IllegalArgumentException("Inlined function size can't be negative");
+
+        this.inlineSize = inlineSize;
+        this.inlineReport = inlineReport;
+    }
+
+    public int getInlineSize() {
+        return inlineSize;
+    }
+
+    public Consumer<String> getInlineReport() {
+        return inlineReport;
+    }
+}
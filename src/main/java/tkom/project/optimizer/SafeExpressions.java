@@ -0,0 +1,71 @@
+package tkom.project.optimizer;
+
+import tkom.project.nodes.Binding;
+import tkom.project.nodes.Operator;
+import tkom.project.nodes.TypeSpecifier;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.FuncCallStatement;
+import tkom.project.runtime.Builtin;
+import tkom.project.runtime.StaticTypes;
+
+// Expressions which can be computed earlier than the program computes them, as they can't fail and have a proven type
+final class SafeExpressions {
+    private final StaticTypes types;
+
+    SafeExpressions(StaticTypes types) {
+        this.types = types;
+    }
+
+    // reads and literals are already as cheap as the variable which would replace them
+    boolean computesValue(Expression expression) {
+        if (!(expression instanceof OperatorExpression) && !(expression instanceof FuncCallStatement)) return false;
+        return types.typeOf(expression) != null;
+    }
+
+    boolean mayFail(Expression expression) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            Expression left = operatorExpression.getLeftExpr();
+            Expression right = operatorExpression.getRightExpr();
+            if (operatorExpression.getOperator() == Operator.ASSIGN || types.typeOf(expression) == null || mayFail(left) || mayFail(right)) return true;
+
+            // operands of one proven type can only fail as divisors
+            Operator op = operatorExpression.getOperator();
+            if (op == Operator.DIV || op == Operator.MODULO) return !ConstantFolder.isConstant(right) || isZero(right);
+            return false;
+        }
+        if (expression instanceof FuncCallStatement call) {
+            Builtin builtin = call.getBuiltin();
+            if (builtin == null || !builtin.isPure() || call.getNotFlag() != null || call.getArguments().size() != builtin.getParameterCount()) return true;
+
+            Expression argument = call.getArguments().get(0);
+            return mayFail(argument) || !builtin.alwaysConverts(types.typeOf(argument));
+        }
+
+        if (expression.getIdentifier() == null) return expression.getNotFlag() != null && StaticTypes.negation(expression.getType(), expression.getNotFlag()) == null;
+
+        // optional global can be read before its definition, by a function called from an earlier global's initializer
+        Binding binding = expression.getBinding();
+        if (binding != null && binding.isGlobal() && binding.isOptional()) return true;
+        return types.typeOf(expression) == null || types.mayBeEmpty(expression) || !hasValue(binding);
+    }
+
+    // Expression whose value, when it's computed, is of the type and is never empty
+    boolean givesValue(Expression expression, TypeSpecifier type) {
+        if (types.typeOf(expression) != type || types.mayBeEmpty(expression)) return false;
+
+        Binding binding = expression.getBinding();
+        if (binding != null && binding.isGlobal() && binding.isOptional()) return false;
+        return expression instanceof OperatorExpression || expression instanceof FuncCallStatement || hasValue(binding);
+    }
+
+    // variable which can be left without value fails when it's read, unless it's optional, and then it gives nothing
+    private boolean hasValue(Binding binding) {
+        return binding == null || !types.mayBeEmpty(binding);
+    }
+
+    private static boolean isZero(Expression constant) {
+        if (constant.getType() == TypeSpecifier.INT) return constant.getIntValue() == 0;
+        return constant.getType() != TypeSpecifier.FLOAT || constant.getFloatValue() == 0;
+    }
+}
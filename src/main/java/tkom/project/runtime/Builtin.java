@@ -0,0 +1,165 @@
+package tkom.project.runtime;
+
+import tkom.project.exceptions.MismatchedTypesException;
+import tkom.project.exceptions.TypeException;
+import tkom.project.nodes.TypeSpecifier;
+import tkom.project.scope.FrameStack;
+import tkom.project.scope.Reader;
+
+import java.util.Scanner;
+
+// Predefined functions, they replace their evaluated argument on the stack with the result
+public enum Builtin {
+    TO_INT("to_int", 1, TypeSpecifier.INT),
+    TO_FLOAT("to_float", 1, TypeSpecifier.FLOAT),
+    TO_STRING("to_string", 1, TypeSpecifier.STRING),
+    TO_BOOL("to_bool", 1, TypeSpecifier.BOOL),
+    PRINT("print", 1, TypeSpecifier.STRING),
+    INPUT("input", 0, TypeSpecifier.STRING);
+
+    private final String name;
+    private final int parameterCount;
+    private final TypeSpecifier returnType;
+
+    Builtin(String name, int parameterCount, TypeSpecifier returnType) {
+        this.name = name;
+        this.parameterCount = parameterCount;
+        this.returnType = returnType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    public TypeSpecifier getReturnType() {
+        return returnType;
+    }
+
+    // conversions depend only on their argument, so their result can be computed before execution
+    public boolean isPure() {
+        return this != PRINT && this != INPUT;
+    }
+
+    // Conversion which can't fail for an argument of given type, only text can be unreadable as a number
+    public boolean alwaysConverts(TypeSpecifier type) {
+        switch (this) {
+            case TO_INT -> {
+                return type == TypeSpecifier.INT || type == TypeSpecifier.FLOAT || type == TypeSpecifier.BOOL;
+            }
+            case TO_FLOAT -> {
+                return type == TypeSpecifier.INT || type == TypeSpecifier.FLOAT;
+            }
+            case TO_STRING -> {
+                return StaticTypes.isValueType(type);
+            }
+            case TO_BOOL -> {
+                return type == TypeSpecifier.INT || type == TypeSpecifier.BOOL || type == TypeSpecifier.STRING;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    public static Builtin find(String name) {
+        for (Builtin builtin : values()) {
+            if (builtin.name.equals(name)) return builtin;
+        }
+        return null;
+    }
+
+    public void execute(FrameStack frames, Reader debug) {
+        switch (this) {
+            case TO_INT -> executeToInt(frames);
+            case TO_FLOAT -> executeToFloat(frames);
+            case TO_STRING -> executeToString(frames);
+            case TO_BOOL -> executeToBool(frames);
+            case PRINT -> executePrint(frames, debug);
+            case INPUT -> {
+                Scanner scanner = new Scanner(System.in);
+                frames.pushString(scanner.nextLine());
+            }
+        }
+    }
+
+    private void executePrint(FrameStack frames, Reader debug) {
+        if (frames.peekType() != TypeSpecifier.STRING) throw new MismatchedTypesException(name, TypeSpecifier.STRING, frames.peekType());
+
+        String toPrint = frames.popString();
+        System.out.println(toPrint);
+        if (debug != null) debug.write(toPrint);
+
+        frames.pushString(toPrint);
+    }
+
+    private TypeSpecifier argumentType(FrameStack frames, TypeSpecifier[] expected) {
+        TypeSpecifier type = frames.peekType();
+        if (type == null) throw new TypeException(expected, null, name);
+
+        return type;
+    }
+
+    private void executeToInt(FrameStack frames) {
+        TypeSpecifier[] expected = new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.FLOAT, TypeSpecifier.BOOL, TypeSpecifier.STRING};
+
+        switch (argumentType(frames, expected)) {
+            case INT -> {
+            }
+            case FLOAT -> frames.pushInt(Math.round(frames.popFloat()));
+            case BOOL -> frames.pushInt(frames.popBool() ? 1 : 0);
+            case STRING -> {
+                String toParse = frames.popString();
+                int parsedInt;
+
+                try {
+                    parsedInt = Integer.parseInt(toParse);
+                } catch (NumberFormatException e) {
+                    throw new NumberFormatException();
+                }
+
+                frames.pushInt(parsedInt);
+            }
+            default -> throw new TypeException(expected, frames.peekType(), name);
+        }
+    }
+
+    private void executeToFloat(FrameStack frames) {
+        TypeSpecifier[] expected = new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.FLOAT};
+
+        switch (argumentType(frames, expected)) {
+            case INT -> frames.pushFloat(frames.popInt());
+            case FLOAT -> {
+            }
+            default -> throw new TypeException(expected, frames.peekType(), name);
+        }
+    }
+
+    private void executeToString(FrameStack frames) {
+        TypeSpecifier[] expected = new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.FLOAT, TypeSpecifier.BOOL, TypeSpecifier.STRING};
+
+        switch (argumentType(frames, expected)) {
+            case INT -> frames.pushString(Integer.toString(frames.popInt()));
+            case FLOAT -> frames.pushString(Float.toString(frames.popFloat()));
+            case BOOL -> frames.pushString(Boolean.toString(frames.popBool()));
+            case STRING -> {
+            }
+            default -> throw new TypeException(expected, frames.peekType(), name);
+        }
+    }
+
+    private void executeToBool(FrameStack frames) {
+        TypeSpecifier[] expected = new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.BOOL, TypeSpecifier.STRING};
+
+        switch (argumentType(frames, expected)) {
+            case INT -> frames.pushBool(frames.popInt() != 0);
+            case BOOL -> {
+            }
+            case STRING -> frames.pushBool(Boolean.parseBoolean(frames.popString()));
+            default -> throw new TypeException(expected, frames.peekType(), name);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package tkom.project.runtime;
+
+import tkom.project.exceptions.*;
+import tkom.project.nodes.NotValue;
+import tkom.project.nodes.Operator;
+import tkom.project.nodes.TypeSpecifier;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.scope.FrameStack;
+
+import java.util.Objects;
+
+// Operations shared by the execution engines, working on values kept on the frame stack
+// Operands are on the stack with the left one on top, the result replaces both of them
+public final class Operations {
+    private Operations() {
+    }
+
+    public static void evaluateOperator(FrameStack frames, Operator op, NotValue notFlag) {
+        if (frames.peekType() == null || frames.peekType(1) == null) throw new ExpressionResolvingException();
+
+        switch (op) {
+            case ADD -> tryAddExpression(frames, notFlag);
+            case SUB, MULTI, DIV, MODULO -> tryNumericExpression(frames, op, notFlag);
+            case LESS, LESS_EQ, MORE, MORE_EQ -> tryNumComparisonExpression(frames, op, notFlag);
+            case EQUAL, NOT_EQUAL -> tryComparisonExpression(frames, op, notFlag);
+            case OR, AND -> tryLogicalExpression(frames, op, notFlag);
+            default -> throw new ExpressionResolvingException();
+        }
+    }
+
+    // value read from a variable is negated with the flag of the reference
+    public static void negateVariable(FrameStack frames, Expression variable, TypeSpecifier type) {
+        switch (type) {
+            case INT -> {
+                if (variable.getNotFlag() != NotValue.ARITHMETIC) throw new ArithmeticNotException(variable.getType(), variable.getIdentifier());
+                frames.pushInt(-frames.popInt());
+            }
+            case FLOAT -> {
+                if (variable.getNotFlag() != NotValue.ARITHMETIC) throw new ArithmeticNotException(variable.getType(), variable.getIdentifier());
+                frames.pushFloat(-frames.popFloat());
+            }
+            case BOOL -> {
+                if (variable.getNotFlag() != NotValue.LOGICAL) throw new LogicalNotException(variable.getType(), variable.getIdentifier());
+                frames.pushBool(!frames.popBool());
+            }
+            default -> {
+            }
+        }
+    }
+
+    public static void negateReturnedValue(FrameStack frames, TypeSpecifier type, NotValue notFlag) {
+        if (notFlag == null) return;
+        String location = "function-call";
+
+        switch (type) {
+            case INT -> {
+                if (notFlag != NotValue.ARITHMETIC) throw new LogicalNotException(type, location);
+                frames.pushInt(-frames.popInt());
+            }
+            case FLOAT -> {
+                if (notFlag != NotValue.ARITHMETIC) throw new LogicalNotException(type, location);
+                frames.pushFloat(-frames.popFloat());
+            }
+            case BOOL -> {
+                if (notFlag != NotValue.LOGICAL) throw new ArithmeticNotException(type, location);
+                frames.pushBool(!frames.popBool());
+            }
+            default -> {
+                if (notFlag == NotValue.ARITHMETIC) throw new ArithmeticNotException(type, location);
+                else throw new LogicalNotException(type, location);
+            }
+        }
+    }
+
+    public static void tryAddExpression(FrameStack frames, NotValue notFlag) {
+        TypeSpecifier left = frames.peekType();
+        TypeSpecifier right = frames.peekType(1);
+
+        if (left != right) throw new MismatchedSidesOfOperationException("additive", left, right);
+        if (notFlag == NotValue.LOGICAL) throw new LogicalNotException(left, "additive-expression");
+        else {
+            switch (left) {
+                case INT -> checkArithmeticNot(frames, frames.popInt() + frames.popInt(), notFlag);
+                case FLOAT -> checkArithmeticNot(frames, frames.popFloat() + frames.popFloat(), notFlag);
+                case STRING -> {
+                    if (notFlag != null) throw new ArithmeticNotException(TypeSpecifier.STRING, "additive-expression");
+                    String leftValue = frames.popString();
+                    frames.pushString(leftValue + frames.popString());
+                }
+                default -> throw new IncorrectTypeInOperationException("addition", left);
+            }
+        }
+    }
+
+    public static void tryNumericExpression(FrameStack frames, Operator op, NotValue notFlag) {
+        String location = "sub/multi/div/mod";
+        TypeSpecifier left = frames.peekType();
+        TypeSpecifier right = frames.peekType(1);
+
+        if (left != right) throw new MismatchedSidesOfOperationException(location, left, right);
+        if (notFlag == NotValue.LOGICAL) throw new LogicalNotException(left, location);
+        else {
+            switch (left) {
+                case INT -> integerNumericExpression(frames, op, notFlag);
+                case FLOAT -> floatNumericExpression(frames, op, notFlag);
+                default -> throw new IncorrectTypeInOperationException(location, left);
+            }
+        }
+    }
+
+    private static void integerNumericExpression(FrameStack frames, Operator op, NotValue notFlag) {
+        int left = frames.popInt();
+        int right = frames.popInt();
+
+        switch (op) {
+            case SUB -> checkArithmeticNot(frames, left - right, notFlag);
+            case MULTI -> checkArithmeticNot(frames, left * right, notFlag);
+            case DIV -> {
+                if (right == 0) throw new DivisionByZeroException();
+                checkArithmeticNot(frames, (float) left / right, notFlag);
+            }
+            case MODULO -> {
+                if (right == 0) throw new DivisionByZeroException();
+                checkArithmeticNot(frames, left % right, notFlag);
+            }
+            default -> throw new ExpressionResolvingException();
+        }
+    }
+
+    private static void floatNumericExpression(FrameStack frames, Operator op, NotValue notFlag) {
+        float left = frames.popFloat();
+        float right = frames.popFloat();
+
+        switch (op) {
+            case SUB -> checkArithmeticNot(frames, left - right, notFlag);
+            case MULTI -> checkArithmeticNot(frames, left * right, notFlag);
+            case DIV -> {
+                if (right == 0) throw new DivisionByZeroException();
+                checkArithmeticNot(frames, left / right, notFlag);
+            }
+            case MODULO -> {
+                if (right == 0) throw new DivisionByZeroException();
+                checkArithmeticNot(frames, left % right, notFlag);
+            }
+            default -> throw new ExpressionResolvingException();
+        }
+    }
+
+    public static void tryNumComparisonExpression(FrameStack frames, Operator op, NotValue notFlag) {
+        String location = "comparison";
+        TypeSpecifier left = frames.peekType();
+        TypeSpecifier right = frames.peekType(1);
+
+        if (left != right) throw new MismatchedSidesOfOperationException(location, left, right);
+        if (notFlag == NotValue.ARITHMETIC) throw new ArithmeticNotException(TypeSpecifier.BOOL, location);
+        else {
+            switch (left) {
+                case INT -> {
+                    int leftValue = frames.popInt();
+                    int rightValue = frames.popInt();
+
+                    switch (op) {
+                        case LESS -> checkLogicalNot(frames, leftValue < rightValue, notFlag);
+                        case LESS_EQ -> checkLogicalNot(frames, leftValue <= rightValue, notFlag);
+                        case MORE -> checkLogicalNot(frames, leftValue > rightValue, notFlag);
+                        case MORE_EQ -> checkLogicalNot(frames, leftValue >= rightValue, notFlag);
+                        default -> throw new ExpressionResolvingException();
+                    }
+                }
+                case FLOAT -> {
+                    float leftValue = frames.popFloat();
+                    float rightValue = frames.popFloat();
+
+                    switch (op) {
+                        case LESS -> checkLogicalNot(frames, leftValue < rightValue, notFlag);
+                        case LESS_EQ -> checkLogicalNot(frames, leftValue <= rightValue, notFlag);
+                        case MORE -> checkLogicalNot(frames, leftValue > rightValue, notFlag);
+                        case MORE_EQ -> checkLogicalNot(frames, leftValue >= rightValue, notFlag);
+                        default -> throw new ExpressionResolvingException();
+                    }
+                }
+                default -> throw new IncorrectTypeInOperationException(location, left);
+            }
+        }
+    }
+
+    public static void tryComparisonExpression(FrameStack frames, Operator op, NotValue notFlag) {
+        String location = "comparison";
+        TypeSpecifier left = frames.peekType();
+        TypeSpecifier right = frames.peekType(1);
+
+        if (left != right) throw new MismatchedSidesOfOperationException(location, left, right);
+        if (notFlag == NotValue.ARITHMETIC) throw new ArithmeticNotException(TypeSpecifier.BOOL, location);
+        else {
+            boolean equal;
+            switch (left) {
+                case INT -> equal = frames.popInt() == frames.popInt();
+                case FLOAT -> equal = Float.compare(frames.popFloat(), frames.popFloat()) == 0;
+                case STRING -> equal = Objects.equals(frames.popString(), frames.popString());
+                default -> throw new IncorrectTypeInOperationException(location, left);
+            }
+            checkLogicalNot(frames, (op == Operator.EQUAL) == equal, notFlag);
+        }
+    }
+
+    // Left operand of AND and OR is evaluated first, the right one only if the left one doesn't decide the result
+    // Returns true if the left operand on top of the stack decided it, it's then replaced by the result
+    public static boolean shortCircuit(FrameStack frames, Operator op, NotValue notFlag) {
+        if (frames.peekType() == null) throw new ExpressionResolvingException();
+        if (frames.peekType() != TypeSpecifier.BOOL) return false;
+
+        boolean left = frames.peekInt() != 0;
+        if (left != (op == Operator.OR)) return false;
+        if (notFlag == NotValue.ARITHMETIC) throw new ArithmeticNotException(TypeSpecifier.BOOL, "logical");
+
+        frames.pop();
+        checkLogicalNot(frames, left, notFlag);
+        return true;
+    }
+
+    public static void tryLogicalExpression(FrameStack frames, Operator op, NotValue notFlag) {
+        String location = "logical";
+        TypeSpecifier left = frames.peekType();
+        TypeSpecifier right = frames.peekType(1);
+
+        if (left != right) throw new MismatchedSidesOfOperationException(location, left, right);
+        if (notFlag == NotValue.ARITHMETIC) throw new ArithmeticNotException(TypeSpecifier.BOOL, location);
+        else {
+            if (left == TypeSpecifier.BOOL) {
+                boolean leftValue = frames.popBool();
+                boolean rightValue = frames.popBool();
+
+                switch (op) {
+                    case AND -> checkLogicalNot(frames, leftValue && rightValue, notFlag);
+                    case OR -> checkLogicalNot(frames, leftValue || rightValue, notFlag);
+                    default -> throw new ExpressionResolvingException();
+                }
+            } else throw new IncorrectTypeInOperationException(location, left);
+        }
+    }
+
+    private static void checkArithmeticNot(FrameStack frames, int result, NotValue notFlag) {
+        if (notFlag == NotValue.ARITHMETIC) frames.pushInt(-result);
+        else frames.pushInt(result);
+    }
+
+    private static void checkArithmeticNot(FrameStack frames, float result, NotValue notFlag) {
+        if (notFlag == NotValue.ARITHMETIC) frames.pushFloat(-result);
+        else frames.pushFloat(result);
+    }
+
+    private static void checkLogicalNot(FrameStack frames, boolean result, NotValue notFlag) {
+        if (notFlag == NotValue.LOGICAL) frames.pushBool(!result);
+        else frames.pushBool(result);
+    }
+}
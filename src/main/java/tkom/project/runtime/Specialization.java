@@ -0,0 +1,11 @@
+package tkom.project.runtime;
+
+import tkom.project.scope.FrameStack;
+
+// Evaluation of one expression node specialized to the types of values it has seen, made by Specializations
+// Values are on the frame stack like for Operations
+@FunctionalInterface
+public interface Specialization {
+    // Returns false leaving the stack untouched when the values are not of the types it was specialized to
+    boolean evaluate(FrameStack frames);
+}
@@ -0,0 +1,285 @@
+package tkom.project.runtime;
+
+import tkom.project.exceptions.DivisionByZeroException;
+import tkom.project.nodes.NotValue;
+import tkom.project.nodes.Operator;
+import tkom.project.nodes.TypeSpecifier;
+import tkom.project.scope.FrameStack;
+
+import java.util.Objects;
+
+// Specialized versions of operators and variable reads, each does only what Operations do for the values of one type
+// Node is given its specialization after the first evaluation, null means the types are not known yet
+// Operators with operand types proven by TypeChecker get theirs before execution
+public final class Specializations {
+    private Specializations() {
+    }
+
+    // Used by the nodes which have seen values of different types, or values the operation fails on
+    public static final Specialization GENERIC = frames -> false;
+
+    // Operands are on the stack with the left one on top
+    public static Specialization operator(Operator op, TypeSpecifier left, TypeSpecifier right, NotValue notFlag) {
+        if (left == null || right == null) return null;
+        if (left != right || StaticTypes.resultType(op, left, notFlag) == null) return GENERIC;
+
+        Specialization typed = typedOperator(op, left, notFlag);
+        return frames -> operandsOf(frames, left) && typed.evaluate(frames);
+    }
+
+    // Used when TypeChecker proved both operands are always of the type, so they aren't checked
+    // Operator has to have a result for the type, see StaticTypes.resultType
+    public static Specialization typedOperator(Operator op, TypeSpecifier type, NotValue notFlag) {
+        Specialization specialization = switch (type) {
+            case INT -> intOperator(op);
+            case FLOAT -> floatOperator(op);
+            case STRING -> stringOperator(op);
+            default -> boolOperator(op);
+        };
+
+        if (notFlag == null) return specialization;
+        return negation(specialization, StaticTypes.resultType(op, type, notFlag));
+    }
+
+    // Read value is on top of the stack
+    public static Specialization variable(TypeSpecifier type, NotValue notFlag) {
+        if (type == null) return null;
+        if (notFlag == null) return frames -> frames.peekType() == type;
+        if (StaticTypes.negation(type, notFlag) == null) return GENERIC;
+
+        return negation(frames -> frames.peekType() == type, type);
+    }
+
+    private static Specialization negation(Specialization specialization, TypeSpecifier type) {
+        switch (type) {
+            case INT -> {
+                return frames -> {
+                    if (!specialization.evaluate(frames)) return false;
+                    frames.pushInt(-frames.popInt());
+                    return true;
+                };
+            }
+            case FLOAT -> {
+                return frames -> {
+                    if (!specialization.evaluate(frames)) return false;
+                    frames.pushFloat(-frames.popFloat());
+                    return true;
+                };
+            }
+            default -> {
+                return frames -> {
+                    if (!specialization.evaluate(frames)) return false;
+                    frames.pushBool(!frames.popBool());
+                    return true;
+                };
+            }
+        }
+    }
+
+    private static boolean operandsOf(FrameStack frames, TypeSpecifier type) {
+        return frames.peekType() == type && frames.peekType(1) == type;
+    }
+
+    private static Specialization intOperator(Operator op) {
+        switch (op) {
+            case ADD -> {
+                return frames -> {
+                    frames.pushInt(frames.popInt() + frames.popInt());
+                    return true;
+                };
+            }
+            case SUB -> {
+                return frames -> {
+                    int left = frames.popInt();
+                    frames.pushInt(left - frames.popInt());
+                    return true;
+                };
+            }
+            case MULTI -> {
+                return frames -> {
+                    frames.pushInt(frames.popInt() * frames.popInt());
+                    return true;
+                };
+            }
+            case DIV -> {
+                return frames -> {
+                    int left = frames.popInt();
+                    int right = frames.popInt();
+                    if (right == 0) throw new DivisionByZeroException();
+                    frames.pushFloat((float) left / right);
+                    return true;
+                };
+            }
+            case MODULO -> {
+                return frames -> {
+                    int left = frames.popInt();
+                    int right = frames.popInt();
+                    if (right == 0) throw new DivisionByZeroException();
+                    frames.pushInt(left % right);
+                    return true;
+                };
+            }
+            case LESS -> {
+                return frames -> {
+                    int left = frames.popInt();
+                    frames.pushBool(left < frames.popInt());
+                    return true;
+                };
+            }
+            case LESS_EQ -> {
+                return frames -> {
+                    int left = frames.popInt();
+                    frames.pushBool(left <= frames.popInt());
+                    return true;
+                };
+            }
+            case MORE -> {
+                return frames -> {
+                    int left = frames.popInt();
+                    frames.pushBool(left > frames.popInt());
+                    return true;
+                };
+            }
+            case MORE_EQ -> {
+                return frames -> {
+                    int left = frames.popInt();
+                    frames.pushBool(left >= frames.popInt());
+                    return true;
+                };
+            }
+            case EQUAL -> {
+                return frames -> {
+                    frames.pushBool(frames.popInt() == frames.popInt());
+                    return true;
+                };
+            }
+            default -> {
+                return frames -> {
+                    frames.pushBool(frames.popInt() != frames.popInt());
+                    return true;
+                };
+            }
+        }
+    }
+
+    private static Specialization floatOperator(Operator op) {
+        switch (op) {
+            case ADD -> {
+                return frames -> {
+                    frames.pushFloat(frames.popFloat() + frames.popFloat());
+                    return true;
+                };
+            }
+            case SUB -> {
+                return frames -> {
+                    float left = frames.popFloat();
+                    frames.pushFloat(left - frames.popFloat());
+                    return true;
+                };
+            }
+            case MULTI -> {
+                return frames -> {
+                    frames.pushFloat(frames.popFloat() * frames.popFloat());
+                    return true;
+                };
+            }
+            case DIV -> {
+                return frames -> {
+                    float left = frames.popFloat();
+                    float right = frames.popFloat();
+                    if (right == 0) throw new DivisionByZeroException();
+                    frames.pushFloat(left / right);
+                    return true;
+                };
+            }
+            case MODULO -> {
+                return frames -> {
+                    float left = frames.popFloat();
+                    float right = frames.popFloat();
+                    if (right == 0) throw new DivisionByZeroException();
+                    frames.pushFloat(left % right);
+                    return true;
+                };
+            }
+            case LESS -> {
+                return frames -> {
+                    float left = frames.popFloat();
+                    frames.pushBool(left < frames.popFloat());
+                    return true;
+                };
+            }
+            case LESS_EQ -> {
+                return frames -> {
+                    float left = frames.popFloat();
+                    frames.pushBool(left <= frames.popFloat());
+                    return true;
+                };
+            }
+            case MORE -> {
+                return frames -> {
+                    float left = frames.popFloat();
+                    frames.pushBool(left > frames.popFloat());
+                    return true;
+                };
+            }
+            case MORE_EQ -> {
+                return frames -> {
+                    float left = frames.popFloat();
+                    frames.pushBool(left >= frames.popFloat());
+                    return true;
+                };
+            }
+            case EQUAL -> {
+                return frames -> {
+                    frames.pushBool(Float.compare(frames.popFloat(), frames.popFloat()) == 0);
+                    return true;
+                };
+            }
+            default -> {
+                return frames -> {
+                    frames.pushBool(Float.compare(frames.popFloat(), frames.popFloat()) != 0);
+                    return true;
+                };
+            }
+        }
+    }
+
+    private static Specialization stringOperator(Operator op) {
+        switch (op) {
+            case ADD -> {
+                return frames -> {
+                    String left = frames.popString();
+                    frames.pushString(left + frames.popString());
+                    return true;
+                };
+            }
+            case EQUAL -> {
+                return frames -> {
+                    frames.pushBool(Objects.equals(frames.popString(), frames.popString()));
+                    return true;
+                };
+            }
+            default -> {
+                return frames -> {
+                    frames.pushBool(!Objects.equals(frames.popString(), frames.popString()));
+                    return true;
+                };
+            }
+        }
+    }
+
+    private static Specialization boolOperator(Operator op) {
+        if (op == Operator.AND) {
+            return frames -> {
+                boolean left = frames.popBool();
+                frames.pushBool(frames.popBool() && left);
+                return true;
+            };
+        }
+        return frames -> {
+            boolean left = frames.popBool();
+            frames.pushBool(frames.popBool() || left);
+            return true;
+        };
+    }
+}
@@ -0,0 +1,308 @@
+package tkom.project.runtime;
+
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+// Types of expressions known before execution, null type means it's known only while executing
+// Definitions and arguments are checked against the declared type, but assignments are not,
+// so a variable keeps its declared type only if every value assigned to it has that type
+public class StaticTypes {
+    private final Program program;
+
+    private final ArrayList<Binding> assignedBindings = new ArrayList<>();
+    private final ArrayList<Expression> assignedValues = new ArrayList<>();
+    private final ArrayList<Binding> definedBindings = new ArrayList<>();
+    private final ArrayList<Expression> definedValues = new ArrayList<>();
+
+    private final HashSet<Binding> untypedBindings = new HashSet<>();
+    private final HashSet<Binding> emptyBindings = new HashSet<>();   // variables which can be left without value
+
+    private final HashMap<FunctionDefinition, ArrayList<Expression>> returnedValues = new HashMap<>();
+    private final HashSet<FunctionDefinition> emptyResults = new HashSet<>();
+    private ArrayList<Expression> functionReturns;
+
+    public StaticTypes(Program program) {
+        this.program = program;
+    }
+
+    public void analyze() {
+        for (VariableDefinition global : program.getVariables()) {
+            collectDefinition(global);
+        }
+        for (FunctionDefinition function : program.getFunctions()) {
+            functionReturns = new ArrayList<>();
+            returnedValues.put(function, functionReturns);
+            collectStatements(function.getStatements());
+
+            // function which can reach its end returns nothing, main only ends the statement on return
+            List<Statement> statements = function.getStatements();
+            boolean endsWithReturn = !statements.isEmpty() && statements.get(statements.size()-1) instanceof JumpStatement jump && jump.getType() == JumpType.RETURN;
+            if (!endsWithReturn || function.getType() == TypeSpecifier.VOID || function.getName().equals("main")) emptyResults.add(function);
+        }
+
+        // function called by a global initializer can read the globals from the one being defined on before their definition
+        boolean initializerCalls = false;
+        for (VariableDefinition global : program.getVariables()) {
+            if (callsFunction(global.getValue())) initializerCalls = true;
+            if (initializerCalls && global.getBinding() != null) emptyBindings.add(global.getBinding());
+        }
+
+        // every found variable makes other values less known, so it's repeated until nothing changes
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (int i = 0; i < assignedBindings.size(); i++) {
+                Binding binding = assignedBindings.get(i);
+                Expression value = assignedValues.get(i);
+
+                if (!untypedBindings.contains(binding) && typeOf(value) != binding.getType()) {
+                    untypedBindings.add(binding);
+                    changed = true;
+                }
+                if (!emptyBindings.contains(binding) && mayBeEmpty(value)) {
+                    emptyBindings.add(binding);
+                    changed = true;
+                }
+            }
+
+            for (FunctionDefinition function : program.getFunctions()) {
+                if (emptyResults.contains(function)) continue;
+
+                for (Expression returned : returnedValues.get(function)) {
+                    if (mayBeEmpty(returned)) {
+                        emptyResults.add(function);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+
+            // defined value and argument are checked, so they can only leave the variable empty
+            for (int i = 0; i < definedBindings.size(); i++) {
+                Binding binding = definedBindings.get(i);
+                if (!emptyBindings.contains(binding) && mayBeEmpty(definedValues.get(i))) {
+                    emptyBindings.add(binding);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // Binding's value is either of its declared type or empty
+    public TypeSpecifier typeOf(Binding binding) {
+        if (binding == null || untypedBindings.contains(binding) || !isValueType(binding.getType())) return null;
+        return binding.getType();
+    }
+
+    public boolean mayBeEmpty(Binding binding) {
+        return emptyBindings.contains(binding);
+    }
+
+    public TypeSpecifier typeOf(Expression expression) {
+        if (expression == null) return null;
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN) return typeOf(operatorExpression.getRightExpr());
+
+            TypeSpecifier left = typeOf(operatorExpression.getLeftExpr());
+            TypeSpecifier right = typeOf(operatorExpression.getRightExpr());
+            if (left == null || left != right) return null;
+
+            return resultType(operatorExpression.getOperator(), left, operatorExpression.getNotFlag());
+        }
+
+        if (expression instanceof FuncCallStatement funcCall) {
+            Builtin builtin = Builtin.find(funcCall.getIdentifier());
+            if (builtin != null) {
+                return (funcCall.getArguments().size() == builtin.getParameterCount()) ? builtin.getReturnType() : null;
+            }
+
+            // returned value is checked against the function type, negated value is known only while executing
+            FunctionDefinition function = findFunction(funcCall.getIdentifier());
+            if (function == null || funcCall.getNotFlag() != null || !isValueType(function.getType())) return null;
+            return function.getType();
+        }
+
+        if (expression.getIdentifier() != null) {
+            TypeSpecifier type = typeOf(expression.getBinding());
+            if (type == null || expression.getNotFlag() == null) return type;
+
+            return (negation(type, expression.getNotFlag()) != null) ? type : null;
+        }
+
+        return isValueType(expression.getType()) ? expression.getType() : null;
+    }
+
+    // Function which can end without returning a value gives nothing to its caller
+    public boolean mayBeEmpty(FunctionDefinition function) {
+        return emptyResults.contains(function);
+    }
+
+    // Only results of functions which can return nothing, missing expressions and variables read without requiring a value can be empty
+    public boolean mayBeEmpty(Expression expression) {
+        if (expression == null) return true;
+
+        if (expression instanceof OperatorExpression operatorExpression) {
+            return (operatorExpression.getOperator() == Operator.ASSIGN) && mayBeEmpty(operatorExpression.getRightExpr());
+        }
+        if (expression instanceof FuncCallStatement funcCall) {
+            if (Builtin.find(funcCall.getIdentifier()) != null) return false;
+
+            FunctionDefinition function = findFunction(funcCall.getIdentifier());
+            return function == null || emptyResults.contains(function);
+        }
+        if (expression.getIdentifier() != null) {
+            Binding binding = expression.getBinding();
+            return binding != null && binding.isOptional() && emptyBindings.contains(binding);
+        }
+        return false;
+    }
+
+    // Result of the operator on operands of given type, null if it can't be computed without checking them
+    public static TypeSpecifier resultType(Operator op, TypeSpecifier type, NotValue notFlag) {
+        switch (op) {
+            case ADD -> {
+                if (type == TypeSpecifier.STRING) return (notFlag == null) ? type : null;
+                return (isNumber(type) && notFlag != NotValue.LOGICAL) ? type : null;
+            }
+            case SUB, MULTI, MODULO -> {
+                return (isNumber(type) && notFlag != NotValue.LOGICAL) ? type : null;
+            }
+            case DIV -> {
+                return (isNumber(type) && notFlag != NotValue.LOGICAL) ? TypeSpecifier.FLOAT : null;
+            }
+            case LESS, LESS_EQ, MORE, MORE_EQ -> {
+                return (isNumber(type) && notFlag != NotValue.ARITHMETIC) ? TypeSpecifier.BOOL : null;
+            }
+            case EQUAL, NOT_EQUAL -> {
+                return ((isNumber(type) || type == TypeSpecifier.STRING) && notFlag != NotValue.ARITHMETIC) ? TypeSpecifier.BOOL : null;
+            }
+            case AND, OR -> {
+                return (type == TypeSpecifier.BOOL && notFlag != NotValue.ARITHMETIC) ? TypeSpecifier.BOOL : null;
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    // Type of the negated value, null if the flag doesn't fit the type
+    public static TypeSpecifier negation(TypeSpecifier type, NotValue notFlag) {
+        if (isNumber(type) && notFlag == NotValue.ARITHMETIC) return type;
+        if (type == TypeSpecifier.BOOL && notFlag == NotValue.LOGICAL) return type;
+        return null;
+    }
+
+    public static boolean isValueType(TypeSpecifier type) {
+        return isNumber(type) || type == TypeSpecifier.BOOL || type == TypeSpecifier.STRING;
+    }
+
+    private static boolean isNumber(TypeSpecifier type) {
+        return type == TypeSpecifier.INT || type == TypeSpecifier.FLOAT;
+    }
+
+    private FunctionDefinition findFunction(String name) {
+        for (FunctionDefinition function : program.getFunctions()) {
+            if (function.getName().equals(name)) return function;
+        }
+        return null;
+    }
+
+    private static boolean callsFunction(Expression expression) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            return callsFunction(operatorExpression.getLeftExpr()) || callsFunction(operatorExpression.getRightExpr());
+        }
+        if (expression instanceof FuncCallStatement funcCall) {
+            if (Builtin.find(funcCall.getIdentifier()) == null) return true;
+            for (Expression argument : funcCall.getArguments()) {
+                if (callsFunction(argument)) return true;
+            }
+        }
+        return false;
+    }
+
+    // COLLECTING VALUES GIVEN TO VARIABLES
+    private void collectDefinition(VariableDefinition definition) {
+        collectExpression(definition.getValue());
+
+        if (definition.getBinding() != null) {
+            definedBindings.add(definition.getBinding());
+            definedValues.add(definition.getValue());
+        }
+    }
+
+    private void collectStatements(List<Statement> statements) {
+        if (statements == null) return;
+
+        for (Statement statement : statements) {
+            if (statement instanceof VariableDefinition varDef) collectDefinition(varDef);
+            else if (statement instanceof Expression expression) collectExpression(expression);
+            else if (statement instanceof IfElseStatement ifElse) {
+                collectExpression(ifElse.getIfStatements().getCondition());
+                collectStatements(ifElse.getIfStatements().getStatements());
+                for (IfBlock elifBlock : ifElse.getElifStatements()) {
+                    collectExpression(elifBlock.getCondition());
+                    collectStatements(elifBlock.getStatements());
+                }
+                if (ifElse.getElseStatements() != null) collectStatements(ifElse.getElseStatements().getStatements());
+            }
+            else if (statement instanceof WhileStatement whileStatement) {
+                collectExpression(whileStatement.getCondition());
+                collectStatements(whileStatement.getStatements());
+            }
+            else if (statement instanceof ExistStatement exist) {
+                collectExpression(exist.getExistValue());
+                collectStatements(exist.getExistStatements());
+                collectStatements(exist.getElseStatements());
+            }
+            else if (statement instanceof PatternMatchingStatement match) {
+                collectExpression(match.getToMatch());
+                for (MatchCaseStatement caseStatement : match.getCases()) {
+                    collectExpression(caseStatement.getCondition());
+                    collectStatements(caseStatement.getStatements());
+                }
+            }
+            else if (statement instanceof JumpStatement jump) {
+                collectExpression(jump.getRetExpr());
+                if (jump.getType() == JumpType.RETURN) functionReturns.add(jump.getRetExpr());
+            }
+        }
+    }
+
+    private void collectExpression(Expression expression) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            collectExpression(operatorExpression.getLeftExpr());
+            collectExpression(operatorExpression.getRightExpr());
+
+            Binding target = operatorExpression.getLeftExpr().getBinding();
+            if (operatorExpression.getOperator() == Operator.ASSIGN && target != null) {
+                assignedBindings.add(target);
+                assignedValues.add(operatorExpression.getRightExpr());
+            }
+        } else if (expression instanceof FuncCallStatement funcCall) {
+            List<Expression> arguments = funcCall.getArguments();
+            for (Expression argument : arguments) {
+                collectExpression(argument);
+            }
+
+            // argument is the value parameter is defined with
+            FunctionDefinition function = findFunction(funcCall.getIdentifier());
+            if (function == null || function.getParameters().size() != arguments.size()) return;
+            for (int i = 0; i < arguments.size(); i++) {
+                Binding parameter = function.getParameters().get(i).getBinding();
+                if (parameter != null) {
+                    definedBindings.add(parameter);
+                    definedValues.add(arguments.get(i));
+                }
+            }
+        }
+    }
+}
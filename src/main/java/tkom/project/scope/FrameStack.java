@@ -0,0 +1,302 @@
+package tkom.project.scope;
+
+import tkom.project.nodes.TypeSpecifier;
+
+import java.util.Arrays;
+
+public class FrameStack {
+    private static final int INITIAL_SIZE = 1024;
+
+    // Every slot is a tagged value, type null means the slot holds no value
+    // int, float and bool payloads share the int array, floats are kept as their raw bits
+    private TypeSpecifier[] types;
+    private int[] values;
+    private String[] strings;
+
+    private int framePointer;   // first slot of the currently executed function, globals are kept below the first frame
+    private int top;            // first slot above the values of current scope and evaluated operands
+
+    // value returned from function, kept aside while the function scopes are left
+    private TypeSpecifier returnedType;
+    private int returnedValue;
+    private String returnedString;
+
+    // arguments of a tail call, kept aside while the scopes of the calling function are left
+    private TypeSpecifier[] argumentTypes = new TypeSpecifier[8];
+    private int[] argumentValues = new int[8];
+    private String[] argumentStrings = new String[8];
+    private int argumentCount;
+
+    public FrameStack() {
+        types = new TypeSpecifier[INITIAL_SIZE];
+        values = new int[INITIAL_SIZE];
+        strings = new String[INITIAL_SIZE];
+        framePointer = 0;
+        top = 0;
+    }
+
+    // OPERANDS
+    public TypeSpecifier peekType() {
+        return types[top-1];
+    }
+
+    public TypeSpecifier peekType(int depth) {
+        return types[top-1-depth];
+    }
+
+    public int peekInt() {
+        return values[top-1];
+    }
+
+    public int peekInt(int depth) {
+        return values[top-1-depth];
+    }
+
+    public void pushInt(int value) {
+        ensureCapacity(top + 1);
+        types[top] = TypeSpecifier.INT;
+        values[top++] = value;
+    }
+
+    public void pushFloat(float value) {
+        ensureCapacity(top + 1);
+        types[top] = TypeSpecifier.FLOAT;
+        values[top++] = Float.floatToRawIntBits(value);
+    }
+
+    public void pushBool(boolean value) {
+        ensureCapacity(top + 1);
+        types[top] = TypeSpecifier.BOOL;
+        values[top++] = value ? 1 : 0;
+    }
+
+    public void pushString(String value) {
+        ensureCapacity(top + 1);
+        types[top] = TypeSpecifier.STRING;
+        strings[top++] = value;
+    }
+
+    public void pushEmpty() {
+        ensureCapacity(top + 1);
+        types[top++] = null;
+    }
+
+    public int popInt() {
+        return values[--top];
+    }
+
+    public float popFloat() {
+        return Float.intBitsToFloat(values[--top]);
+    }
+
+    public boolean popBool() {
+        return values[--top] != 0;
+    }
+
+    public String popString() {
+        String value = strings[--top];
+        strings[top] = null;
+        return value;
+    }
+
+    public void pop() {
+        strings[--top] = null;
+    }
+
+    public void swap() {
+        TypeSpecifier type = types[top-1];
+        types[top-1] = types[top-2];
+        types[top-2] = type;
+
+        int value = values[top-1];
+        values[top-1] = values[top-2];
+        values[top-2] = value;
+
+        String string = strings[top-1];
+        strings[top-1] = strings[top-2];
+        strings[top-2] = string;
+    }
+
+    // LOCAL VARIABLES
+    public TypeSpecifier getType(int slot) {
+        return types[framePointer + slot];
+    }
+
+    public void load(int slot) {
+        copy(framePointer + slot, top);
+        top++;
+    }
+
+    // Assigned value stays on top, as it is also the result of assignment
+    public void store(int slot) {
+        copy(top-1, framePointer + slot);
+    }
+
+    // Typed access to variables, for values of type known before execution
+    public int getInt(int slot) {
+        return values[framePointer + slot];
+    }
+
+    public float getFloat(int slot) {
+        return Float.intBitsToFloat(values[framePointer + slot]);
+    }
+
+    public boolean getBool(int slot) {
+        return values[framePointer + slot] != 0;
+    }
+
+    public String getString(int slot) {
+        return strings[framePointer + slot];
+    }
+
+    public void setInt(int slot, int value) {
+        types[framePointer + slot] = TypeSpecifier.INT;
+        values[framePointer + slot] = value;
+    }
+
+    public void setFloat(int slot, float value) {
+        types[framePointer + slot] = TypeSpecifier.FLOAT;
+        values[framePointer + slot] = Float.floatToRawIntBits(value);
+    }
+
+    public void setBool(int slot, boolean value) {
+        types[framePointer + slot] = TypeSpecifier.BOOL;
+        values[framePointer + slot] = value ? 1 : 0;
+    }
+
+    public void setString(int slot, String value) {
+        types[framePointer + slot] = TypeSpecifier.STRING;
+        strings[framePointer + slot] = value;
+    }
+
+    // Defined variable is always the last visible one, so the current scope ends on its slot
+    public void define(int slot) {
+        int target = framePointer + slot;
+        if (target != top-1) copy(top-1, target);
+        if (target < top-1) Arrays.fill(strings, target+1, top, null);
+        top = target + 1;
+    }
+
+    // GLOBAL VARIABLES
+    // Every global gets its empty slot before any initializer runs, so a function called by an initializer
+    // has its frame above all of them, and reads a global which isn't defined yet as a missing value
+    public void reserveGlobals(int count) {
+        ensureCapacity(count);
+        Arrays.fill(types, 0, count, null);
+        top = count;
+    }
+
+    // Defined value is moved from the top into the reserved slot of the global
+    public void defineGlobal(int index) {
+        copy(--top, index);
+        strings[top] = null;
+    }
+
+    public TypeSpecifier getGlobalType(int index) {
+        return types[index];
+    }
+
+    public void loadGlobal(int index) {
+        copy(index, top);
+        top++;
+    }
+
+    public void storeGlobal(int index) {
+        copy(top-1, index);
+    }
+
+    // FRAMES
+    public int enterFrame(int argumentCount, int frameSize) {
+        int previousFramePointer = framePointer;
+
+        framePointer = top - argumentCount;
+        ensureCapacity(framePointer + frameSize);
+
+        return previousFramePointer;
+    }
+
+    public void leaveFrame(int previousFramePointer) {
+        leaveScope(framePointer);
+        framePointer = previousFramePointer;
+    }
+
+    public void saveReturnedValue() {
+        returnedType = types[--top];
+        returnedValue = values[top];
+        returnedString = strings[top];
+        strings[top] = null;
+    }
+
+    public void pushReturnedValue() {
+        ensureCapacity(top + 1);
+        types[top] = returnedType;
+        values[top] = returnedValue;
+        strings[top++] = returnedString;
+        returnedString = null;
+    }
+
+    public void saveArguments(int count) {
+        if (count > argumentTypes.length) {
+            argumentTypes = new TypeSpecifier[count];
+            argumentValues = new int[count];
+            argumentStrings = new String[count];
+        }
+
+        top -= count;
+        for (int i = 0; i < count; i++) {
+            argumentTypes[i] = types[top + i];
+            argumentValues[i] = values[top + i];
+            argumentStrings[i] = strings[top + i];
+            strings[top + i] = null;
+        }
+        argumentCount = count;
+    }
+
+    // Frame of the function making a tail call becomes the frame of the called function, starting with the saved arguments
+    public void reuseFrame(int frameSize) {
+        leaveScope(framePointer);
+        ensureCapacity(framePointer + frameSize);
+
+        for (int i = 0; i < argumentCount; i++) {
+            types[top] = argumentTypes[i];
+            values[top] = argumentValues[i];
+            strings[top++] = argumentStrings[i];
+            argumentStrings[i] = null;
+        }
+        argumentCount = 0;
+    }
+
+    // SCOPES
+    // Scope marker is the top of the enclosing scope, leaving the scope truncates the frame back to it
+    public int enterScope() {
+        return top;
+    }
+
+    public void leaveScope(int scopeMarker) {
+        Arrays.fill(strings, scopeMarker, top, null);
+        top = scopeMarker;
+    }
+
+    // Truncates the frame to its first slots, used when the scope sizes are known up front
+    public void truncate(int slot) {
+        leaveScope(framePointer + slot);
+    }
+
+    private void copy(int from, int to) {
+        ensureCapacity(to + 1);
+
+        types[to] = types[from];
+        values[to] = values[from];
+        strings[to] = strings[from];
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > types.length) {
+            int newSize = Math.max(size, types.length * 2);
+
+            types = Arrays.copyOf(types, newSize);
+            values = Arrays.copyOf(values, newSize);
+            strings = Arrays.copyOf(strings, newSize);
+        }
+    }
+}
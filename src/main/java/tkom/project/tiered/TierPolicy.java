@@ -0,0 +1,43 @@
+package tkom.project.tiered;
+
+// When functions are compiled: after callThreshold calls or loopThreshold loop iterations inside them
+// compilation runs on compilerThreads background threads, or in the executing thread when there are none
+// hot loops are compiled whole, or traced along the branches they take when tracingLoops is set
+public final class TierPolicy {
+    public static final TierPolicy DEFAULT = new TierPolicy(1000, 10000, 1);
+
+    private final int callThreshold;
+    private final int loopThreshold;
+    private final int compilerThreads;
+    private final boolean tracingLoops;
+
+    public TierPolicy(int callThreshold, int loopThreshold, int compilerThreads) {
+        this(callThreshold, loopThreshold, compilerThreads, false);
+    }
+
+    public TierPolicy(int callThreshold, int loopThreshold, int compilerThreads, boolean tracingLoops) {
+        if (callThreshold < 1 || loopThreshold < 1) throw new IllegalArgumentException("Tier thresholds have to be positive");
+        if (compilerThreads < 0) throw new IllegalArgumentException("Compiler thread count can't be negative");
+
+        this.callThreshold = callThreshold;
+        this.loopThreshold = loopThreshold;
+        this.compilerThreads = compilerThreads;
+        this.tracingLoops = tracingLoops;
+    }
+
+    public int getCallThreshold() {
+        return callThreshold;
+    }
+
+    public int getLoopThreshold() {
+        return loopThreshold;
+    }
+
+    public int getCompilerThreads() {
+        return compilerThreads;
+    }
+
+    public boolean isTracingLoops() {
+        return tracingLoops;
+    }
+}
@@ -0,0 +1,200 @@
+package tkom.project.tiered;
+
+import tkom.project.closure.ClosureFunction;
+import tkom.project.closure.ValueCode;
+import tkom.project.jvm.CompiledLoop;
+import tkom.project.jvm.JvmProgram;
+import tkom.project.nodes.FunctionDefinition;
+import tkom.project.nodes.Program;
+import tkom.project.nodes.statements.IfElseStatement;
+import tkom.project.nodes.statements.WhileStatement;
+import tkom.project.scope.FrameStack;
+import tkom.project.scope.Reader;
+import tkom.project.trace.BranchProfile;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Counts calls and loop iterations of functions run by the interpreter and compiles the hot ones
+// Hot loop is compiled on its own, so a function called only once can continue it in compiled code (on-stack replacement)
+// with tracing policy the loop is first recorded for a few iterations, then compiled along the branches it took
+// Compiled code only gets built on the compiler threads, it always runs in the thread of the interpreter
+public class TieredCompiler {
+    private final Program program;
+    private final FunctionDefinition main;
+    private final FrameStack frames;
+    private final Reader debug;
+    private final TierPolicy policy;
+
+    // filled before execution starts and never changed, so compiler threads can read it
+    private final HashMap<FunctionDefinition, Profile> profiles = new HashMap<>();
+    private final HashMap<WhileStatement, LoopProfile> loops = new HashMap<>();     // only used by the interpreter
+    private final ExecutorService compilerThreads;
+
+    // whole program is compiled by the first request, later ones only switch their function to it
+    private JvmProgram compiledProgram;
+
+    // one loop is recorded at a time, branches are recorded in everything executed meanwhile
+    private static final int RECORDED_ITERATIONS = 8;
+    private LoopProfile recordedLoop;
+    private BranchProfile recording;
+    private int recordedIterations;
+
+    private static final class Profile {
+        private final FunctionDefinition function;
+        private int calls;
+        private int loopIterations;
+        private boolean requested;
+        private volatile ValueCode compiled;
+
+        private Profile(FunctionDefinition function) {
+            this.function = function;
+        }
+    }
+
+    private static final class LoopProfile {
+        private final WhileStatement loop;
+        private int iterations;
+        private boolean requested;
+        private volatile CompiledLoop compiled;
+
+        private LoopProfile(WhileStatement loop) {
+            this.loop = loop;
+        }
+    }
+
+    public TieredCompiler(Program program, FunctionDefinition main, FrameStack frames, Reader debug, TierPolicy policy) {
+        this.program = program;
+        this.main = main;
+        this.frames = frames;
+        this.debug = debug;
+        this.policy = policy;
+
+        for (FunctionDefinition function : program.getFunctions()) {
+            profiles.put(function, new Profile(function));
+        }
+
+        if (policy.getCompilerThreads() == 0) compilerThreads = null;
+        else compilerThreads = Executors.newFixedThreadPool(policy.getCompilerThreads(), task -> {
+            Thread thread = new Thread(task, "compiler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Counts the call, returns compiled code taking the arguments from the stack, or null if the function is still interpreted
+    public ValueCode enter(FunctionDefinition function) {
+        Profile profile = profiles.get(function);
+        ValueCode compiled = profile.compiled;
+        if (compiled != null) return compiled;
+
+        if (++profile.calls >= policy.getCallThreshold()) request(profile);
+        return profile.compiled;
+    }
+
+    // Counts the iteration for the loop and its function, returns code continuing the loop from the current frame,
+    // or null if the loop is still interpreted
+    public CompiledLoop loopIteration(FunctionDefinition function, WhileStatement loop) {
+        Profile profile = profiles.get(function);
+        if (++profile.loopIterations >= policy.getLoopThreshold()) request(profile);
+
+        LoopProfile loopProfile = loops.computeIfAbsent(loop, LoopProfile::new);
+        CompiledLoop compiled = loopProfile.compiled;
+        if (compiled == null) {
+            if (loopProfile == recordedLoop) {
+                if (++recordedIterations == RECORDED_ITERATIONS) finishRecording();
+            } else if (++loopProfile.iterations >= policy.getLoopThreshold()) {
+                if (!policy.isTracingLoops()) request(loopProfile);
+                else if (recordedLoop == null && !loopProfile.requested) startRecording(loopProfile);
+            }
+
+            compiled = loopProfile.compiled;
+            if (compiled == null) return null;
+        }
+
+        // loop whose frame breaks the assumptions of its compiled code goes back to the interpreter for good
+        if (!compiled.canEnter(frames)) {
+            loopProfile.compiled = null;
+            return null;
+        }
+        return compiled;
+    }
+
+    public void branchTaken(IfElseStatement statement, int branch) {
+        if (recording != null) recording.record(statement, branch);
+    }
+
+    // loop left before its recording ended is traced with the iterations recorded so far
+    public void loopExited(WhileStatement loop) {
+        if (recordedLoop != null && recordedLoop.loop == loop) finishRecording();
+    }
+
+    public void shutdown() {
+        if (compilerThreads != null) compilerThreads.shutdownNow();
+    }
+
+    private void request(Profile profile) {
+        if (profile.requested) return;
+        profile.requested = true;
+        submit(() -> compile(profile));
+    }
+
+    private void request(LoopProfile profile) {
+        if (profile.requested) return;
+        profile.requested = true;
+        submit(() -> compile(profile));
+    }
+
+    private void startRecording(LoopProfile profile) {
+        recordedLoop = profile;
+        recording = new BranchProfile();
+        recordedIterations = 0;
+    }
+
+    private void finishRecording() {
+        LoopProfile profile = recordedLoop;
+        BranchProfile branches = recording;
+        recordedLoop = null;
+        recording = null;
+
+        profile.requested = true;
+        submit(() -> compile(profile, branches));
+    }
+
+    private void submit(Runnable compilation) {
+        if (compilerThreads == null) compilation.run();
+        else compilerThreads.execute(compilation);
+    }
+
+    private boolean compileProgram() {
+        try {
+            if (compiledProgram == null) compiledProgram = new JvmProgram(program, main, frames, debug);
+            return true;
+        } catch (RuntimeException e) {
+            // program which can't be compiled keeps being interpreted
+            return false;
+        }
+    }
+
+    private synchronized void compile(LoopProfile profile) {
+        if (compileProgram()) profile.compiled = compiledProgram.compileLoop(profile.loop);
+    }
+
+    private synchronized void compile(LoopProfile profile, BranchProfile branches) {
+        if (compileProgram()) profile.compiled = compiledProgram.compileTrace(profile.loop, branches);
+    }
+
+    private synchronized void compile(Profile profile) {
+        if (!compileProgram()) return;
+
+        ClosureFunction function = compiledProgram.getFunction(profile.function.getName());
+        int argumentCount = profile.function.getParameters().size();
+
+        // functions compiled to JVM code are called through it, the others run as closures
+        // main is never linked to its JVM code, as it only works as the entry point
+        ValueCode jvmCode = function.getCompiled();
+        if (jvmCode != null) profile.compiled = jvmCode;
+        else profile.compiled = frames -> function.call(frames, argumentCount);
+    }
+}
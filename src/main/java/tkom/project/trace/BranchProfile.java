@@ -0,0 +1,32 @@
+package tkom.project.trace;
+
+import tkom.project.nodes.statements.IfElseStatement;
+
+import java.util.HashMap;
+
+// Branches of if statements taken while a hot loop was recorded, also in the functions it called
+// branch 0 is the if block, the elif blocks follow it and the last one means that no condition was true
+public class BranchProfile {
+    private final HashMap<IfElseStatement, int[]> counts = new HashMap<>();
+
+    public void record(IfElseStatement statement, int branch) {
+        int[] taken = counts.get(statement);
+        if (taken == null) {
+            taken = new int[statement.getElifStatements().size() + 2];
+            counts.put(statement, taken);
+        }
+        taken[branch]++;
+    }
+
+    // Returns the branch taken most often, -1 if the statement wasn't executed while recording
+    public int dominantBranch(IfElseStatement statement) {
+        int[] taken = counts.get(statement);
+        if (taken == null) return -1;
+
+        int dominant = 0;
+        for (int branch = 1; branch < taken.length; branch++) {
+            if (taken[branch] > taken[dominant]) dominant = branch;
+        }
+        return dominant;
+    }
+}
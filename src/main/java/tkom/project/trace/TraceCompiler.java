@@ -0,0 +1,125 @@
+package tkom.project.trace;
+
+import tkom.project.closure.BoolCode;
+import tkom.project.closure.ClosureCompiler;
+import tkom.project.closure.ClosureFunction;
+import tkom.project.closure.StatementCode;
+import tkom.project.nodes.JumpType;
+import tkom.project.nodes.Program;
+import tkom.project.nodes.VariableDefinition;
+import tkom.project.nodes.statements.IfBlock;
+import tkom.project.nodes.statements.IfElseStatement;
+import tkom.project.nodes.statements.Statement;
+import tkom.project.nodes.statements.WhileStatement;
+import tkom.project.scope.Reader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Compiles a hot loop to closures along the branches recorded while Interpreter ran it
+// Recorded branch is guarded by its condition and runs without going through the if chain, leaving the trace
+// continues with the remaining conditions, so nothing is evaluated twice
+// Called functions are compiled again along their recorded branches, unless they are already JVM code
+public class TraceCompiler extends ClosureCompiler {
+    private final ClosureCompiler functions;
+    private final BranchProfile profile;
+    private final HashMap<String, ClosureFunction> traced = new HashMap<>();
+
+    public TraceCompiler(Program program, Reader debug, ClosureCompiler functions, BranchProfile profile) {
+        super(program, debug);
+        this.functions = functions;
+        this.profile = profile;
+    }
+
+    public StatementCode compileTrace(WhileStatement loop) {
+        analyzeTypes();
+        return loop.accept(this);
+    }
+
+    @Override
+    protected ClosureFunction callTarget(String name) {
+        ClosureFunction function = functions.getFunction(name);
+        if (function == null || function.getCompiled() != null) return function;
+
+        // copy exists before its body is compiled, so recursive calls get it too
+        ClosureFunction copy = traced.get(name);
+        if (copy == null) {
+            copy = new ClosureFunction(name, function.getType(), function.getFrameSize());
+            traced.put(name, copy);
+
+            copy.setBody(compileBody(copy, findFunction(name)));
+        }
+        return copy;
+    }
+
+    @Override
+    public StatementCode visitIfElseStatement(IfElseStatement statement) {
+        int branch = profile.dominantBranch(statement);
+        if (branch == -1) return super.visitIfElseStatement(statement);
+
+        ArrayList<IfBlock> conditionalBlocks = new ArrayList<>();
+        conditionalBlocks.add(statement.getIfStatements());
+        conditionalBlocks.addAll(statement.getElifStatements());
+
+        BoolCode[] conditions = new BoolCode[conditionalBlocks.size()];
+        StatementCode[] blocks = new StatementCode[conditionalBlocks.size()];
+        for (int i = 0; i < conditions.length; i++) {
+            conditions[i] = compileCondition(conditionalBlocks.get(i).getCondition());
+            if (i != branch) blocks[i] = compileBlock(conditionalBlocks.get(i).getStatements());
+        }
+        List<Statement> elseStatements = (statement.getElseStatements() == null) ? null : statement.getElseStatements().getStatements();
+
+        // no condition held while recording, so all of them are guards
+        if (branch == conditions.length) {
+            StatementCode traced = compileTracedBlock(elseStatements);
+            return frames -> {
+                for (int i = 0; i < conditions.length; i++) {
+                    if (conditions[i].run(frames)) return blocks[i].run(frames);
+                }
+                return traced.run(frames);
+            };
+        }
+
+        StatementCode traced = compileTracedBlock(conditionalBlocks.get(branch).getStatements());
+        StatementCode elseBlock = (elseStatements == null) ? null : compileBlock(elseStatements);
+        BoolCode guard = conditions[branch];
+        int taken = branch;
+
+        // leaving the trace continues the chain after the recorded branch
+        StatementCode offTrace = frames -> {
+            for (int i = taken + 1; i < conditions.length; i++) {
+                if (conditions[i].run(frames)) return blocks[i].run(frames);
+            }
+            if (elseBlock == null) return null;
+            return elseBlock.run(frames);
+        };
+
+        if (taken == 0) return frames -> guard.run(frames) ? traced.run(frames) : offTrace.run(frames);
+        return frames -> {
+            for (int i = 0; i < taken; i++) {
+                if (conditions[i].run(frames)) return blocks[i].run(frames);
+            }
+            return guard.run(frames) ? traced.run(frames) : offTrace.run(frames);
+        };
+    }
+
+    // block defining no variables leaves the frame as it was, so it doesn't need its own scope
+    private StatementCode compileTracedBlock(List<Statement> statements) {
+        if (statements == null || statements.isEmpty()) return frames -> null;
+
+        for (Statement statement : statements) {
+            if (statement instanceof VariableDefinition) return compileBlock(statements);
+        }
+
+        StatementCode[] codes = compileStatements(statements);
+        if (codes.length == 1) return codes[0];
+        return frames -> {
+            for (StatementCode code : codes) {
+                JumpType jump = code.run(frames);
+                if (jump != null) return jump;
+            }
+            return null;
+        };
+    }
+}
@@ -0,0 +1,559 @@
+package tkom.project.vm;
+
+import tkom.project.Resolver;
+import tkom.project.exceptions.*;
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.*;
+import tkom.project.runtime.Builtin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Compiles resolved program into code of the stack machine, one code array per function
+// Errors the interpreter reports while executing are compiled into THROW instructions at the same place
+// Common idioms like i = i + 1 and i < n conditions are compiled into superinstructions
+public class BytecodeCompiler implements StatementVisitor<Void>, ExpressionVisitor<Void> {
+    private final Program program;
+    private final HashMap<String, CompiledFunction> compiledFunctions = new HashMap<>();
+
+    // code of currently compiled function
+    private int[] code;
+    private int size;
+    private ArrayList<Object> constants;
+
+    private String functionName;
+    private boolean compilingMain;
+    private int depth;                              // frame slots taken by the visible variables
+    private Loop loop;                              // innermost loop, null outside of loops
+
+    // return in main only ends the top level statement it's in
+    private int statementDepth;
+    private ArrayList<Integer> statementExits;
+
+    private static final class Loop {
+        private final Loop enclosing;
+        private final int start;
+        private final int depth;
+        private final ArrayList<Integer> breaks = new ArrayList<>();
+
+        private Loop(Loop enclosing, int start, int depth) {
+            this.enclosing = enclosing;
+            this.start = start;
+            this.depth = depth;
+        }
+    }
+
+    public BytecodeCompiler(Program program) {
+        this.program = program;
+    }
+
+    // Returns the entry code, which initializes global variables and calls main
+    public CompiledFunction compile(FunctionDefinition main) {
+        for (FunctionDefinition function : program.getFunctions()) {
+            compiledFunctions.put(function.getName(), new CompiledFunction(function.getName(), function.getType(), function.getFrameSize()));
+        }
+        for (FunctionDefinition function : program.getFunctions()) {
+            compileFunction(function, function == main);
+        }
+
+        CompiledFunction entry = new CompiledFunction("main", TypeSpecifier.VOID, program.getVariables().size());
+        startCode("main", false);
+
+        // globals are defined below main frame, so their index is also their slot
+        // all of them are empty until their definition, a function called by an initializer gets its frame above them
+        for (int i = 0; i < program.getVariables().size(); i++) {
+            emit(Opcode.PUSH_EMPTY);
+        }
+        for (VariableDefinition global : program.getVariables()) {
+            global.accept(this);
+        }
+        emit(Opcode.CALL, constant(compiledFunctions.get(main.getName())), 0);
+        emit(Opcode.POP);
+        emit(Opcode.HALT);
+
+        entry.setCode(Arrays.copyOf(code, size), constants.toArray());
+        return entry;
+    }
+
+    private void compileFunction(FunctionDefinition function, boolean isMain) {
+        startCode(function.getName(), isMain);
+        depth = function.getParameters().size();
+
+        for (Statement statement : function.getStatements()) {
+            if (compilingMain) {
+                statementDepth = depth;
+                statementExits = new ArrayList<>();
+            }
+
+            statement.accept(this);
+
+            if (compilingMain) {
+                for (Integer exit : statementExits) patch(exit);
+            }
+        }
+        emit(Opcode.RETURN_VOID);
+
+        compiledFunctions.get(function.getName()).setCode(Arrays.copyOf(code, size), constants.toArray());
+    }
+
+    private void startCode(String name, boolean isMain) {
+        code = new int[64];
+        size = 0;
+        constants = new ArrayList<>();
+
+        functionName = name;
+        compilingMain = isMain;
+        depth = 0;
+        loop = null;
+    }
+
+    // STATEMENTS
+    private void compileBlock(List<Statement> statements) {
+        if (statements == null) return;
+        int blockDepth = depth;
+
+        for (Statement statement : statements) {
+            statement.accept(this);
+        }
+
+        // variables defined in the block are dropped when leaving it
+        if (depth != blockDepth) emit(Opcode.TRUNCATE, blockDepth);
+        depth = blockDepth;
+    }
+
+    @Override
+    public Void visitVariableDefinition(VariableDefinition statement) {
+        compileExpression(statement.getValue());
+        emit(Opcode.CHECK_DEFINITION, constant(statement));
+
+        Binding binding = statement.getBinding();
+        if (binding.isGlobal()) {
+            emit(Opcode.STORE_GLOBAL, binding.getIndex());
+            emit(Opcode.POP);
+            return null;
+        }
+        emit(Opcode.DEFINE, binding.getIndex());
+        depth = binding.getIndex() + 1;
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(Expression statement) {
+        if (compileUpdate(statement)) return null;
+
+        compileExpression(statement);
+        emit(Opcode.POP);
+        return null;
+    }
+
+    @Override
+    public Void visitIfElseStatement(IfElseStatement statement) {
+        ArrayList<Integer> exits = new ArrayList<>();
+
+        ArrayList<IfBlock> conditionalBlocks = new ArrayList<>();
+        conditionalBlocks.add(statement.getIfStatements());
+        conditionalBlocks.addAll(statement.getElifStatements());
+
+        for (IfBlock block : conditionalBlocks) {
+            int nextBlock = emitConditionJump(block.getCondition());
+
+            compileBlock(block.getStatements());
+            exits.add(emitJump(Opcode.JUMP));
+            patch(nextBlock);
+        }
+
+        if (statement.getElseStatements() != null) compileBlock(statement.getElseStatements().getStatements());
+        for (Integer exit : exits) patch(exit);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStatement(WhileStatement statement) {
+        int start = size;
+        int exit = emitConditionJump(statement.getCondition());
+
+        loop = new Loop(loop, start, depth);
+        compileBlock(statement.getStatements());
+        emit(Opcode.JUMP, start);
+
+        patch(exit);
+        for (Integer loopBreak : loop.breaks) patch(loopBreak);
+        loop = loop.enclosing;
+        return null;
+    }
+
+    @Override
+    public Void visitExistStatement(ExistStatement statement) {
+        compileExpression(statement.getExistValue());
+        int elseBlock = emitJump(Opcode.JUMP_IF_EMPTY);
+
+        compileBlock(statement.getExistStatements());
+        int exit = emitJump(Opcode.JUMP);
+
+        patch(elseBlock);
+        compileBlock(statement.getElseStatements());
+        patch(exit);
+        return null;
+    }
+
+    @Override
+    public Void visitPatternMatchingStatement(PatternMatchingStatement statement) {
+        int matchDepth = depth;
+
+        // matched value lives in its own scope, visible to all the cases
+        compileExpression(statement.getToMatch());
+        emit(Opcode.CHECK_MATCHED);
+        emit(Opcode.DEFINE, statement.getMatchedBinding().getIndex());
+        depth = statement.getMatchedBinding().getIndex() + 1;
+
+        // every matching case is executed
+        for (MatchCaseStatement caseStatement : statement.getCases()) {
+            int nextCase = emitConditionJump(caseStatement.getCondition());
+
+            compileBlock(caseStatement.getStatements());
+            patch(nextCase);
+        }
+
+        emit(Opcode.TRUNCATE, matchDepth);
+        depth = matchDepth;
+        return null;
+    }
+
+    @Override
+    public Void visitJumpStatement(JumpStatement statement) {
+        if (statement.getType() == JumpType.RETURN) {
+            compileExpression(statement.getRetExpr());
+
+            if (compilingMain) {
+                emit(Opcode.POP);
+                if (depth != statementDepth) emit(Opcode.TRUNCATE, statementDepth);
+                statementExits.add(emitJump(Opcode.JUMP));
+            } else emit(Opcode.RETURN);
+            return null;
+        }
+
+        if (loop == null) {
+            String location = functionName;
+            emitThrow(() -> new InvalidJumpStatement(location));
+            return null;
+        }
+
+        if (depth != loop.depth) emit(Opcode.TRUNCATE, loop.depth);
+        if (statement.getType() == JumpType.BREAK) loop.breaks.add(emitJump(Opcode.JUMP));
+        else emit(Opcode.JUMP, loop.start);
+        return null;
+    }
+
+    // EXPRESSIONS
+    private void compileExpression(Expression expression) {
+        // missing expression evaluates to an empty value
+        if (expression == null) emit(Opcode.PUSH_EMPTY);
+        else expression.acceptExpression(this);
+    }
+
+    @Override
+    public Void visitOperatorExpression(OperatorExpression expression) {
+        Operator op = expression.getOperator();
+        if (op == Operator.AND || op == Operator.OR) {
+            compileLogicalExpression(expression);
+            return null;
+        }
+
+        compileExpression(expression.getRightExpr());
+
+        if (op == Operator.ASSIGN) {
+            compileAssignment(expression);
+            return null;
+        }
+
+        compileExpression(expression.getLeftExpr());
+        emit(operatorOpcode(op), notFlag(expression.getNotFlag()));
+        return null;
+    }
+
+    // right side is evaluated only when the left one doesn't decide the result
+    private void compileLogicalExpression(OperatorExpression expression) {
+        Operator op = expression.getOperator();
+        int notFlag = notFlag(expression.getNotFlag());
+
+        compileExpression(expression.getLeftExpr());
+        emit(Opcode.SHORT_CIRCUIT, op.ordinal(), notFlag, -1);
+        int decided = size - 1;
+
+        compileExpression(expression.getRightExpr());
+        emit(Opcode.SWAP);
+        emit(operatorOpcode(op), notFlag);
+        patch(decided);
+    }
+
+    private void compileAssignment(OperatorExpression expression) {
+        if (expression.getNotFlag() != null) {
+            emitThrow(NegateAssignOperationException::new);
+            return;
+        }
+
+        Expression target = expression.getLeftExpr();
+        Binding binding = target.getBinding();
+        if (binding == null) {
+            String identifier = target.getIdentifier();
+            emitThrow(() -> new VariableNotDeclaredException(identifier));
+            return;
+        }
+
+        // non mutable variable can only get its first value
+        if (binding.isMutable()) emit(binding.isGlobal() ? Opcode.STORE_GLOBAL : Opcode.STORE, binding.getIndex());
+        else emit(binding.isGlobal() ? Opcode.STORE_GLOBAL_ONCE : Opcode.STORE_ONCE, binding.getIndex(), constant(binding.getIdentifier()));
+    }
+
+    private int operatorOpcode(Operator op) {
+        switch (op) {
+            case ADD -> {
+                return Opcode.ADD;
+            }
+            case SUB -> {
+                return Opcode.SUB;
+            }
+            case MULTI -> {
+                return Opcode.MULTI;
+            }
+            case DIV -> {
+                return Opcode.DIV;
+            }
+            case MODULO -> {
+                return Opcode.MODULO;
+            }
+            case LESS -> {
+                return Opcode.LESS;
+            }
+            case LESS_EQ -> {
+                return Opcode.LESS_EQ;
+            }
+            case MORE -> {
+                return Opcode.MORE;
+            }
+            case MORE_EQ -> {
+                return Opcode.MORE_EQ;
+            }
+            case EQUAL -> {
+                return Opcode.EQUAL;
+            }
+            case NOT_EQUAL -> {
+                return Opcode.NOT_EQUAL;
+            }
+            case AND -> {
+                return Opcode.AND;
+            }
+            case OR -> {
+                return Opcode.OR;
+            }
+            default -> throw new ExpressionResolvingException();
+        }
+    }
+
+    @Override
+    public Void visitFuncCall(FuncCallStatement expression) {
+        String identifier = expression.getIdentifier();
+        List<Expression> arguments = expression.getArguments();
+
+        Builtin builtin = Builtin.find(identifier);
+        if (builtin != null) {
+            compileBuiltinCall(builtin, arguments);
+            return null;
+        }
+
+        FunctionDefinition function = findFunction(identifier);
+        if (function == null) {
+            emitThrow(() -> new FunctionNotDeclaredException(identifier));
+            return null;
+        }
+
+        List<Parameter> parameters = function.getParameters();
+        try {
+            Resolver.checkParameters(parameters, function.getName());
+        } catch (ParameterAlreadyDeclaredException e) {
+            emitThrow(() -> e);
+            return null;
+        }
+        if (parameters.size() != arguments.size()) {
+            emitThrow(() -> new IncorrectParameterAmountException(function.getName(), arguments.size(), parameters.size()));
+            return null;
+        }
+
+        // evaluated arguments stay on the stack and become the first slots of called function frame
+        for (int i = 0; i < arguments.size(); i++) {
+            compileExpression(arguments.get(i));
+            emit(Opcode.CHECK_ARGUMENT, constant(parameters.get(i)));
+        }
+        emit(Opcode.CALL, constant(compiledFunctions.get(function.getName())), arguments.size());
+
+        if (expression.getNotFlag() != null) emit(Opcode.NEGATE_RETURNED, notFlag(expression.getNotFlag()));
+        return null;
+    }
+
+    private void compileBuiltinCall(Builtin builtin, List<Expression> arguments) {
+        if (arguments.size() != builtin.getParameterCount()) {
+            emitThrow(() -> new IncorrectParameterAmountException(builtin.getName(), arguments.size(), builtin.getParameterCount()));
+            return;
+        }
+
+        for (Expression argument : arguments) {
+            compileExpression(argument);
+        }
+        emit(Opcode.CALL_BUILTIN, builtin.ordinal());
+    }
+
+    @Override
+    public Void visitVariableReference(Expression expression) {
+        Binding binding = expression.getBinding();
+        if (binding == null) {
+            String identifier = expression.getIdentifier();
+            emitThrow(() -> new VariableNotDeclaredException(identifier));
+            return null;
+        }
+
+        emit(binding.isGlobal() ? Opcode.LOAD_GLOBAL : Opcode.LOAD, binding.getIndex());
+        if (!binding.isOptional()) emit(Opcode.REQUIRE_VALUE, constant(binding.getIdentifier()));
+        if (expression.getNotFlag() != null) emit(Opcode.NEGATE_VARIABLE, constant(expression));
+        return null;
+    }
+
+    @Override
+    public Void visitLiteral(Expression expression) {
+        // negated literals are pushed already negated
+        boolean negated = expression.getNotFlag() != null;
+
+        switch (expression.getType()) {
+            case INT -> emit(Opcode.PUSH_INT, negated ? -expression.getIntValue() : expression.getIntValue());
+            case FLOAT -> {
+                float value = negated ? -expression.getFloatValue() : expression.getFloatValue();
+                emit(Opcode.PUSH_FLOAT, Float.floatToRawIntBits(value));
+            }
+            case STRING -> emit(Opcode.PUSH_STRING, constant(expression.getStringValue()));
+            case BOOL -> emit(Opcode.PUSH_BOOL, (negated != expression.getBoolValue()) ? 1 : 0);
+            default -> {
+                TypeSpecifier type = expression.getType();
+                emitThrow(() -> new TypeException(new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.FLOAT, TypeSpecifier.STRING, TypeSpecifier.BOOL}, type, "expression"));
+            }
+        }
+        return null;
+    }
+
+    // SUPERINSTRUCTIONS
+    // Statement x = x + 1 or x = x + value changes the variable in place, its value isn't pushed just to be popped
+    private boolean compileUpdate(Expression statement) {
+        if (!(statement instanceof OperatorExpression assignment) || assignment.getOperator() != Operator.ASSIGN || assignment.getNotFlag() != null) return false;
+
+        Binding binding = frameVariable(assignment.getLeftExpr());
+        if (binding == null || !binding.isMutable()) return false;
+
+        if (!(assignment.getRightExpr() instanceof OperatorExpression operation) || operation.getNotFlag() != null) return false;
+        Operator op = operation.getOperator();
+        if (op != Operator.ADD && op != Operator.SUB) return false;
+
+        Binding operand = frameVariable(operation.getLeftExpr());
+        if (operand == null || operand.getIndex() != binding.getIndex()) return false;
+
+        Integer amount = intConstant(operation.getRightExpr());
+        if (amount != null) {
+            emit(Opcode.INCREMENT, binding.getIndex(), (op == Operator.ADD) ? amount : -amount, op.ordinal(), constant(binding.getIdentifier()));
+            return true;
+        }
+        if (op == Operator.SUB) return false;
+
+        compileExpression(operation.getRightExpr());
+        emit(Opcode.ADD_TO, binding.getIndex(), constant(binding.getIdentifier()));
+        return true;
+    }
+
+    // Comparison of a variable with an int constant or another variable is tested and branched on in one instruction
+    // match cases like > 10 are also such comparisons, of the matched value
+    private int emitConditionJump(Expression condition) {
+        if (condition instanceof OperatorExpression comparison && comparison.getNotFlag() == null && isComparison(comparison.getOperator())) {
+            int op = comparison.getOperator().ordinal();
+            Binding left = frameVariable(comparison.getLeftExpr());
+            Integer value = intConstant(comparison.getRightExpr());
+            Binding right = frameVariable(comparison.getRightExpr());
+
+            if (left != null && value != null) {
+                emit(Opcode.COMPARE_CONSTANT_JUMP, op, left.getIndex(), value, constant(left.getIdentifier()), -1);
+                return size - 1;
+            }
+            if (left != null && right != null) {
+                emit(Opcode.COMPARE_JUMP, op, left.getIndex(), right.getIndex(), constant(left.getIdentifier()), constant(right.getIdentifier()), -1);
+                return size - 1;
+            }
+        }
+
+        compileExpression(condition);
+        return emitJump(Opcode.JUMP_IF_FALSE);
+    }
+
+    private boolean isComparison(Operator op) {
+        return switch (op) {
+            case LESS, LESS_EQ, MORE, MORE_EQ, EQUAL, NOT_EQUAL -> true;
+            default -> false;
+        };
+    }
+
+    // Variable of the current frame which has to have a value, so its slot can be read directly
+    private Binding frameVariable(Expression expression) {
+        if (expression == null || expression instanceof OperatorExpression || expression instanceof FuncCallStatement) return null;
+        if (expression.getIdentifier() == null || expression.getNotFlag() != null) return null;
+
+        Binding binding = expression.getBinding();
+        if (binding == null || binding.isGlobal() || binding.isOptional()) return null;
+        return binding;
+    }
+
+    private Integer intConstant(Expression expression) {
+        if (expression == null || expression instanceof OperatorExpression || expression instanceof FuncCallStatement) return null;
+        if (expression.getIdentifier() != null || expression.getType() != TypeSpecifier.INT) return null;
+
+        // negated literals are pushed already negated
+        return (expression.getNotFlag() != null) ? -expression.getIntValue() : expression.getIntValue();
+    }
+
+    // CODE
+    private FunctionDefinition findFunction(String name) {
+        for (FunctionDefinition function : program.getFunctions()) {
+            if (function.getName().equals(name)) return function;
+        }
+        return null;
+    }
+
+    private int notFlag(NotValue notFlag) {
+        return notFlag == null ? -1 : notFlag.ordinal();
+    }
+
+    private int constant(Object value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    private void emitThrow(Supplier<RuntimeException> exception) {
+        emit(Opcode.THROW, constant(exception));
+    }
+
+    // Returns the position of jump target, to be patched once the target is known
+    private int emitJump(int opcode) {
+        emit(opcode, -1);
+        return size - 1;
+    }
+
+    private void patch(int position) {
+        code[position] = size;
+    }
+
+    private void emit(int... values) {
+        if (size + values.length > code.length) code = Arrays.copyOf(code, Math.max(code.length * 2, size + values.length));
+
+        for (int value : values) {
+            code[size++] = value;
+        }
+    }
+}
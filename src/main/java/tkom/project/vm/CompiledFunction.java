@@ -0,0 +1,49 @@
+package tkom.project.vm;
+
+import tkom.project.nodes.TypeSpecifier;
+
+public final class CompiledFunction {
+    private final String name;
+    private final TypeSpecifier type;
+    private int frameSize;
+
+    private int[] code;
+    private Object[] constants;
+
+    public CompiledFunction(String name, TypeSpecifier type, int frameSize) {
+        this.name = name;
+        this.type = type;
+        this.frameSize = frameSize;
+    }
+
+    // code is set after all functions exist, so calls can refer to functions compiled later
+    public void setCode(int[] code, Object[] constants) {
+        this.code = code;
+        this.constants = constants;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TypeSpecifier getType() {
+        return type;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    // register machine knows the frame size only after the function is compiled
+    public void setFrameSize(int frameSize) {
+        this.frameSize = frameSize;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public Object[] getConstants() {
+        return constants;
+    }
+}
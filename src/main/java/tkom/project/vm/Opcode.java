@@ -0,0 +1,71 @@
+package tkom.project.vm;
+
+// Instructions of the stack machine, operands follow the opcode in the code array
+// Constant operands are indices into the constant pool of compiled function
+public final class Opcode {
+    private Opcode() {
+    }
+
+    // VALUES
+    public static final int PUSH_INT = 0;           // value
+    public static final int PUSH_FLOAT = 1;         // raw float bits
+    public static final int PUSH_BOOL = 2;          // 0 or 1
+    public static final int PUSH_STRING = 3;        // constant
+    public static final int PUSH_EMPTY = 4;
+    public static final int POP = 5;
+
+    // VARIABLES
+    public static final int LOAD = 6;               // slot
+    public static final int LOAD_GLOBAL = 7;        // index
+    public static final int STORE = 8;              // slot
+    public static final int STORE_GLOBAL = 9;       // index
+    public static final int STORE_ONCE = 10;        // slot, constant name
+    public static final int STORE_GLOBAL_ONCE = 11; // index, constant name
+    public static final int DEFINE = 12;            // slot
+    public static final int CHECK_DEFINITION = 13;  // constant VariableDefinition
+    public static final int REQUIRE_VALUE = 14;     // constant name
+    public static final int NEGATE_VARIABLE = 15;   // constant Expression
+
+    // OPERATORS, all take the not flag (-1 without it)
+    public static final int ADD = 16;
+    public static final int SUB = 17;
+    public static final int MULTI = 18;
+    public static final int DIV = 19;
+    public static final int MODULO = 20;
+    public static final int LESS = 21;
+    public static final int LESS_EQ = 22;
+    public static final int MORE = 23;
+    public static final int MORE_EQ = 24;
+    public static final int EQUAL = 25;
+    public static final int NOT_EQUAL = 26;
+    public static final int AND = 27;
+    public static final int OR = 28;
+
+    // CONTROL FLOW
+    public static final int JUMP = 29;              // target
+    public static final int JUMP_IF_FALSE = 30;     // target, pops tested condition
+    public static final int JUMP_IF_EMPTY = 31;     // target, pops tested value
+    public static final int CHECK_MATCHED = 32;
+    public static final int TRUNCATE = 33;          // slot
+
+    // CALLS
+    public static final int CHECK_ARGUMENT = 34;    // constant Parameter
+    public static final int CALL = 35;              // constant CompiledFunction, argument count
+    public static final int CALL_BUILTIN = 36;      // Builtin ordinal
+    public static final int NEGATE_RETURNED = 37;   // not flag
+    public static final int RETURN = 38;
+    public static final int RETURN_VOID = 39;
+
+    public static final int THROW = 40;             // constant Supplier of the exception
+    public static final int HALT = 41;
+
+    // SUPERINSTRUCTIONS, common idioms in one instruction, values of unexpected types take the generic path
+    public static final int INCREMENT = 42;         // slot, int added, Operator ordinal, constant variable name - statement x = x + 1
+    public static final int ADD_TO = 43;            // slot, constant variable name, pops added value - statement x = x + value
+    public static final int COMPARE_CONSTANT_JUMP = 44; // Operator ordinal, slot, int constant, constant variable name, target - jumps if false
+    public static final int COMPARE_JUMP = 45;      // Operator ordinal, left slot, right slot, constant left name, constant right name, target
+
+    // LOGICAL OPERATORS, the left operand is evaluated first
+    public static final int SHORT_CIRCUIT = 46;     // Operator ordinal, not flag, target - jumps with the result if the left operand decides it
+    public static final int SWAP = 47;              // puts the left operand on top of the right one for AND and OR
+}
@@ -0,0 +1,656 @@
+package tkom.project.vm;
+
+import tkom.project.Resolver;
+import tkom.project.exceptions.*;
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.nodes.expressions.OperatorExpression;
+import tkom.project.nodes.statements.*;
+import tkom.project.runtime.Builtin;
+import tkom.project.runtime.StaticTypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Compiles resolved program into code of the register machine
+// Variables keep their frame slots as registers, temporaries are taken above them like a stack
+// Every expression is compiled into the register given by the caller of compileInto
+public class RegisterCompiler implements StatementVisitor<Void>, ExpressionVisitor<Void> {
+    private final Program program;
+    private final StaticTypes types;
+    private final HashMap<String, CompiledFunction> compiledFunctions = new HashMap<>();
+
+    // code of currently compiled function
+    private int[] code;
+    private int size;
+    private ArrayList<Object> constants;
+
+    private String functionName;
+    private boolean compilingMain;
+    private int localCount;                         // registers taken by variables
+    private int nextRegister;                       // first free temporary register
+    private int registerCount;
+    private int target;                             // register the visited expression is compiled into
+    private Loop loop;                              // innermost loop, null outside of loops
+
+    // return in main only ends the top level statement it's in
+    private ArrayList<Integer> statementExits;
+
+    private static final class Loop {
+        private final Loop enclosing;
+        private final int start;
+        private final ArrayList<Integer> breaks = new ArrayList<>();
+
+        private Loop(Loop enclosing, int start) {
+            this.enclosing = enclosing;
+            this.start = start;
+        }
+    }
+
+    public RegisterCompiler(Program program) {
+        this.program = program;
+        this.types = new StaticTypes(program);
+    }
+
+    // Returns the entry code, which initializes global variables and calls main
+    public CompiledFunction compile(FunctionDefinition main) {
+        types.analyze();
+
+        for (FunctionDefinition function : program.getFunctions()) {
+            compiledFunctions.put(function.getName(), new CompiledFunction(function.getName(), function.getType(), 0));
+        }
+        for (FunctionDefinition function : program.getFunctions()) {
+            compileFunction(function, function == main);
+        }
+
+        // globals are kept below the entry frame, so the entry code has only temporaries
+        startCode("main", false, 0);
+        for (VariableDefinition global : program.getVariables()) {
+            global.accept(this);
+        }
+        int mainFrame = allocate();
+        emit(RegisterOpcode.CALL, constant(compiledFunctions.get(main.getName())), mainFrame);
+        emit(RegisterOpcode.HALT);
+
+        return finishCode("main", TypeSpecifier.VOID);
+    }
+
+    private void compileFunction(FunctionDefinition function, boolean isMain) {
+        startCode(function.getName(), isMain, function.getFrameSize());
+
+        for (Statement statement : function.getStatements()) {
+            if (compilingMain) statementExits = new ArrayList<>();
+
+            statement.accept(this);
+
+            if (compilingMain) {
+                for (Integer exit : statementExits) patch(exit);
+            }
+        }
+        emit(RegisterOpcode.RETURN_VOID);
+
+        // the shell is replaced, as the register count is known only now
+        CompiledFunction compiled = finishCode(function.getName(), function.getType());
+        CompiledFunction shell = compiledFunctions.get(function.getName());
+        shell.setCode(compiled.getCode(), compiled.getConstants());
+        shell.setFrameSize(compiled.getFrameSize());
+    }
+
+    private void startCode(String name, boolean isMain, int locals) {
+        code = new int[64];
+        size = 0;
+        constants = new ArrayList<>();
+
+        functionName = name;
+        compilingMain = isMain;
+        localCount = locals;
+        nextRegister = locals;
+        registerCount = locals;
+        loop = null;
+    }
+
+    private CompiledFunction finishCode(String name, TypeSpecifier type) {
+        CompiledFunction function = new CompiledFunction(name, type, registerCount);
+        function.setCode(Arrays.copyOf(code, size), constants.toArray());
+        return function;
+    }
+
+    // STATEMENTS
+    private void compileBlock(List<Statement> statements) {
+        if (statements == null) return;
+
+        for (Statement statement : statements) {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public Void visitVariableDefinition(VariableDefinition statement) {
+        Binding binding = statement.getBinding();
+        Expression value = statement.getValue();
+
+        // defined variable takes a slot nothing else can see, so the value is computed right into it
+        int register = binding.isGlobal() ? allocate() : binding.getIndex();
+        compileInto(value, register);
+        if (types.typeOf(value) != statement.getType()) emit(RegisterOpcode.CHECK_DEFINITION, register, constant(statement));
+
+        if (binding.isGlobal()) {
+            emit(RegisterOpcode.STORE_GLOBAL, binding.getIndex(), register);
+            free(register);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(Expression statement) {
+        // assigned mutable variable is computed in place, as nothing can see it before the assignment ends
+        if (statement instanceof OperatorExpression assignment && assignment.getOperator() == Operator.ASSIGN && assignment.getNotFlag() == null) {
+            Binding binding = assignment.getLeftExpr().getBinding();
+            if (binding != null && !binding.isGlobal() && binding.isMutable()) {
+                compileInto(assignment.getRightExpr(), binding.getIndex());
+                return null;
+            }
+        }
+
+        int register = allocate();
+        compileInto(statement, register);
+        free(register);
+        return null;
+    }
+
+    @Override
+    public Void visitIfElseStatement(IfElseStatement statement) {
+        ArrayList<Integer> exits = new ArrayList<>();
+
+        ArrayList<IfBlock> conditionalBlocks = new ArrayList<>();
+        conditionalBlocks.add(statement.getIfStatements());
+        conditionalBlocks.addAll(statement.getElifStatements());
+
+        for (IfBlock block : conditionalBlocks) {
+            int nextBlock = compileCondition(block.getCondition());
+
+            compileBlock(block.getStatements());
+            exits.add(emitJump(RegisterOpcode.JUMP));
+            patch(nextBlock);
+        }
+
+        if (statement.getElseStatements() != null) compileBlock(statement.getElseStatements().getStatements());
+        for (Integer exit : exits) patch(exit);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStatement(WhileStatement statement) {
+        int start = size;
+        int exit = compileCondition(statement.getCondition());
+
+        loop = new Loop(loop, start);
+        compileBlock(statement.getStatements());
+        emit(RegisterOpcode.JUMP, start);
+
+        patch(exit);
+        for (Integer loopBreak : loop.breaks) patch(loopBreak);
+        loop = loop.enclosing;
+        return null;
+    }
+
+    // Returns the position of jump taken when the condition is false
+    private int compileCondition(Expression condition) {
+        int mark = nextRegister;
+        int register = compileOperand(condition, null);
+        nextRegister = mark;
+
+        boolean known = types.typeOf(condition) == TypeSpecifier.BOOL && !types.mayBeEmpty(condition);
+        emit(known ? RegisterOpcode.BRANCH_FALSE : RegisterOpcode.JUMP_IF_FALSE, register, -1);
+        return size - 1;
+    }
+
+    @Override
+    public Void visitExistStatement(ExistStatement statement) {
+        int mark = nextRegister;
+        int register = compileOperand(statement.getExistValue(), null);
+        nextRegister = mark;
+
+        emit(RegisterOpcode.JUMP_IF_EMPTY, register, -1);
+        int elseBlock = size - 1;
+
+        compileBlock(statement.getExistStatements());
+        int exit = emitJump(RegisterOpcode.JUMP);
+
+        patch(elseBlock);
+        compileBlock(statement.getElseStatements());
+        patch(exit);
+        return null;
+    }
+
+    @Override
+    public Void visitPatternMatchingStatement(PatternMatchingStatement statement) {
+        int matched = statement.getMatchedBinding().getIndex();
+        compileInto(statement.getToMatch(), matched);
+        emit(RegisterOpcode.CHECK_MATCHED, matched);
+
+        // every matching case is executed
+        for (MatchCaseStatement caseStatement : statement.getCases()) {
+            int nextCase = compileCondition(caseStatement.getCondition());
+
+            compileBlock(caseStatement.getStatements());
+            patch(nextCase);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitJumpStatement(JumpStatement statement) {
+        if (statement.getType() == JumpType.RETURN) {
+            Expression returned = statement.getRetExpr();
+
+            if (compilingMain) {
+                // returned value is still evaluated, but main goes on with the next statement
+                if (returned != null) {
+                    int register = allocate();
+                    compileInto(returned, register);
+                    free(register);
+                }
+                statementExits.add(emitJump(RegisterOpcode.JUMP));
+            } else if (returned == null) emit(RegisterOpcode.RETURN_VOID);
+            else {
+                int mark = nextRegister;
+                emit(RegisterOpcode.RETURN, compileOperand(returned, null));
+                nextRegister = mark;
+            }
+            return null;
+        }
+
+        if (loop == null) {
+            String location = functionName;
+            emitThrow(() -> new InvalidJumpStatement(location));
+            return null;
+        }
+
+        if (statement.getType() == JumpType.BREAK) loop.breaks.add(emitJump(RegisterOpcode.JUMP));
+        else emit(RegisterOpcode.JUMP, loop.start);
+        return null;
+    }
+
+    // EXPRESSIONS
+    private void compileInto(Expression expression, int register) {
+        // missing expression evaluates to an empty value
+        if (expression == null) {
+            emit(RegisterOpcode.EMPTY, register);
+            return;
+        }
+
+        target = register;
+        expression.acceptExpression(this);
+    }
+
+    // Returns register holding the value, variable is used in place unless the expression evaluated after it can change it
+    private int compileOperand(Expression expression, Expression evaluatedLater) {
+        Binding binding = localVariable(expression);
+        if (binding != null && !assigns(evaluatedLater, binding)) {
+            requireValue(binding, binding.getIndex());
+            return binding.getIndex();
+        }
+
+        int register = allocate();
+        compileInto(expression, register);
+        return register;
+    }
+
+    private Binding localVariable(Expression expression) {
+        if (expression == null || expression instanceof OperatorExpression || expression instanceof FuncCallStatement) return null;
+        if (expression.getIdentifier() == null || expression.getNotFlag() != null) return null;
+
+        Binding binding = expression.getBinding();
+        return (binding != null && !binding.isGlobal()) ? binding : null;
+    }
+
+    // called functions have their own frames, so only an assignment can change a local variable
+    private boolean assigns(Expression expression, Binding binding) {
+        if (expression instanceof OperatorExpression operatorExpression) {
+            if (operatorExpression.getOperator() == Operator.ASSIGN && operatorExpression.getLeftExpr().getBinding() == binding) return true;
+            return assigns(operatorExpression.getLeftExpr(), binding) || assigns(operatorExpression.getRightExpr(), binding);
+        }
+        if (expression instanceof FuncCallStatement funcCall) {
+            for (Expression argument : funcCall.getArguments()) {
+                if (assigns(argument, binding)) return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Void visitOperatorExpression(OperatorExpression expression) {
+        int register = target;
+        Operator op = expression.getOperator();
+
+        if (op == Operator.ASSIGN) {
+            compileAssignment(expression, register);
+            return null;
+        }
+        if (op == Operator.AND || op == Operator.OR) {
+            compileLogicalExpression(expression, register);
+            return null;
+        }
+
+        // right side is evaluated first
+        int mark = nextRegister;
+        Expression leftExpr = expression.getLeftExpr();
+        Expression rightExpr = expression.getRightExpr();
+        int right = compileOperand(rightExpr, leftExpr);
+        int left = compileOperand(leftExpr, null);
+        nextRegister = mark;
+
+        TypeSpecifier type = types.typeOf(leftExpr);
+        TypeSpecifier resultType = types.typeOf(expression);
+        if (resultType == null) {
+            emit(RegisterOpcode.OPERATOR, register, left, right, op.ordinal(), notFlag(expression.getNotFlag()));
+            return null;
+        }
+
+        // empty operand is reported before anything else
+        if (types.mayBeEmpty(rightExpr)) emit(RegisterOpcode.REQUIRE_OPERAND, right);
+        if (types.mayBeEmpty(leftExpr)) emit(RegisterOpcode.REQUIRE_OPERAND, left);
+
+        emit(typedOpcode(op, type), register, left, right);
+        if (expression.getNotFlag() != null) emit(negationOpcode(resultType), register, register);
+        return null;
+    }
+
+    // Right side is evaluated only when the left one doesn't decide the result
+    // target is written last, as it can be a variable read by the right side
+    private void compileLogicalExpression(OperatorExpression expression, int register) {
+        Operator op = expression.getOperator();
+        Expression leftExpr = expression.getLeftExpr();
+        Expression rightExpr = expression.getRightExpr();
+
+        int mark = nextRegister;
+        int left = compileOperand(leftExpr, rightExpr);
+
+        if (types.typeOf(expression) == null) {
+            emit(RegisterOpcode.SHORT_CIRCUIT, register, left, op.ordinal(), notFlag(expression.getNotFlag()), -1);
+            int decided = size - 1;
+
+            int right = compileOperand(rightExpr, null);
+            nextRegister = mark;
+            emit(RegisterOpcode.OPERATOR, register, left, right, op.ordinal(), notFlag(expression.getNotFlag()));
+            patch(decided);
+            return;
+        }
+
+        if (types.mayBeEmpty(leftExpr)) emit(RegisterOpcode.REQUIRE_OPERAND, left);
+        emit(RegisterOpcode.BRANCH_FALSE, left, -1);
+        int leftFalse = size - 1;
+
+        // AND is decided by false left side, OR by true one
+        int exit;
+        if (op == Operator.AND) {
+            compileRightOperand(rightExpr, register);
+            exit = emitJump(RegisterOpcode.JUMP);
+            patch(leftFalse);
+            emit(RegisterOpcode.MOVE, register, left);
+        } else {
+            emit(RegisterOpcode.MOVE, register, left);
+            exit = emitJump(RegisterOpcode.JUMP);
+            patch(leftFalse);
+            compileRightOperand(rightExpr, register);
+        }
+        patch(exit);
+        nextRegister = mark;
+
+        if (expression.getNotFlag() != null) emit(RegisterOpcode.BNOT, register, register);
+    }
+
+    private void compileRightOperand(Expression rightExpr, int register) {
+        int right = compileOperand(rightExpr, null);
+        if (types.mayBeEmpty(rightExpr)) emit(RegisterOpcode.REQUIRE_OPERAND, right);
+        emit(RegisterOpcode.MOVE, register, right);
+    }
+
+    private void compileAssignment(OperatorExpression expression, int register) {
+        compileInto(expression.getRightExpr(), register);
+
+        if (expression.getNotFlag() != null) {
+            emitThrow(NegateAssignOperationException::new);
+            return;
+        }
+
+        Expression assigned = expression.getLeftExpr();
+        Binding binding = assigned.getBinding();
+        if (binding == null) {
+            String identifier = assigned.getIdentifier();
+            emitThrow(() -> new VariableNotDeclaredException(identifier));
+            return;
+        }
+
+        // non mutable variable can only get its first value
+        if (binding.isMutable()) {
+            if (binding.isGlobal()) emit(RegisterOpcode.STORE_GLOBAL, binding.getIndex(), register);
+            else emit(RegisterOpcode.MOVE, binding.getIndex(), register);
+        } else emit(binding.isGlobal() ? RegisterOpcode.STORE_GLOBAL_ONCE : RegisterOpcode.STORE_ONCE, binding.getIndex(), register, constant(binding.getIdentifier()));
+    }
+
+    private int typedOpcode(Operator op, TypeSpecifier type) {
+        boolean isInt = type == TypeSpecifier.INT;
+        boolean isFloat = type == TypeSpecifier.FLOAT;
+
+        switch (op) {
+            case ADD -> {
+                return isInt ? RegisterOpcode.IADD : (isFloat ? RegisterOpcode.FADD : RegisterOpcode.SCONCAT);
+            }
+            case SUB -> {
+                return isInt ? RegisterOpcode.ISUB : RegisterOpcode.FSUB;
+            }
+            case MULTI -> {
+                return isInt ? RegisterOpcode.IMUL : RegisterOpcode.FMUL;
+            }
+            case DIV -> {
+                return isInt ? RegisterOpcode.IDIV : RegisterOpcode.FDIV;
+            }
+            case MODULO -> {
+                return isInt ? RegisterOpcode.IMOD : RegisterOpcode.FMOD;
+            }
+            case LESS -> {
+                return isInt ? RegisterOpcode.ICMPLT : RegisterOpcode.FCMPLT;
+            }
+            case LESS_EQ -> {
+                return isInt ? RegisterOpcode.ICMPLE : RegisterOpcode.FCMPLE;
+            }
+            case MORE -> {
+                return isInt ? RegisterOpcode.ICMPGT : RegisterOpcode.FCMPGT;
+            }
+            case MORE_EQ -> {
+                return isInt ? RegisterOpcode.ICMPGE : RegisterOpcode.FCMPGE;
+            }
+            case EQUAL -> {
+                return isInt ? RegisterOpcode.ICMPEQ : (isFloat ? RegisterOpcode.FCMPEQ : RegisterOpcode.SCMPEQ);
+            }
+            case NOT_EQUAL -> {
+                return isInt ? RegisterOpcode.ICMPNE : (isFloat ? RegisterOpcode.FCMPNE : RegisterOpcode.SCMPNE);
+            }
+            case AND -> {
+                return RegisterOpcode.BAND;
+            }
+            case OR -> {
+                return RegisterOpcode.BOR;
+            }
+            default -> throw new ExpressionResolvingException();
+        }
+    }
+
+    private int negationOpcode(TypeSpecifier type) {
+        switch (type) {
+            case INT -> {
+                return RegisterOpcode.INEG;
+            }
+            case FLOAT -> {
+                return RegisterOpcode.FNEG;
+            }
+            default -> {
+                return RegisterOpcode.BNOT;
+            }
+        }
+    }
+
+    @Override
+    public Void visitFuncCall(FuncCallStatement expression) {
+        int register = target;
+        String identifier = expression.getIdentifier();
+        List<Expression> arguments = expression.getArguments();
+
+        Builtin builtin = Builtin.find(identifier);
+        if (builtin != null) {
+            compileBuiltinCall(builtin, arguments, register);
+            return null;
+        }
+
+        FunctionDefinition function = findFunction(identifier);
+        if (function == null) {
+            emitThrow(() -> new FunctionNotDeclaredException(identifier));
+            return null;
+        }
+
+        List<Parameter> parameters = function.getParameters();
+        try {
+            Resolver.checkParameters(parameters, function.getName());
+        } catch (ParameterAlreadyDeclaredException e) {
+            emitThrow(() -> e);
+            return null;
+        }
+        if (parameters.size() != arguments.size()) {
+            emitThrow(() -> new IncorrectParameterAmountException(function.getName(), arguments.size(), parameters.size()));
+            return null;
+        }
+
+        // arguments are computed into the registers above everything in use, they become the first registers of called frame
+        int mark = nextRegister;
+        int first = (register == nextRegister - 1 && register >= localCount) ? register : allocate();
+        while (nextRegister < first + arguments.size()) allocate();
+
+        for (int i = 0; i < arguments.size(); i++) {
+            Expression argument = arguments.get(i);
+            compileInto(argument, first + i);
+            if (types.typeOf(argument) != parameters.get(i).getType()) emit(RegisterOpcode.CHECK_ARGUMENT, first + i, constant(parameters.get(i)));
+        }
+        emit(RegisterOpcode.CALL, constant(compiledFunctions.get(function.getName())), first);
+        nextRegister = mark;
+
+        if (first != register) emit(RegisterOpcode.MOVE, register, first);
+        if (expression.getNotFlag() != null) emit(RegisterOpcode.NEGATE_RETURNED, register, notFlag(expression.getNotFlag()));
+        return null;
+    }
+
+    private void compileBuiltinCall(Builtin builtin, List<Expression> arguments, int register) {
+        if (arguments.size() != builtin.getParameterCount()) {
+            emitThrow(() -> new IncorrectParameterAmountException(builtin.getName(), arguments.size(), builtin.getParameterCount()));
+            return;
+        }
+
+        for (Expression argument : arguments) {
+            compileInto(argument, register);
+        }
+        emit(RegisterOpcode.CALL_BUILTIN, builtin.ordinal(), register);
+    }
+
+    @Override
+    public Void visitVariableReference(Expression expression) {
+        int register = target;
+        Binding binding = expression.getBinding();
+        if (binding == null) {
+            String identifier = expression.getIdentifier();
+            emitThrow(() -> new VariableNotDeclaredException(identifier));
+            return null;
+        }
+
+        if (binding.isGlobal()) emit(RegisterOpcode.LOAD_GLOBAL, register, binding.getIndex());
+        else if (binding.getIndex() != register) emit(RegisterOpcode.MOVE, register, binding.getIndex());
+        requireValue(binding, register);
+
+        NotValue notFlag = expression.getNotFlag();
+        if (notFlag == null) return null;
+
+        // negation of a value that can't be empty and has known type is checked here
+        TypeSpecifier type = types.typeOf(expression);
+        if (type != null && !types.mayBeEmpty(expression)) emit(negationOpcode(type), register, register);
+        else emit(RegisterOpcode.NEGATE_VARIABLE, register, constant(expression));
+        return null;
+    }
+
+    private void requireValue(Binding binding, int register) {
+        if (!binding.isOptional() && types.mayBeEmpty(binding)) emit(RegisterOpcode.REQUIRE_VALUE, register, constant(binding.getIdentifier()));
+    }
+
+    @Override
+    public Void visitLiteral(Expression expression) {
+        int register = target;
+
+        // negated literals are loaded already negated
+        boolean negated = expression.getNotFlag() != null;
+
+        switch (expression.getType()) {
+            case INT -> emit(RegisterOpcode.ICONST, register, negated ? -expression.getIntValue() : expression.getIntValue());
+            case FLOAT -> {
+                float value = negated ? -expression.getFloatValue() : expression.getFloatValue();
+                emit(RegisterOpcode.FCONST, register, Float.floatToRawIntBits(value));
+            }
+            case STRING -> emit(RegisterOpcode.SCONST, register, constant(expression.getStringValue()));
+            case BOOL -> emit(RegisterOpcode.BCONST, register, (negated != expression.getBoolValue()) ? 1 : 0);
+            default -> {
+                TypeSpecifier type = expression.getType();
+                emitThrow(() -> new TypeException(new TypeSpecifier[]{TypeSpecifier.INT, TypeSpecifier.FLOAT, TypeSpecifier.STRING, TypeSpecifier.BOOL}, type, "expression"));
+            }
+        }
+        return null;
+    }
+
+    // CODE
+    private FunctionDefinition findFunction(String name) {
+        for (FunctionDefinition function : program.getFunctions()) {
+            if (function.getName().equals(name)) return function;
+        }
+        return null;
+    }
+
+    private int allocate() {
+        registerCount = Math.max(registerCount, nextRegister + 1);
+        return nextRegister++;
+    }
+
+    private void free(int register) {
+        nextRegister = register;
+    }
+
+    private int notFlag(NotValue notFlag) {
+        return notFlag == null ? -1 : notFlag.ordinal();
+    }
+
+    private int constant(Object value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    private void emitThrow(Supplier<RuntimeException> exception) {
+        emit(RegisterOpcode.THROW, constant(exception));
+    }
+
+    // Returns the position of jump target, to be patched once the target is known
+    private int emitJump(int opcode) {
+        emit(opcode, -1);
+        return size - 1;
+    }
+
+    private void patch(int position) {
+        code[position] = size;
+    }
+
+    private void emit(int... values) {
+        if (size + values.length > code.length) code = Arrays.copyOf(code, Math.max(code.length * 2, size + values.length));
+
+        for (int value : values) {
+            code[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package tkom.project.vm;
+
+import tkom.project.Engine;
+import tkom.project.Resolver;
+import tkom.project.exceptions.*;
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.optimizer.Optimizer;
+import tkom.project.optimizer.OptimizerPolicy;
+import tkom.project.runtime.Builtin;
+import tkom.project.runtime.Operations;
+import tkom.project.scope.FrameStack;
+import tkom.project.scope.Reader;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+// Register machine executing code made by RegisterCompiler
+// Registers are tagged values like the slots of FrameStack, globals take the first registers and frames follow them
+public class RegisterMachine implements Engine {
+    private static final int INITIAL_SIZE = 1024;
+    private static final NotValue[] NOT_VALUES = NotValue.values();
+    private static final Operator[] OPERATORS = Operator.values();
+    private static final Builtin[] BUILTINS = Builtin.values();
+
+    private final Program program;
+    private OptimizerPolicy optimizerPolicy = OptimizerPolicy.DEFAULT;
+    private final Reader debug;
+
+    private TypeSpecifier[] types = new TypeSpecifier[INITIAL_SIZE];
+    private int[] values = new int[INITIAL_SIZE];
+    private String[] strings = new String[INITIAL_SIZE];
+
+    // operations on values of not known types are done by the shared operations on this stack
+    private final FrameStack operands = new FrameStack();
+
+    // callers of the currently executed function
+    private CompiledFunction[] callers = new CompiledFunction[64];
+    private int[] returnAddresses = new int[64];
+    private int[] framePointers = new int[64];
+    private int callDepth;
+
+    public RegisterMachine(Program program) {
+        this(program, null);
+    }
+
+    public RegisterMachine(Program program, Reader reader) {
+        this.program = program;
+        this.debug = reader;
+    }
+
+    @Override
+    public void setOptimizerPolicy(OptimizerPolicy optimizerPolicy) {
+        this.optimizerPolicy = optimizerPolicy;
+    }
+
+    @Override
+    public String execute() {
+        Resolver resolver = new Resolver(program);
+        resolver.resolve();
+        FunctionDefinition main = resolver.findMain();
+        new Optimizer(program, optimizerPolicy).optimize();
+
+        run(new RegisterCompiler(program).compile(main));
+
+        return ("Program executed CORRECTLY!");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run(CompiledFunction entry) {
+        CompiledFunction function = entry;
+        int[] code = function.getCode();
+        Object[] constants = function.getConstants();
+        int pc = 0;
+        int fp = program.getVariables().size();
+        ensureCapacity(fp + function.getFrameSize());
+
+        TypeSpecifier[] types = this.types;
+        int[] values = this.values;
+        String[] strings = this.strings;
+
+        while (true) {
+            switch (code[pc++]) {
+                // VALUES
+                case RegisterOpcode.ICONST -> {
+                    int target = fp + code[pc++];
+                    types[target] = TypeSpecifier.INT;
+                    values[target] = code[pc++];
+                }
+                case RegisterOpcode.FCONST -> {
+                    int target = fp + code[pc++];
+                    types[target] = TypeSpecifier.FLOAT;
+                    values[target] = code[pc++];
+                }
+                case RegisterOpcode.BCONST -> {
+                    int target = fp + code[pc++];
+                    types[target] = TypeSpecifier.BOOL;
+                    values[target] = code[pc++];
+                }
+                case RegisterOpcode.SCONST -> {
+                    int target = fp + code[pc++];
+                    types[target] = TypeSpecifier.STRING;
+                    strings[target] = (String) constants[code[pc++]];
+                }
+                case RegisterOpcode.EMPTY -> types[fp + code[pc++]] = null;
+                case RegisterOpcode.MOVE -> {
+                    int target = fp + code[pc++];
+                    copy(fp + code[pc++], target);
+                }
+
+                // VARIABLES
+                case RegisterOpcode.LOAD_GLOBAL -> {
+                    int target = fp + code[pc++];
+                    copy(code[pc++], target);
+                }
+                case RegisterOpcode.STORE_GLOBAL -> {
+                    int index = code[pc++];
+                    copy(fp + code[pc++], index);
+                }
+                case RegisterOpcode.STORE_ONCE -> {
+                    int target = fp + code[pc++];
+                    int source = fp + code[pc++];
+                    String name = (String) constants[code[pc++]];
+                    if (types[target] != null) throw new ReassignNonMutableVariableException(name);
+                    copy(source, target);
+                }
+                case RegisterOpcode.STORE_GLOBAL_ONCE -> {
+                    int index = code[pc++];
+                    int source = fp + code[pc++];
+                    String name = (String) constants[code[pc++]];
+                    if (types[index] != null) throw new ReassignNonMutableVariableException(name);
+                    copy(source, index);
+                }
+                case RegisterOpcode.CHECK_DEFINITION -> {
+                    TypeSpecifier type = types[fp + code[pc++]];
+                    VariableDefinition varDef = (VariableDefinition) constants[code[pc++]];
+                    if ((type != null) && (type != varDef.getType())) throw new MismatchedTypesException(varDef.getIdentifier(), varDef.getType(), type);
+                }
+                case RegisterOpcode.REQUIRE_VALUE -> {
+                    TypeSpecifier type = types[fp + code[pc++]];
+                    String name = (String) constants[code[pc++]];
+                    if (type == null) throw new NonOptionalVariableMissingValueException(name);
+                }
+                case RegisterOpcode.REQUIRE_OPERAND -> {
+                    if (types[fp + code[pc++]] == null) throw new ExpressionResolvingException();
+                }
+                case RegisterOpcode.NEGATE_VARIABLE -> {
+                    int register = fp + code[pc++];
+                    Expression variable = (Expression) constants[code[pc++]];
+                    TypeSpecifier type = types[register];
+                    if (type != null) {
+                        push(register);
+                        Operations.negateVariable(operands, variable, type);
+                        pop(register);
+                    }
+                }
+
+                // TYPED OPERATORS
+                case RegisterOpcode.IADD -> {
+                    int target = fp + code[pc++];
+                    int result = values[fp + code[pc++]] + values[fp + code[pc++]];
+                    types[target] = TypeSpecifier.INT;
+                    values[target] = result;
+                }
+                case RegisterOpcode.ISUB -> {
+                    int target = fp + code[pc++];
+                    int result = values[fp + code[pc++]] - values[fp + code[pc++]];
+                    types[target] = TypeSpecifier.INT;
+                    values[target] = result;
+                }
+                case RegisterOpcode.IMUL -> {
+                    int target = fp + code[pc++];
+                    int result = values[fp + code[pc++]] * values[fp + code[pc++]];
+                    types[target] = TypeSpecifier.INT;
+                    values[target] = result;
+                }
+                case RegisterOpcode.IDIV -> {
+                    int target = fp + code[pc++];
+                    int left = values[fp + code[pc++]];
+                    int right = values[fp + code[pc++]];
+                    if (right == 0) throw new DivisionByZeroException();
+                    types[target] = TypeSpecifier.FLOAT;
+                    values[target] = Float.floatToRawIntBits((float) left / right);
+                }
+                case RegisterOpcode.IMOD -> {
+                    int target = fp + code[pc++];
+                    int left = values[fp + code[pc++]];
+                    int right = values[fp + code[pc++]];
+                    if (right == 0) throw new DivisionByZeroException();
+                    types[target] = TypeSpecifier.INT;
+                    values[target] = left % right;
+                }
+                case RegisterOpcode.FADD -> {
+                    int target = fp + code[pc++];
+                    float result = floatValue(fp + code[pc++]) + floatValue(fp + code[pc++]);
+                    types[target] = TypeSpecifier.FLOAT;
+                    values[target] = Float.floatToRawIntBits(result);
+                }
+                case RegisterOpcode.FSUB -> {
+                    int target = fp + code[pc++];
+                    float result = floatValue(fp + code[pc++]) - floatValue(fp + code[pc++]);
+                    types[target] = TypeSpecifier.FLOAT;
+                    values[target] = Float.floatToRawIntBits(result);
+                }
+                case RegisterOpcode.FMUL -> {
+                    int target = fp + code[pc++];
+                    float result = floatValue(fp + code[pc++]) * floatValue(fp + code[pc++]);
+                    types[target] = TypeSpecifier.FLOAT;
+                    values[target] = Float.floatToRawIntBits(result);
+                }
+                case RegisterOpcode.FDIV -> {
+                    int target = fp + code[pc++];
+                    float left = floatValue(fp + code[pc++]);
+                    float right = floatValue(fp + code[pc++]);
+                    if (right == 0) throw new DivisionByZeroException();
+                    types[target] = TypeSpecifier.FLOAT;
+                    values[target] = Float.floatToRawIntBits(left / right);
+                }
+                case RegisterOpcode.FMOD -> {
+                    int target = fp + code[pc++];
+                    float left = floatValue(fp + code[pc++]);
+                    float right = floatValue(fp + code[pc++]);
+                    if (right == 0) throw new DivisionByZeroException();
+                    types[target] = TypeSpecifier.FLOAT;
+                    values[target] = Float.floatToRawIntBits(left % right);
+                }
+                case RegisterOpcode.SCONCAT -> {
+                    int target = fp + code[pc++];
+                    String result = strings[fp + code[pc++]] + strings[fp + code[pc++]];
+                    types[target] = TypeSpecifier.STRING;
+                    strings[target] = result;
+                }
+                case RegisterOpcode.ICMPLT -> {
+                    int target = fp + code[pc++];
+                    boolean result = values[fp + code[pc++]] < values[fp + code[pc++]];
+                    setBool(target, result);
+                }
+                case RegisterOpcode.ICMPLE -> {
+                    int target = fp + code[pc++];
+                    boolean result = values[fp + code[pc++]] <= values[fp + code[pc++]];
+                    setBool(target, result);
+                }
+                case RegisterOpcode.ICMPGT -> {
+                    int target = fp + code[pc++];
+                    boolean result = values[fp + code[pc++]] > values[fp + code[pc++]];
+                    setBool(target, result);
+                }
+                case RegisterOpcode.ICMPGE -> {
+                    int target = fp + code[pc++];
+                    boolean result = values[fp + code[pc++]] >= values[fp + code[pc++]];
+                    setBool(target, result);
+                }
+                case RegisterOpcode.ICMPEQ -> {
+                    int target = fp + code[pc++];
+                    boolean result = values[fp + code[pc++]] == values[fp + code[pc++]];
+                    setBool(target, result);
+                }
+                case RegisterOpcode.ICMPNE -> {
+                    int target = fp + code[pc++];
+                    boolean result = values[fp + code[pc++]] != values[fp + code[pc++]];
+                    setBool(target, result);
+                }
+                case RegisterOpcode.FCMPLT -> {
+                    int target = fp + code[pc++];
+                    boolean result = floatValue(fp + code[pc++]) < floatValue(fp + code[pc++]);
+                    setBool(target, result);
+                }
+                case RegisterOpcode.FCMPLE -> {
+                    int target = fp + code[pc++];
+                    boolean result = floatValue(fp + code[pc++]) <= floatValue(fp + code[pc++]);
+                    setBool(target, result);
+                }
+                case RegisterOpcode.FCMPGT -> {
+                    int target = fp + code[pc++];
+                    boolean result = floatValue(fp + code[pc++]) > floatValue(fp + code[pc++]);
+                    setBool(target, result);
+                }
+                case RegisterOpcode.FCMPGE -> {
+                    int target = fp + code[pc++];
+                    boolean result = floatValue(fp + code[pc++]) >= floatValue(fp + code[pc++]);
+                    setBool(target, result);
+                }
+                case RegisterOpcode.FCMPEQ -> {
+                    int target = fp + code[pc++];
+                    boolean result = Float.compare(floatValue(fp + code[pc++]), floatValue(fp + code[pc++])) == 0;
+                    setBool(target, result);
+                }
+                case RegisterOpcode.FCMPNE -> {
+                    int target = fp + code[pc++];
+                    boolean result = Float.compare(floatValue(fp + code[pc++]), floatValue(fp + code[pc++])) != 0;
+                    setBool(target, result);
+                }
+                case RegisterOpcode.SCMPEQ -> {
+                    int target = fp + code[pc++];
+                    boolean result = Objects.equals(strings[fp + code[pc++]], strings[fp + code[pc++]]);
+                    setBool(target, result);
+                }
+                case RegisterOpcode.SCMPNE -> {
+                    int target = fp + code[pc++];
+                    boolean result = !Objects.equals(strings[fp + code[pc++]], strings[fp + code[pc++]]);
+                    setBool(target, result);
+                }
+                case RegisterOpcode.BAND -> {
+                    int target = fp + code[pc++];
+                    boolean result = (values[fp + code[pc++]] != 0) & (values[fp + code[pc++]] != 0);
+                    setBool(target, result);
+                }
+                case RegisterOpcode.BOR -> {
+                    int target = fp + code[pc++];
+                    boolean result = (values[fp + code[pc++]] != 0) | (values[fp + code[pc++]] != 0);
+                    setBool(target, result);
+                }
+
+                // TYPED NEGATION
+                case RegisterOpcode.INEG -> {
+                    int target = fp + code[pc++];
+                    values[target] = -values[fp + code[pc++]];
+                    types[target] = TypeSpecifier.INT;
+                }
+                case RegisterOpcode.FNEG -> {
+                    int target = fp + code[pc++];
+                    values[target] = Float.floatToRawIntBits(-floatValue(fp + code[pc++]));
+                    types[target] = TypeSpecifier.FLOAT;
+                }
+                case RegisterOpcode.BNOT -> {
+                    int target = fp + code[pc++];
+                    setBool(target, values[fp + code[pc++]] == 0);
+                }
+
+                case RegisterOpcode.OPERATOR -> {
+                    int target = fp + code[pc++];
+                    int left = fp + code[pc++];
+                    int right = fp + code[pc++];
+                    Operator op = OPERATORS[code[pc++]];
+                    NotValue notFlag = notValue(code[pc++]);
+
+                    // left operand is on top, as it is evaluated last
+                    push(right);
+                    push(left);
+                    Operations.evaluateOperator(operands, op, notFlag);
+                    pop(target);
+                }
+
+                // CONTROL FLOW
+                case RegisterOpcode.JUMP -> pc = code[pc];
+                case RegisterOpcode.JUMP_IF_FALSE -> {
+                    int condition = fp + code[pc++];
+                    TypeSpecifier type = types[condition];
+                    if (type == null) throw new ExpressionResolvingException();
+                    if (type != TypeSpecifier.BOOL) throw new MismatchedTypesException("condition", TypeSpecifier.BOOL, type);
+
+                    if (values[condition] != 0) pc++;
+                    else pc = code[pc];
+                }
+                case RegisterOpcode.BRANCH_FALSE -> {
+                    if (values[fp + code[pc++]] != 0) pc++;
+                    else pc = code[pc];
+                }
+                case RegisterOpcode.JUMP_IF_EMPTY -> {
+                    if (types[fp + code[pc++]] == null) pc = code[pc];
+                    else pc++;
+                }
+                case RegisterOpcode.CHECK_MATCHED -> {
+                    if (types[fp + code[pc++]] == null) throw new ExpressionResolvingException();
+                }
+
+                // CALLS
+                case RegisterOpcode.CHECK_ARGUMENT -> {
+                    TypeSpecifier type = types[fp + code[pc++]];
+                    Parameter parameter = (Parameter) constants[code[pc++]];
+                    if ((type != null) && (parameter.getType() != type)) throw new MismatchedTypesException(parameter.getIdentifier(), parameter.getType(), type);
+                }
+                case RegisterOpcode.CALL -> {
+                    CompiledFunction callee = (CompiledFunction) constants[code[pc++]];
+                    int first = code[pc++];
+
+                    if (callDepth == callers.length) growCallStack();
+                    callers[callDepth] = function;
+                    returnAddresses[callDepth] = pc;
+                    framePointers[callDepth] = fp;
+                    callDepth++;
+
+                    fp += first;
+                    function = callee;
+                    code = function.getCode();
+                    constants = function.getConstants();
+                    pc = 0;
+
+                    if (fp + function.getFrameSize() > types.length) {
+                        ensureCapacity(fp + function.getFrameSize());
+                        types = this.types;
+                        values = this.values;
+                        strings = this.strings;
+                    }
+                }
+                case RegisterOpcode.CALL_BUILTIN -> {
+                    Builtin builtin = BUILTINS[code[pc++]];
+                    int register = fp + code[pc++];
+
+                    if (builtin.getParameterCount() > 0) push(register);
+                    builtin.execute(operands, debug);
+                    pop(register);
+                }
+                case RegisterOpcode.NEGATE_RETURNED -> {
+                    int register = fp + code[pc++];
+                    NotValue notFlag = notValue(code[pc++]);
+                    TypeSpecifier type = types[register];
+                    if (type != null) {
+                        push(register);
+                        Operations.negateReturnedValue(operands, type, notFlag);
+                        pop(register);
+                    }
+                }
+                case RegisterOpcode.RETURN, RegisterOpcode.RETURN_VOID -> {
+                    // returned value goes to the first register of the frame, where the caller expects it
+                    if (code[pc-1] == RegisterOpcode.RETURN) {
+                        int returned = fp + code[pc++];
+                        TypeSpecifier type = types[returned];
+                        if ((type != null) && (type != function.getType())) throw new IncorrectReturnTypeException(function.getName(), type, function.getType());
+                        copy(returned, fp);
+                    } else types[fp] = null;
+
+                    callDepth--;
+                    fp = framePointers[callDepth];
+                    function = callers[callDepth];
+                    callers[callDepth] = null;
+                    code = function.getCode();
+                    constants = function.getConstants();
+                    pc = returnAddresses[callDepth];
+                }
+
+                case RegisterOpcode.SHORT_CIRCUIT -> {
+                    int target = fp + code[pc++];
+                    int left = fp + code[pc++];
+                    Operator op = OPERATORS[code[pc++]];
+                    NotValue notFlag = notValue(code[pc++]);
+
+                    push(left);
+                    if (Operations.shortCircuit(operands, op, notFlag)) {
+                        pop(target);
+                        pc = code[pc];
+                    } else {
+                        operands.pop();
+                        pc++;
+                    }
+                }
+
+                case RegisterOpcode.THROW -> throw ((Supplier<RuntimeException>) constants[code[pc]]).get();
+                case RegisterOpcode.HALT -> {
+                    return;
+                }
+                default -> throw new IllegalStateException("Unknown opcode " + code[pc-1] + " in " + function.getName());
+            }
+        }
+    }
+
+    private float floatValue(int register) {
+        return Float.intBitsToFloat(values[register]);
+    }
+
+    private void setBool(int register, boolean value) {
+        types[register] = TypeSpecifier.BOOL;
+        values[register] = value ? 1 : 0;
+    }
+
+    private void copy(int from, int to) {
+        types[to] = types[from];
+        values[to] = values[from];
+        strings[to] = strings[from];
+    }
+
+    // REGISTERS ON THE OPERAND STACK
+    private void push(int register) {
+        TypeSpecifier type = types[register];
+
+        if (type == null) operands.pushEmpty();
+        else if (type == TypeSpecifier.INT) operands.pushInt(values[register]);
+        else if (type == TypeSpecifier.FLOAT) operands.pushFloat(floatValue(register));
+        else if (type == TypeSpecifier.BOOL) operands.pushBool(values[register] != 0);
+        else operands.pushString(strings[register]);
+    }
+
+    private void pop(int register) {
+        TypeSpecifier type = operands.peekType();
+        types[register] = type;
+
+        if (type == null) operands.pop();
+        else if (type == TypeSpecifier.INT) values[register] = operands.popInt();
+        else if (type == TypeSpecifier.FLOAT) values[register] = Float.floatToRawIntBits(operands.popFloat());
+        else if (type == TypeSpecifier.BOOL) values[register] = operands.popBool() ? 1 : 0;
+        else strings[register] = operands.popString();
+    }
+
+    private NotValue notValue(int notFlag) {
+        return notFlag < 0 ? null : NOT_VALUES[notFlag];
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > types.length) {
+            int newSize = Math.max(size, types.length * 2);
+
+            types = Arrays.copyOf(types, newSize);
+            values = Arrays.copyOf(values, newSize);
+            strings = Arrays.copyOf(strings, newSize);
+        }
+    }
+
+    private void growCallStack() {
+        int newSize = callers.length * 2;
+
+        callers = Arrays.copyOf(callers, newSize);
+        returnAddresses = Arrays.copyOf(returnAddresses, newSize);
+        framePointers = Arrays.copyOf(framePointers, newSize);
+    }
+}
@@ -0,0 +1,84 @@
+package tkom.project.vm;
+
+// Instructions of the register machine, operands are registers of the current frame unless stated otherwise
+// Typed instructions are emitted only when operand types are known while compiling, so they don't check them
+public final class RegisterOpcode {
+    private RegisterOpcode() {
+    }
+
+    // VALUES
+    public static final int ICONST = 0;             // target, value
+    public static final int FCONST = 1;             // target, raw float bits
+    public static final int BCONST = 2;             // target, 0 or 1
+    public static final int SCONST = 3;             // target, constant
+    public static final int EMPTY = 4;              // target
+    public static final int MOVE = 5;               // target, source
+
+    // VARIABLES
+    public static final int LOAD_GLOBAL = 6;        // target, global index
+    public static final int STORE_GLOBAL = 7;       // global index, source
+    public static final int STORE_ONCE = 8;         // target, source, constant name
+    public static final int STORE_GLOBAL_ONCE = 9;  // global index, source, constant name
+    public static final int CHECK_DEFINITION = 10;  // register, constant VariableDefinition
+    public static final int REQUIRE_VALUE = 11;     // register, constant name
+    public static final int REQUIRE_OPERAND = 12;   // register
+    public static final int NEGATE_VARIABLE = 13;   // register, constant Expression
+
+    // TYPED OPERATORS, target, left, right
+    public static final int IADD = 14;
+    public static final int ISUB = 15;
+    public static final int IMUL = 16;
+    public static final int IDIV = 17;
+    public static final int IMOD = 18;
+    public static final int FADD = 19;
+    public static final int FSUB = 20;
+    public static final int FMUL = 21;
+    public static final int FDIV = 22;
+    public static final int FMOD = 23;
+    public static final int SCONCAT = 24;
+    public static final int ICMPLT = 25;
+    public static final int ICMPLE = 26;
+    public static final int ICMPGT = 27;
+    public static final int ICMPGE = 28;
+    public static final int ICMPEQ = 29;
+    public static final int ICMPNE = 30;
+    public static final int FCMPLT = 31;
+    public static final int FCMPLE = 32;
+    public static final int FCMPGT = 33;
+    public static final int FCMPGE = 34;
+    public static final int FCMPEQ = 35;
+    public static final int FCMPNE = 36;
+    public static final int SCMPEQ = 37;
+    public static final int SCMPNE = 38;
+    public static final int BAND = 39;
+    public static final int BOR = 40;
+
+    // TYPED NEGATION, target, source
+    public static final int INEG = 41;
+    public static final int FNEG = 42;
+    public static final int BNOT = 43;
+
+    // operator of not known types, target, left, right, Operator ordinal, not flag (-1 without it)
+    public static final int OPERATOR = 44;
+
+    // CONTROL FLOW
+    public static final int JUMP = 45;              // target
+    public static final int JUMP_IF_FALSE = 46;     // condition, target
+    public static final int BRANCH_FALSE = 47;      // bool condition, target
+    public static final int JUMP_IF_EMPTY = 48;     // register, target
+    public static final int CHECK_MATCHED = 49;     // register
+
+    // CALLS
+    public static final int CHECK_ARGUMENT = 50;    // register, constant Parameter
+    public static final int CALL = 51;              // constant CompiledFunction, first argument which becomes the first register of the called frame and gets the result
+    public static final int CALL_BUILTIN = 52;      // Builtin ordinal, argument and result
+    public static final int NEGATE_RETURNED = 53;   // register, not flag
+    public static final int RETURN = 54;            // register
+    public static final int RETURN_VOID = 55;
+
+    public static final int THROW = 56;             // constant Supplier of the exception
+    public static final int HALT = 57;
+
+    // AND or OR of not known types, target, left, Operator ordinal, not flag, target of jump taken when the left operand decides the result
+    public static final int SHORT_CIRCUIT = 58;
+}
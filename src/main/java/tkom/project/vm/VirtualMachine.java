@@ -0,0 +1,428 @@
+package tkom.project.vm;
+
+import tkom.project.Engine;
+import tkom.project.Resolver;
+import tkom.project.exceptions.*;
+import tkom.project.nodes.*;
+import tkom.project.nodes.expressions.Expression;
+import tkom.project.optimizer.Optimizer;
+import tkom.project.optimizer.OptimizerPolicy;
+import tkom.project.runtime.Builtin;
+import tkom.project.runtime.Operations;
+import tkom.project.scope.FrameStack;
+import tkom.project.scope.Reader;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// Stack machine executing code made by BytecodeCompiler, calls don't recurse on the Java stack
+// so recursion depth is limited only by maxCallDepth, and execution can be paused and resumed between instructions
+public class VirtualMachine implements Engine {
+    public static final int DEFAULT_MAX_CALL_DEPTH = 1_000_000;
+
+    private static final NotValue[] NOT_VALUES = NotValue.values();
+    private static final Operator[] OPERATORS = Operator.values();
+    private static final Builtin[] BUILTINS = Builtin.values();
+
+    private final Program program;
+    private OptimizerPolicy optimizerPolicy = OptimizerPolicy.DEFAULT;
+    private final FrameStack frames;
+    private final Reader debug;
+    private final int maxCallDepth;
+
+    // executed function and position in its code, kept while the execution is paused
+    private CompiledFunction function;
+    private int pc;
+    private volatile boolean pauseRequested;
+
+    // callers of the currently executed function
+    private CompiledFunction[] callers = new CompiledFunction[64];
+    private int[] returnAddresses = new int[64];
+    private int[] framePointers = new int[64];
+    private int callDepth;
+
+    public VirtualMachine(Program program) {
+        this(program, null);
+    }
+
+    public VirtualMachine(Program program, Reader reader) {
+        this(program, reader, DEFAULT_MAX_CALL_DEPTH);
+    }
+
+    public VirtualMachine(Program program, Reader reader, int maxCallDepth) {
+        if (maxCallDepth < 1) throw new IllegalArgumentException("Maximum call depth has to be positive");
+
+        this.program = program;
+        this.frames = new FrameStack();
+        this.debug = reader;
+        this.maxCallDepth = maxCallDepth;
+    }
+
+    @Override
+    public void setOptimizerPolicy(OptimizerPolicy optimizerPolicy) {
+        this.optimizerPolicy = optimizerPolicy;
+    }
+
+    @Override
+    public String execute() {
+        start();
+        if (!resume()) return ("Program PAUSED!");
+
+        return ("Program executed CORRECTLY!");
+    }
+
+    // Compiles the program, which then runs with resume
+    public void start() {
+        Resolver resolver = new Resolver(program);
+        resolver.resolve();
+        FunctionDefinition main = resolver.findMain();
+        new Optimizer(program, optimizerPolicy).optimize();
+
+        function = new BytecodeCompiler(program).compile(main);
+        pc = 0;
+    }
+
+    // Asks the running program to pause, can be called from another thread
+    // pause is taken on the next jump back to a loop start or call, as only those let a program run for long
+    public void pause() {
+        pauseRequested = true;
+    }
+
+    // Runs the started program until it ends or pauses, returns true once it ended
+    public boolean resume() {
+        if (function == null) throw new IllegalStateException("Program is not started or has already ended");
+
+        boolean ended = run();
+        if (ended) function = null;
+        return ended;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean run() {
+        CompiledFunction function = this.function;
+        int[] code = function.getCode();
+        Object[] constants = function.getConstants();
+        int pc = this.pc;
+
+        while (true) {
+            switch (code[pc++]) {
+                // VALUES
+                case Opcode.PUSH_INT -> frames.pushInt(code[pc++]);
+                case Opcode.PUSH_FLOAT -> frames.pushFloat(Float.intBitsToFloat(code[pc++]));
+                case Opcode.PUSH_BOOL -> frames.pushBool(code[pc++] != 0);
+                case Opcode.PUSH_STRING -> frames.pushString((String) constants[code[pc++]]);
+                case Opcode.PUSH_EMPTY -> frames.pushEmpty();
+                case Opcode.POP -> frames.pop();
+
+                // VARIABLES
+                case Opcode.LOAD -> frames.load(code[pc++]);
+                case Opcode.LOAD_GLOBAL -> frames.loadGlobal(code[pc++]);
+                case Opcode.STORE -> frames.store(code[pc++]);
+                case Opcode.STORE_GLOBAL -> frames.storeGlobal(code[pc++]);
+                case Opcode.STORE_ONCE -> {
+                    int slot = code[pc++];
+                    String name = (String) constants[code[pc++]];
+                    if (frames.getType(slot) != null) throw new ReassignNonMutableVariableException(name);
+                    frames.store(slot);
+                }
+                case Opcode.STORE_GLOBAL_ONCE -> {
+                    int index = code[pc++];
+                    String name = (String) constants[code[pc++]];
+                    if (frames.getGlobalType(index) != null) throw new ReassignNonMutableVariableException(name);
+                    frames.storeGlobal(index);
+                }
+                case Opcode.DEFINE -> frames.define(code[pc++]);
+                case Opcode.CHECK_DEFINITION -> {
+                    VariableDefinition varDef = (VariableDefinition) constants[code[pc++]];
+                    TypeSpecifier type = frames.peekType();
+                    if ((type != null) && (type != varDef.getType())) throw new MismatchedTypesException(varDef.getIdentifier(), varDef.getType(), type);
+                }
+                case Opcode.REQUIRE_VALUE -> {
+                    String name = (String) constants[code[pc++]];
+                    if (frames.peekType() == null) throw new NonOptionalVariableMissingValueException(name);
+                }
+                case Opcode.NEGATE_VARIABLE -> {
+                    Expression variable = (Expression) constants[code[pc++]];
+                    TypeSpecifier type = frames.peekType();
+                    if (type != null) Operations.negateVariable(frames, variable, type);
+                }
+
+                // OPERATORS
+                case Opcode.ADD -> {
+                    int notFlag = code[pc++];
+                    if (intOperands(notFlag)) frames.pushInt(frames.popInt() + frames.popInt());
+                    else Operations.evaluateOperator(frames, Operator.ADD, notValue(notFlag));
+                }
+                case Opcode.SUB -> {
+                    int notFlag = code[pc++];
+                    if (intOperands(notFlag)) {
+                        int left = frames.popInt();
+                        frames.pushInt(left - frames.popInt());
+                    } else Operations.evaluateOperator(frames, Operator.SUB, notValue(notFlag));
+                }
+                case Opcode.MULTI -> {
+                    int notFlag = code[pc++];
+                    if (intOperands(notFlag)) frames.pushInt(frames.popInt() * frames.popInt());
+                    else Operations.evaluateOperator(frames, Operator.MULTI, notValue(notFlag));
+                }
+                case Opcode.DIV -> Operations.evaluateOperator(frames, Operator.DIV, notValue(code[pc++]));
+                case Opcode.MODULO -> {
+                    int notFlag = code[pc++];
+                    if (intOperands(notFlag) && frames.peekInt(1) != 0) {
+                        int left = frames.popInt();
+                        frames.pushInt(left % frames.popInt());
+                    } else Operations.evaluateOperator(frames, Operator.MODULO, notValue(notFlag));
+                }
+                case Opcode.LESS -> {
+                    int notFlag = code[pc++];
+                    if (intOperands(notFlag)) {
+                        int left = frames.popInt();
+                        frames.pushBool(left < frames.popInt());
+                    } else Operations.evaluateOperator(frames, Operator.LESS, notValue(notFlag));
+                }
+                case Opcode.LESS_EQ -> {
+                    int notFlag = code[pc++];
+                    if (intOperands(notFlag)) {
+                        int left = frames.popInt();
+                        frames.pushBool(left <= frames.popInt());
+                    } else Operations.evaluateOperator(frames, Operator.LESS_EQ, notValue(notFlag));
+                }
+                case Opcode.MORE -> {
+                    int notFlag = code[pc++];
+                    if (intOperands(notFlag)) {
+                        int left = frames.popInt();
+                        frames.pushBool(left > frames.popInt());
+                    } else Operations.evaluateOperator(frames, Operator.MORE, notValue(notFlag));
+                }
+                case Opcode.MORE_EQ -> {
+                    int notFlag = code[pc++];
+                    if (intOperands(notFlag)) {
+                        int left = frames.popInt();
+                        frames.pushBool(left >= frames.popInt());
+                    } else Operations.evaluateOperator(frames, Operator.MORE_EQ, notValue(notFlag));
+                }
+                case Opcode.EQUAL -> {
+                    int notFlag = code[pc++];
+                    if (intOperands(notFlag)) frames.pushBool(frames.popInt() == frames.popInt());
+                    else Operations.evaluateOperator(frames, Operator.EQUAL, notValue(notFlag));
+                }
+                case Opcode.NOT_EQUAL -> {
+                    int notFlag = code[pc++];
+                    if (intOperands(notFlag)) frames.pushBool(frames.popInt() != frames.popInt());
+                    else Operations.evaluateOperator(frames, Operator.NOT_EQUAL, notValue(notFlag));
+                }
+                case Opcode.AND -> Operations.evaluateOperator(frames, Operator.AND, notValue(code[pc++]));
+                case Opcode.OR -> Operations.evaluateOperator(frames, Operator.OR, notValue(code[pc++]));
+
+                // CONTROL FLOW
+                case Opcode.JUMP -> {
+                    int target = code[pc];
+                    if (target < pc && pauseRequested) {
+                        pauseRequested = false;
+                        this.function = function;
+                        this.pc = target;
+                        return false;
+                    }
+                    pc = target;
+                }
+                case Opcode.JUMP_IF_FALSE -> {
+                    if (popCondition()) pc++;
+                    else pc = code[pc];
+                }
+                case Opcode.JUMP_IF_EMPTY -> {
+                    boolean empty = frames.peekType() == null;
+                    frames.pop();
+
+                    if (empty) pc = code[pc];
+                    else pc++;
+                }
+                case Opcode.CHECK_MATCHED -> {
+                    if (frames.peekType() == null) throw new ExpressionResolvingException();
+                }
+                case Opcode.TRUNCATE -> frames.truncate(code[pc++]);
+
+                // CALLS
+                case Opcode.CHECK_ARGUMENT -> {
+                    Parameter parameter = (Parameter) constants[code[pc++]];
+                    TypeSpecifier type = frames.peekType();
+                    if ((type != null) && (parameter.getType() != type)) throw new MismatchedTypesException(parameter.getIdentifier(), parameter.getType(), type);
+                }
+                case Opcode.CALL -> {
+                    CompiledFunction callee = (CompiledFunction) constants[code[pc++]];
+                    int argumentCount = code[pc++];
+
+                    if (callDepth == maxCallDepth) throw new CallDepthExceededException(callee.getName(), maxCallDepth);
+                    if (callDepth == callers.length) growCallStack();
+                    callers[callDepth] = function;
+                    returnAddresses[callDepth] = pc;
+                    framePointers[callDepth] = frames.enterFrame(argumentCount, callee.getFrameSize());
+                    callDepth++;
+
+                    function = callee;
+                    code = function.getCode();
+                    constants = function.getConstants();
+                    pc = 0;
+
+                    if (pauseRequested) {
+                        pauseRequested = false;
+                        this.function = function;
+                        this.pc = pc;
+                        return false;
+                    }
+                }
+                case Opcode.CALL_BUILTIN -> BUILTINS[code[pc++]].execute(frames, debug);
+                case Opcode.NEGATE_RETURNED -> {
+                    NotValue notFlag = notValue(code[pc++]);
+                    TypeSpecifier type = frames.peekType();
+                    if (type != null) Operations.negateReturnedValue(frames, type, notFlag);
+                }
+                case Opcode.RETURN, Opcode.RETURN_VOID -> {
+                    boolean returnsValue = code[pc-1] == Opcode.RETURN;
+                    if (returnsValue) {
+                        TypeSpecifier type = frames.peekType();
+                        if ((type != null) && (type != function.getType())) throw new IncorrectReturnTypeException(function.getName(), type, function.getType());
+                        frames.saveReturnedValue();
+                    }
+
+                    callDepth--;
+                    frames.leaveFrame(framePointers[callDepth]);
+                    if (returnsValue) frames.pushReturnedValue();
+                    else frames.pushEmpty();
+
+                    function = callers[callDepth];
+                    callers[callDepth] = null;
+                    code = function.getCode();
+                    constants = function.getConstants();
+                    pc = returnAddresses[callDepth];
+                }
+
+                // SUPERINSTRUCTIONS
+                case Opcode.INCREMENT -> {
+                    int slot = code[pc++];
+                    int amount = code[pc++];
+                    Operator op = OPERATORS[code[pc++]];
+                    String name = (String) constants[code[pc++]];
+
+                    if (frames.getType(slot) == TypeSpecifier.INT) frames.setInt(slot, frames.getInt(slot) + amount);
+                    else {
+                        frames.pushInt((op == Operator.ADD) ? amount : -amount);
+                        update(slot, name, op);
+                    }
+                }
+                case Opcode.ADD_TO -> {
+                    int slot = code[pc++];
+                    String name = (String) constants[code[pc++]];
+                    TypeSpecifier type = frames.getType(slot);
+
+                    if (type == TypeSpecifier.STRING && frames.peekType() == TypeSpecifier.STRING) frames.setString(slot, frames.getString(slot) + frames.popString());
+                    else if (type == TypeSpecifier.INT && frames.peekType() == TypeSpecifier.INT) frames.setInt(slot, frames.getInt(slot) + frames.popInt());
+                    else update(slot, name, Operator.ADD);
+                }
+                case Opcode.COMPARE_CONSTANT_JUMP -> {
+                    Operator op = OPERATORS[code[pc++]];
+                    int slot = code[pc++];
+                    int value = code[pc++];
+                    String name = (String) constants[code[pc++]];
+
+                    boolean result;
+                    if (frames.getType(slot) == TypeSpecifier.INT) result = compare(op, frames.getInt(slot), value);
+                    else {
+                        frames.pushInt(value);
+                        loadRequired(slot, name);
+                        Operations.evaluateOperator(frames, op, null);
+                        result = popCondition();
+                    }
+
+                    if (result) pc++;
+                    else pc = code[pc];
+                }
+                case Opcode.COMPARE_JUMP -> {
+                    Operator op = OPERATORS[code[pc++]];
+                    int leftSlot = code[pc++];
+                    int rightSlot = code[pc++];
+                    String leftName = (String) constants[code[pc++]];
+                    String rightName = (String) constants[code[pc++]];
+
+                    boolean result;
+                    if (frames.getType(leftSlot) == TypeSpecifier.INT && frames.getType(rightSlot) == TypeSpecifier.INT) result = compare(op, frames.getInt(leftSlot), frames.getInt(rightSlot));
+                    else {
+                        loadRequired(rightSlot, rightName);
+                        loadRequired(leftSlot, leftName);
+                        Operations.evaluateOperator(frames, op, null);
+                        result = popCondition();
+                    }
+
+                    if (result) pc++;
+                    else pc = code[pc];
+                }
+
+                // LOGICAL OPERATORS
+                case Opcode.SHORT_CIRCUIT -> {
+                    Operator op = OPERATORS[code[pc++]];
+                    NotValue notFlag = notValue(code[pc++]);
+
+                    if (Operations.shortCircuit(frames, op, notFlag)) pc = code[pc];
+                    else pc++;
+                }
+                case Opcode.SWAP -> frames.swap();
+
+                case Opcode.THROW -> throw ((Supplier<RuntimeException>) constants[code[pc]]).get();
+                case Opcode.HALT -> {
+                    return true;
+                }
+                default -> throw new IllegalStateException("Unknown opcode " + code[pc-1] + " in " + function.getName());
+            }
+        }
+    }
+
+    // Integer operands without negation are computed inline, everything else by the shared operations
+    private boolean intOperands(int notFlag) {
+        return notFlag < 0 && frames.peekType() == TypeSpecifier.INT && frames.peekType(1) == TypeSpecifier.INT;
+    }
+
+    private boolean popCondition() {
+        TypeSpecifier type = frames.peekType();
+        if (type == null) throw new ExpressionResolvingException();
+        if (type != TypeSpecifier.BOOL) throw new MismatchedTypesException("condition", TypeSpecifier.BOOL, type);
+
+        return frames.popBool();
+    }
+
+    private static boolean compare(Operator op, int left, int right) {
+        return switch (op) {
+            case LESS -> left < right;
+            case LESS_EQ -> left <= right;
+            case MORE -> left > right;
+            case MORE_EQ -> left >= right;
+            case EQUAL -> left == right;
+            case NOT_EQUAL -> left != right;
+            default -> throw new ExpressionResolvingException();
+        };
+    }
+
+    // Generic path of superinstructions, same as the instructions they replace
+    private void loadRequired(int slot, String name) {
+        frames.load(slot);
+        if (frames.peekType() == null) throw new NonOptionalVariableMissingValueException(name);
+    }
+
+    // added value is on the stack
+    private void update(int slot, String name, Operator op) {
+        loadRequired(slot, name);
+        Operations.evaluateOperator(frames, op, null);
+        frames.store(slot);
+        frames.pop();
+    }
+
+    private NotValue notValue(int notFlag) {
+        return notFlag < 0 ? null : NOT_VALUES[notFlag];
+    }
+
+    private void growCallStack() {
+        int newSize = callers.length * 2;
+
+        callers = Arrays.copyOf(callers, newSize);
+        returnAddresses = Arrays.copyOf(returnAddresses, newSize);
+        framePointers = Arrays.copyOf(framePointers, newSize);
+    }
+}
@@ -0,0 +1,12 @@
+package tkom.project;
+
+import tkom.project.closure.ClosureInterpreter;
+import tkom.project.nodes.Program;
+import tkom.project.scope.Reader;
+
+class ClosureInterpreterTest extends EngineTest {
+    @Override
+    Engine createEngine(Program program, Reader reader) {
+        return new ClosureInterpreter(program, reader);
+    }
+}
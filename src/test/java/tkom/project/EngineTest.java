@@ -0,0 +1,91 @@
+package tkom.project;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import tkom.project.nodes.Program;
+import tkom.project.scope.Reader;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+// Runs the interpreter test programs with other execution engines, they have to behave the same way
+abstract class EngineTest {
+    String path = "src/test/java/tkom/project/interpreterTestFiles/";
+
+    abstract Engine createEngine(Program program, Reader reader);
+
+    private Engine executionSetup(String code, Reader reader) {
+        return createEngine(parse(code), reader);
+    }
+
+    Program parse(String code) {
+        File file = new File(code);
+        try (FileReader fr = new FileReader(file)) {
+            Program program = new Parser(new Lexer(fr)).parse();
+            if (program != null) return program;
+            else throw new RuntimeException();
+        } catch (IOException e) {
+            throw new RuntimeException();
+        }
+    }
+
+    @ParameterizedTest(name = "{index} => {0}: {2}")
+    @CsvSource(delimiter = '|', textBlock = InterpreterTest.PROGRAMS)
+    void executeTest(String description, String location, String result) {
+        Reader reader = new Reader();
+        Engine engine = executionSetup(path+location, reader);
+
+        engine.execute();
+
+        Assertions.assertEquals(result, reader.read());
+    }
+
+    @ParameterizedTest(name = "{index} => {0}: {1}")
+    @CsvSource(delimiter = '|', textBlock = """
+        test6.tkom  | java.lang.NumberFormatException
+        test9.tkom  | tkom.project.exceptions.TypeException
+        test10.tkom | tkom.project.exceptions.TypeException
+        test14.tkom | tkom.project.exceptions.TypeException
+        test27.tkom | tkom.project.exceptions.IncorrectReturnTypeException
+        test28.tkom | tkom.project.exceptions.IncorrectReturnTypeException
+        test29.tkom | tkom.project.exceptions.IncorrectReturnTypeException
+        test30.tkom | tkom.project.exceptions.IncorrectReturnTypeException
+        test31.tkom | tkom.project.exceptions.IncorrectParameterAmountException
+        test32.tkom | tkom.project.exceptions.MismatchedTypesException
+        test33.tkom | tkom.project.exceptions.FunctionAlreadyDefinedException
+        test34.tkom | tkom.project.exceptions.FunctionAlreadyDefinedException
+        test35.tkom | tkom.project.exceptions.VariableAlreadyDefinedException
+        test36.tkom | tkom.project.exceptions.VariableAlreadyDefinedException
+        test37.tkom | tkom.project.exceptions.VariableAlreadyDefinedException
+        test42.tkom | tkom.project.exceptions.MismatchedTypesException
+        test44.tkom | tkom.project.exceptions.MismatchedSidesOfOperationException
+        test58.tkom | tkom.project.exceptions.ReassignNonMutableVariableException
+        test59.tkom | tkom.project.exceptions.NonOptionalVariableMissingValueException
+        test60.tkom | tkom.project.exceptions.MismatchedSidesOfOperationException
+        test62.tkom | tkom.project.exceptions.MismatchedSidesOfOperationException
+        test63.tkom | tkom.project.exceptions.FunctionNotDeclaredException
+        test64.tkom | tkom.project.exceptions.VariableNotDeclaredException
+        test65.tkom | tkom.project.exceptions.InvalidJumpStatement
+        test66.tkom | tkom.project.exceptions.InvalidJumpStatement
+        test91.tkom | tkom.project.exceptions.DivisionByZeroException
+        test92.tkom | tkom.project.exceptions.NonOptionalVariableMissingValueException
+        test95.tkom | tkom.project.exceptions.NonOptionalVariableMissingValueException
+        test96.tkom | tkom.project.exceptions.NonOptionalVariableMissingValueException
+        test97.tkom | tkom.project.exceptions.MismatchedSidesOfOperationException
+    """)
+    void exceptionTest(String location, Class<? extends Throwable> exception) {
+        Engine engine = executionSetup(path+location, null);
+        Assert.assertThrows(exception, engine::execute);
+    }
+
+    // right side of || isn't evaluated when the left one decides the result, so its type isn't checked
+    @Test
+    void shortCircuitSkipsMismatchedSide() {
+        Engine engine = executionSetup(path + "test61.tkom", null);
+        Assertions.assertEquals("Program executed CORRECTLY!", engine.execute());
+    }
+}
@@ -7,34 +7,19 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import tkom.project.exceptions.*;
 import tkom.project.nodes.Program;
+import tkom.project.optimizer.OptimizerPolicy;
 import tkom.project.scope.Reader;
 
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 
 class InterpreterTest {
     String path = "src/test/java/tkom/project/interpreterTestFiles/";
 
-    private Interpreter executionSetup(String code, Reader reader) {
-        File file = new File(code);
-        try (FileReader fr = new FileReader(file)) {
-            Program program = new Parser(new Lexer(fr)).parse();
-            if (program != null) {
-                Interpreter interpreter;
-
-                if (reader == null ) interpreter = new Interpreter(program);
-                else interpreter = new Interpreter(program, reader);
-
-                return interpreter;
-            } else throw new RuntimeException();
-        } catch (IOException e) {
-            throw new RuntimeException();
-        }
-    }
-
-    @ParameterizedTest(name = "{index} => {0}: {2}")
-    @CsvSource(delimiter = '|', textBlock = """
+    // programs with the last printed value, shared with the tests of other engines
+    static final String PROGRAMS = """
         simple test             |   test1.tkom  | test
         from Int To Int         |   test2.tkom  | 1
         from Float To Int       |   test3.tkom  | 1 9
@@ -77,7 +62,50 @@ class InterpreterTest {
         ExpressionEvaluation7   |   test57.tkom | false
         While-Break             |   test67.tkom | 10
         While-Continue          |   test68.tkom | 51
-    """)
+        While-LocalVariable     |   test69.tkom | 20
+        functionCall nestedArgs |   test70.tkom | 15
+        ifStatement blockScope  |   test71.tkom | 8
+        division results        |   test72.tkom | 3.5 1.5
+        evaluation order        |   test73.tkom | 6 14 three 4.5 -3.5
+        functionCall emptyValue |   test74.tkom | value 8, empty, empty
+        changed operand types   |   test75.tkom | 2 -1 2 -1 3.0 -1.5 3.0 -1.5
+        hot functions           |   test76.tkom | -40425 50 25 25
+        hot loops               |   test77.tkom | 45 5.5 0369 10 8
+        traced loops            |   test78.tkom | 24 five,ten,five,ten,five,ten, 14
+        common idioms           |   test79.tkom | 01234 3.5 smallsmallbigbig 4 -2
+        short circuit           |   test80.tkom | acefghsmall falsetruefalsetruefalse
+        tail calls              |   test81.tkom | 600 false false true
+        deep tail calls         |   test82.tkom | 300000 false
+        static types            |   test84.tkom | 25 2.0 ---45
+        constant folding        |   test85.tkom | n4 240 true false 3.5 -3.0 -4
+        inlined calls           |   test86.tkom | 150 eoeoeo 3.5 false
+        loop invariants         |   test87.tkom | 300 0244.0/9
+        repeated expressions    |   test88.tkom | 46 15 19 medium 35 12.0 19
+        dead code               |   test89.tkom | a8d12
+        simplified arithmetic   |   test90.tkom | 10 -13 13 6 0 0 0 13 -104 48 -1 1 6 in
+        invariant without value |   test93.tkom | done
+        lazy repeated operand   |   test94.tkom | done
+    """;
+
+    private Interpreter executionSetup(String code, Reader reader) {
+        File file = new File(code);
+        try (FileReader fr = new FileReader(file)) {
+            Program program = new Parser(new Lexer(fr)).parse();
+            if (program != null) {
+                Interpreter interpreter;
+
+                if (reader == null ) interpreter = new Interpreter(program);
+                else interpreter = new Interpreter(program, reader);
+
+                return interpreter;
+            } else throw new RuntimeException();
+        } catch (IOException e) {
+            throw new RuntimeException();
+        }
+    }
+
+    @ParameterizedTest(name = "{index} => {0}: {2}")
+    @CsvSource(delimiter = '|', textBlock = PROGRAMS)
     void executeTest(String description, String location, String result) {
         Reader reader = new Reader();
         Interpreter interpreter = executionSetup(path+location, reader);
@@ -209,10 +237,16 @@ class InterpreterTest {
 
     @Test
     void ExpressionEvaluationException2() {
-        Interpreter interpreter = executionSetup(path + "test61.tkom", null);
+        Interpreter interpreter = executionSetup(path + "test97.tkom", null);
         Assert.assertThrows(MismatchedSidesOfOperationException.class, interpreter::execute);
     }
 
+    @Test
+    void ShortCircuitSkipsMismatchedSide() {
+        Interpreter interpreter = executionSetup(path + "test61.tkom", null);
+        Assertions.assertEquals("Program executed CORRECTLY!", interpreter.execute());
+    }
+
     @Test
     void ExpressionEvaluationException3() {
         Interpreter interpreter = executionSetup(path + "test62.tkom", null);
@@ -242,4 +276,43 @@ class InterpreterTest {
         Interpreter interpreter = executionSetup(path + "test66.tkom", null);
         Assert.assertThrows(InvalidJumpStatement.class, interpreter::execute);
     }
+
+    @Test
+    void DivisionByZeroAfterSimplifying() {
+        Interpreter interpreter = executionSetup(path + "test91.tkom", null);
+        Assert.assertThrows(DivisionByZeroException.class, interpreter::execute);
+    }
+
+    @Test
+    void GlobalReadBeforeDefinition() {
+        Interpreter interpreter = executionSetup(path + "test92.tkom", null);
+        Assert.assertThrows(NonOptionalVariableMissingValueException.class, interpreter::execute);
+    }
+
+    @Test
+    void MissingValueSubtractedFromItself() {
+        Interpreter interpreter = executionSetup(path + "test95.tkom", null);
+        Assert.assertThrows(NonOptionalVariableMissingValueException.class, interpreter::execute);
+    }
+
+    @Test
+    void MissingValueMultipliedByZero() {
+        Interpreter interpreter = executionSetup(path + "test96.tkom", null);
+        Assert.assertThrows(NonOptionalVariableMissingValueException.class, interpreter::execute);
+    }
+
+    @Test
+    void InlineReport() {
+        Reader reader = new Reader();
+        ArrayList<String> report = new ArrayList<>();
+        Interpreter interpreter = executionSetup(path + "test86.tkom", reader);
+        interpreter.setOptimizerPolicy(new OptimizerPolicy(3, report::add));
+
+        interpreter.execute();
+
+        Assertions.assertEquals("150 eoeoeo 3.5 false", reader.read());
+        Assertions.assertTrue(report.contains("twice: offset inlined"));
+        Assertions.assertTrue(report.contains("main: twice not inlined (too large)"));
+        Assertions.assertTrue(report.contains("main: wrong not inlined (returned type is not proven)"));
+    }
 }
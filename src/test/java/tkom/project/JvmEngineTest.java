@@ -0,0 +1,12 @@
+package tkom.project;
+
+import tkom.project.jvm.JvmEngine;
+import tkom.project.nodes.Program;
+import tkom.project.scope.Reader;
+
+class JvmEngineTest extends EngineTest {
+    @Override
+    Engine createEngine(Program program, Reader reader) {
+        return new JvmEngine(program, reader);
+    }
+}
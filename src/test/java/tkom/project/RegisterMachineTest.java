@@ -0,0 +1,12 @@
+package tkom.project;
+
+import tkom.project.nodes.Program;
+import tkom.project.scope.Reader;
+import tkom.project.vm.RegisterMachine;
+
+class RegisterMachineTest extends EngineTest {
+    @Override
+    Engine createEngine(Program program, Reader reader) {
+        return new RegisterMachine(program, reader);
+    }
+}
@@ -0,0 +1,13 @@
+package tkom.project;
+
+import tkom.project.nodes.Program;
+import tkom.project.scope.Reader;
+import tkom.project.tiered.TierPolicy;
+
+// low thresholds and compiling in the executing thread make functions switch tiers at the same point every run
+class TieredInterpreterTest extends EngineTest {
+    @Override
+    Engine createEngine(Program program, Reader reader) {
+        return new Interpreter(program, reader, new TierPolicy(2, 2, 0));
+    }
+}
@@ -0,0 +1,13 @@
+package tkom.project;
+
+import tkom.project.nodes.Program;
+import tkom.project.scope.Reader;
+import tkom.project.tiered.TierPolicy;
+
+// loops get traced after a few iterations, so the traces are left through guards in the programs with more of them
+class TracingInterpreterTest extends EngineTest {
+    @Override
+    Engine createEngine(Program program, Reader reader) {
+        return new Interpreter(program, reader, new TierPolicy(2, 2, 0, true));
+    }
+}
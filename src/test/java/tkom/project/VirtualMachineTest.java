@@ -0,0 +1,47 @@
+package tkom.project;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tkom.project.exceptions.CallDepthExceededException;
+import tkom.project.nodes.Program;
+import tkom.project.scope.Reader;
+import tkom.project.vm.VirtualMachine;
+
+class VirtualMachineTest extends EngineTest {
+    @Override
+    Engine createEngine(Program program, Reader reader) {
+        return new VirtualMachine(program, reader);
+    }
+
+    @Test
+    void deepRecursion() {
+        Reader reader = new Reader();
+        new VirtualMachine(parse(path + "test83.tkom"), reader).execute();
+
+        Assertions.assertEquals("200000", reader.read());
+    }
+
+    @Test
+    void maxCallDepth() {
+        VirtualMachine vm = new VirtualMachine(parse(path + "test83.tkom"), null, 1000);
+        Assert.assertThrows(CallDepthExceededException.class, vm::execute);
+    }
+
+    @Test
+    void pauseAndResume() {
+        Reader reader = new Reader();
+        VirtualMachine vm = new VirtualMachine(parse(path + "test41.tkom"), reader);
+        vm.start();
+
+        int pauses = 0;
+        vm.pause();
+        while (!vm.resume()) {
+            pauses++;
+            vm.pause();
+        }
+
+        Assertions.assertTrue(pauses > 1);
+        Assertions.assertEquals("3628800", reader.read());
+    }
+}